@@ -1,17 +1,30 @@
 CREATE TABLE roperty_key (
     id character varying(255) NOT NULL,
-    description character varying(255)
+    search_id character varying(255),
+    description character varying(255),
+    last_modified timestamp without time zone,
+    version bigint DEFAULT 0 NOT NULL
 );
 
 ALTER TABLE ONLY roperty_key
     ADD CONSTRAINT roperty_key_pkey PRIMARY KEY (id);
 
+CREATE INDEX roperty_key_last_modified_index ON roperty_key USING btree (last_modified);
+
+CREATE INDEX roperty_key_search_id_index ON roperty_key USING btree (search_id varchar_pattern_ops);
+
 CREATE TABLE roperty_value (
     id bigint NOT NULL,
     key character varying(255) NOT NULL,
     pattern character varying(255) NOT NULL,
+    value_type character varying(16),
+    string_value character varying(4000),
+    long_value bigint,
+    boolean_value boolean,
+    double_value double precision,
     value bytea,
-    change_set character varying(255)
+    change_set character varying(255),
+    version bigint DEFAULT 0 NOT NULL
 );
 
 ALTER TABLE ONLY roperty_value
@@ -0,0 +1,34 @@
+package com.parship.roperty.persistence.jpa;
+
+class BetweenCriterion<Y extends Comparable<? super Y>> {
+    private String attributeName;
+    private Y lowerBound;
+    private Y upperBound;
+
+    String getAttributeName() {
+        return attributeName;
+    }
+
+    BetweenCriterion<Y> withAttributeName(String attributeName) {
+        this.attributeName = attributeName;
+        return this;
+    }
+
+    Y getLowerBound() {
+        return lowerBound;
+    }
+
+    BetweenCriterion<Y> withLowerBound(Y lowerBound) {
+        this.lowerBound = lowerBound;
+        return this;
+    }
+
+    Y getUpperBound() {
+        return upperBound;
+    }
+
+    BetweenCriterion<Y> withUpperBound(Y upperBound) {
+        this.upperBound = upperBound;
+        return this;
+    }
+}
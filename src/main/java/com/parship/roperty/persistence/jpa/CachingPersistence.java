@@ -0,0 +1,143 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.DomainSpecificValue;
+import com.parship.roperty.DomainSpecificValueFactory;
+import com.parship.roperty.KeyValues;
+import com.parship.roperty.KeyValuesFactory;
+import com.parship.roperty.Persistence;
+import org.apache.commons.lang3.Validate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CachingPersistence implements Persistence {
+
+    private static final long DEFAULT_MAXIMUM_WEIGHT = 10_000L;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private Persistence persistence;
+
+    private final KeyValuesCache cache = new KeyValuesCache(DEFAULT_MAXIMUM_WEIGHT);
+
+    @Override
+    public KeyValues load(String key, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        Validate.notBlank(key, "Key must not be empty");
+        Validate.notNull(persistence, "Persistence must not be null");
+
+        KeyValuesCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            hitCount.incrementAndGet();
+            return entry.getKeyValues();
+        }
+        missCount.incrementAndGet();
+
+        long generation = cache.getGeneration(key);
+        KeyValues keyValues = persistence.load(key, keyValuesFactory, domainSpecificValueFactory);
+        cache.put(key, keyValues, weigh(keyValues), generation);
+        return keyValues;
+    }
+
+    @Override
+    public Map<String, KeyValues> loadAll(KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        Validate.notNull(persistence, "Persistence must not be null");
+        cache.invalidateAll();
+        return persistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+    }
+
+    @Override
+    public Map<String, KeyValues> reload(Map<String, KeyValues> keyValuesMap, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        Validate.notNull(persistence, "Persistence must not be null");
+        cache.invalidateAll();
+        return persistence.reload(keyValuesMap, keyValuesFactory, domainSpecificValueFactory);
+    }
+
+    @Override
+    public void store(String key, KeyValues keyValues, String changeSet) {
+        Validate.notNull(persistence, "Persistence must not be null");
+        try {
+            persistence.store(key, keyValues, changeSet);
+        } finally {
+            cache.invalidate(key);
+        }
+    }
+
+    @Override
+    public void remove(String key, KeyValues keyValues, String changeSet) {
+        Validate.notNull(persistence, "Persistence must not be null");
+        try {
+            persistence.remove(key, keyValues, changeSet);
+        } finally {
+            cache.invalidate(key);
+        }
+    }
+
+    @Override
+    public void remove(String key, DomainSpecificValue domainSpecificValue, String changeSet) {
+        Validate.notNull(persistence, "Persistence must not be null");
+        try {
+            persistence.remove(key, domainSpecificValue, changeSet);
+        } finally {
+            cache.invalidate(key);
+        }
+    }
+
+    @Override
+    public List<String> findKeys(String substring) {
+        Validate.notNull(persistence, "Persistence must not be null");
+        return persistence.findKeys(substring);
+    }
+
+    @Override
+    public List<String> getAllKeys() {
+        Validate.notNull(persistence, "Persistence must not be null");
+        return persistence.getAllKeys();
+    }
+
+    private static int weigh(KeyValues keyValues) {
+        if (keyValues == null) {
+            return 1;
+        }
+        Set<DomainSpecificValue> domainSpecificValues = keyValues.getDomainSpecificValues();
+        if (domainSpecificValues == null) {
+            return 1;
+        }
+        return Math.max(1, domainSpecificValues.size());
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public long getWeight() {
+        return cache.getWeight();
+    }
+
+    public void setPersistence(Persistence persistence) {
+        Validate.notNull(persistence, "Persistence must not be null");
+        this.persistence = persistence;
+    }
+
+    public void setMaximumWeight(long maximumWeight) {
+        cache.setMaximumWeight(maximumWeight);
+    }
+
+    public void setNegativeEntryLifetime(long negativeEntryLifetime, TimeUnit timeUnit) {
+        Validate.notNull(timeUnit, "Time unit must not be null");
+        cache.setNegativeEntryLifetime(timeUnit.toNanos(negativeEntryLifetime));
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+public class CompressingValueCodec implements ValueCodec {
+
+    private static final int DEFAULT_THRESHOLD = 512;
+
+    private final AtomicLong compressedValueCount = new AtomicLong();
+
+    private final AtomicLong uncompressedBytes = new AtomicLong();
+
+    private final AtomicLong compressedBytes = new AtomicLong();
+
+    private ValueCodec valueCodec = new SerializationValueCodec();
+
+    private int threshold = DEFAULT_THRESHOLD;
+
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    private int maximumDecompressedLength = ValueCodecs.DEFAULT_MAXIMUM_DECOMPRESSED_LENGTH;
+
+    @Override
+    public boolean canEncode(Object value) {
+        return valueCodec.canEncode(value);
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        byte[] bytes = valueCodec.encode(value);
+        if (bytes.length < threshold) {
+            return bytes;
+        }
+        byte[] compressed = compress(bytes);
+        if (compressed.length >= bytes.length) {
+            return bytes;
+        }
+        compressedValueCount.incrementAndGet();
+        uncompressedBytes.addAndGet(bytes.length);
+        compressedBytes.addAndGet(compressed.length);
+        return compressed;
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        Validate.notNull(bytes, "Bytes must not be null");
+        if (bytes.length > 0 && bytes[0] == ValueCodecs.COMPRESSED) {
+            return valueCodec.decode(ValueCodecs.decompress(bytes, maximumDecompressedLength));
+        }
+        return valueCodec.decode(bytes);
+    }
+
+    boolean exceedsThreshold(String value) {
+        return value.length() >= threshold;
+    }
+
+    private byte[] compress(byte[] bytes) {
+        byte[] compressed = new byte[ValueCodecs.COMPRESSION_HEADER_LENGTH + bytes.length];
+        compressed[0] = ValueCodecs.COMPRESSED;
+        compressed[1] = (byte) (bytes.length >>> 24);
+        compressed[2] = (byte) (bytes.length >>> 16);
+        compressed[3] = (byte) (bytes.length >>> 8);
+        compressed[4] = (byte) bytes.length;
+        Deflater deflater = new Deflater(compressionLevel);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            int length = ValueCodecs.COMPRESSION_HEADER_LENGTH;
+            while (!deflater.finished() && length < compressed.length) {
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            if (!deflater.finished()) {
+                return bytes;
+            }
+            return Arrays.copyOf(compressed, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public long getCompressedValueCount() {
+        return compressedValueCount.get();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    public double getCompressionRatio() {
+        long uncompressed = uncompressedBytes.get();
+        if (uncompressed == 0) {
+            return 1.0;
+        }
+        return (double) compressedBytes.get() / uncompressed;
+    }
+
+    public void setValueCodec(ValueCodec valueCodec) {
+        Validate.notNull(valueCodec, "Value codec must not be null");
+        this.valueCodec = valueCodec;
+    }
+
+    public void setThreshold(int threshold) {
+        Validate.isTrue(threshold >= 0, "Threshold must not be negative, but was %d", threshold);
+        this.threshold = threshold;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        Validate.isTrue(compressionLevel == Deflater.DEFAULT_COMPRESSION || compressionLevel >= Deflater.NO_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION,
+                "Compression level must be between 0 and 9, but was %d", compressionLevel);
+        this.compressionLevel = compressionLevel;
+    }
+
+    public void setMaximumDecompressedLength(int maximumDecompressedLength) {
+        Validate.isTrue(maximumDecompressedLength >= 0, "Maximum decompressed length must not be negative, but was %d", maximumDecompressedLength);
+        this.maximumDecompressedLength = maximumDecompressedLength;
+    }
+
+}
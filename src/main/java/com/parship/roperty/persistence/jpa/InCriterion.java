@@ -0,0 +1,26 @@
+package com.parship.roperty.persistence.jpa;
+
+import java.util.Collection;
+
+class InCriterion<Y> {
+    private String attributeName;
+    private Collection<Y> values;
+
+    String getAttributeName() {
+        return attributeName;
+    }
+
+    InCriterion<Y> withAttributeName(String attributeName) {
+        this.attributeName = attributeName;
+        return this;
+    }
+
+    Collection<Y> getValues() {
+        return values;
+    }
+
+    InCriterion<Y> withValues(Collection<Y> values) {
+        this.values = values;
+        return this;
+    }
+}
@@ -5,176 +5,605 @@ import com.parship.roperty.DomainSpecificValueFactory;
 import com.parship.roperty.KeyValues;
 import com.parship.roperty.KeyValuesFactory;
 import com.parship.roperty.Persistence;
+import com.parship.roperty.persistence.jpa.PersistenceMetrics.Operation;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 
-import java.io.Serializable;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 
 public class JpaPersistence implements Persistence {
 
+    private static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private static final long MODIFICATION_OVERLAP_MILLIS = 60_000L;
+
     private RopertyKeyDAO ropertyKeyDAO;
 
     private RopertyValueDAO ropertyValueDAO;
 
     private TransactionManager transactionManager;
 
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    private ExecutorService executorService;
+
+    private boolean incrementalReload;
+
+    private boolean bulkRemoval;
+
+    private ValueCodec valueCodec = new SerializationValueCodec();
+
+    private PatternCache patternCache = new PatternCache();
+
+    private SnapshotFile snapshotFile;
+
+    private boolean indexedKeySearch;
+
+    private final Object keyIndexLock = new Object();
+
+    private KeyIndex keyIndex;
+
+    private PersistenceMetrics metrics = new PersistenceMetrics();
+
+    private volatile Date lastModification;
+
     @Override
     public KeyValues load(String key, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
-        Validate.notBlank(key, "Key must not be empty");
-        Validate.notNull(keyValuesFactory, "Key values factory must no be null");
-        Validate.notNull(domainSpecificValueFactory, "Domain specific value factory must not be null");
-
-        RopertyKey ropertyKey = ropertyKeyDAO.loadRopertyKey(key);
-        if (ropertyKey == null) {
-            return null;
+        long startTime = metrics.start();
+        try {
+            KeyValues keyValues = loadKey(key, keyValuesFactory, domainSpecificValueFactory);
+            metrics.succeeded(Operation.LOAD, startTime);
+            return keyValues;
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.LOAD, startTime);
+            throw e;
         }
-
-        return load(ropertyKey, keyValuesFactory, domainSpecificValueFactory);
     }
 
-    private KeyValues load(RopertyKey ropertyKey, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
-        Validate.notNull(ropertyKey, "Roperty key must not be null");
+    KeyValues loadKey(String key, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        Validate.notBlank(key, "Key must not be empty");
         Validate.notNull(keyValuesFactory, "Key values factory must no be null");
         Validate.notNull(domainSpecificValueFactory, "Domain specific value factory must not be null");
 
-        List<RopertyValue> ropertyValues = ropertyValueDAO.loadRopertyValues(ropertyKey);
-        Validate.notEmpty(ropertyValues, "Could not find any values for key '%s'", ropertyKey.getId());
+        List<RopertyValue> ropertyValues = readRopertyValues(Collections.singletonList(key));
 
         return new RopertyValueTransformer()
                 .withDomainSpecificValueFactory(domainSpecificValueFactory)
                 .withKeyValuesFactory(keyValuesFactory)
+                .withPatternCache(patternCache)
+                .withValueCodec(valueCodec)
                 .transformValues(ropertyValues);
     }
 
     @Override
     public Map<String, KeyValues> loadAll(KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        long startTime = metrics.start();
+        try {
+            Map<String, KeyValues> result = loadAllKeys(keyValuesFactory, domainSpecificValueFactory);
+            metrics.succeeded(Operation.LOAD_ALL, startTime);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.LOAD_ALL, startTime);
+            throw e;
+        }
+    }
+
+    Map<String, KeyValues> loadAllKeys(KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
         Validate.notNull(keyValuesFactory, "Key values factory must no be null");
         Validate.notNull(domainSpecificValueFactory, "Domain specific value factory must not be null");
 
-        List<RopertyKey> ropertyKeys = ropertyKeyDAO.loadAllRopertyKeys();
-        Map<String, KeyValues> keyValuesMap = new HashMap<>(ropertyKeys.size());
-        for (RopertyKey ropertyKey : ropertyKeys) {
-            String key = ropertyKey.getId();
-            KeyValues keyValues = load(ropertyKey, keyValuesFactory, domainSpecificValueFactory);
-            Validate.notNull(keyValues, "No values found for key '%s'", key);
-            keyValuesMap.put(key, keyValues);
+        invalidateKeyIndex();
+
+        if (incrementalReload) {
+            lastModification = loadLastModification();
         }
 
+        if (snapshotFile != null) {
+            return loadAllFromSnapshot(keyValuesFactory, domainSpecificValueFactory);
+        }
+
+        if (executorService != null) {
+            return loadAllInParallel(keyValuesFactory, domainSpecificValueFactory);
+        }
+
+        RopertyValueTransformer ropertyValueTransformer = new RopertyValueTransformer()
+                .withDomainSpecificValueFactory(domainSpecificValueFactory)
+                .withKeyValuesFactory(keyValuesFactory)
+                .withPatternCache(patternCache)
+                .withValueCodec(valueCodec);
+
+        Map<String, KeyValues> keyValuesMap = new LinkedHashMap<>();
+        ropertyValueDAO.readAllRopertyValues(ropertyValues -> {
+            metrics.rowsRead(ropertyValues.size());
+            keyValuesMap.putAll(ropertyValueTransformer.transformValuesByKey(ropertyValues));
+        });
         return keyValuesMap;
     }
 
+    private Map<String, KeyValues> loadAllFromSnapshot(KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        Revision revision = ropertyKeyDAO.loadRevision();
+        List<RopertyValue> ropertyValues = snapshotFile.read(revision);
+        if (ropertyValues == null) {
+            ropertyValues = readAllRopertyValues();
+            try {
+                snapshotFile.write(revision, ropertyValues);
+            } catch (RopertyPersistenceException e) {
+                // the values are loaded anyway, only the next start misses the snapshot
+            }
+        }
+
+        return new RopertyValueTransformer()
+                .withDomainSpecificValueFactory(domainSpecificValueFactory)
+                .withKeyValuesFactory(keyValuesFactory)
+                .withPatternCache(patternCache)
+                .withValueCodec(valueCodec)
+                .transformValuesByKey(ropertyValues);
+    }
+
+    private Map<String, KeyValues> loadAllInParallel(KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        List<String> keys = ropertyKeyDAO.loadRopertyKeyIds();
+        List<Future<Map<String, KeyValues>>> partitions = new ArrayList<>();
+        for (int fromIndex = 0; fromIndex < keys.size(); fromIndex += chunkSize) {
+            List<String> partition = keys.subList(fromIndex, Math.min(fromIndex + chunkSize, keys.size()));
+            partitions.add(executorService.submit(() -> new RopertyValueTransformer()
+                    .withDomainSpecificValueFactory(domainSpecificValueFactory)
+                    .withKeyValuesFactory(keyValuesFactory)
+                    .withPatternCache(patternCache)
+                    .withValueCodec(valueCodec)
+                    .transformValuesByKey(readRopertyValues(partition.get(0), partition.get(partition.size() - 1)))));
+        }
+
+        Map<String, KeyValues> keyValuesMap = new HashMap<>(keys.size());
+        for (Future<Map<String, KeyValues>> partition : partitions) {
+            try {
+                keyValuesMap.putAll(partition.get());
+            } catch (InterruptedException e) {
+                partitions.forEach(remainingPartition -> remainingPartition.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new RopertyPersistenceException("Interrupted while loading all keys in parallel", e);
+            } catch (ExecutionException e) {
+                partitions.forEach(remainingPartition -> remainingPartition.cancel(true));
+                throw new RopertyPersistenceException("Could not load all keys in parallel", e.getCause());
+            }
+        }
+
+        return keyValuesMap;
+    }
+
+    public void loadAll(KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory, BiConsumer<String, KeyValues> consumer) {
+        long startTime = metrics.start();
+        try {
+            loadAllKeys(keyValuesFactory, domainSpecificValueFactory, consumer);
+            metrics.succeeded(Operation.LOAD_ALL, startTime);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.LOAD_ALL, startTime);
+            throw e;
+        }
+    }
+
+    private void loadAllKeys(KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory, BiConsumer<String, KeyValues> consumer) {
+        Validate.notNull(keyValuesFactory, "Key values factory must no be null");
+        Validate.notNull(domainSpecificValueFactory, "Domain specific value factory must not be null");
+        Validate.notNull(consumer, "Consumer must not be null");
+
+        RopertyValueTransformer ropertyValueTransformer = new RopertyValueTransformer()
+                .withDomainSpecificValueFactory(domainSpecificValueFactory)
+                .withKeyValuesFactory(keyValuesFactory)
+                .withPatternCache(patternCache)
+                .withValueCodec(valueCodec);
+
+        String lastKey = null;
+        List<String> keys;
+        do {
+            keys = ropertyKeyDAO.loadRopertyKeyIds(lastKey, chunkSize);
+            if (!keys.isEmpty()) {
+                List<RopertyValue> ropertyValues = readRopertyValues(keys);
+                ropertyValueTransformer.transformValuesByKey(ropertyValues).forEach(consumer);
+                lastKey = keys.get(keys.size() - 1);
+            }
+        } while (keys.size() == chunkSize);
+    }
+
     @Override
     public Map<String, KeyValues> reload(Map<String, KeyValues> keyValuesMap, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        long startTime = metrics.start();
+        try {
+            Map<String, KeyValues> result = reloadKeys(keyValuesMap, keyValuesFactory, domainSpecificValueFactory);
+            metrics.succeeded(Operation.RELOAD, startTime);
+            return result;
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.RELOAD, startTime);
+            throw e;
+        }
+    }
+
+    Map<String, KeyValues> reloadKeys(Map<String, KeyValues> keyValuesMap, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
         Validate.notNull(keyValuesFactory, "Key values factory must no be null");
         Validate.notNull(domainSpecificValueFactory, "Domain specific value factory must not be null");
 
-        Map<String, KeyValues> result = new HashMap<>(keyValuesMap.size());
+        invalidateKeyIndex();
 
-        for (String key : keyValuesMap.keySet()) {
-            KeyValues keyValues = load(key, keyValuesFactory, domainSpecificValueFactory);
-            if (keyValues != null) {
-                result.put(key, keyValues);
-            }
+        if (!incrementalReload) {
+            return loadKeyValues(keyValuesMap.keySet(), keyValuesFactory, domainSpecificValueFactory);
+        }
+
+        Date previousModification = lastModification;
+        Date currentModification = loadLastModification();
+        Map<String, KeyValues> result;
+        if (previousModification == null) {
+            result = loadKeyValues(keyValuesMap.keySet(), keyValuesFactory, domainSpecificValueFactory);
+        } else {
+            result = reloadModifiedKeyValues(keyValuesMap, previousModification, keyValuesFactory, domainSpecificValueFactory);
         }
+        lastModification = currentModification;
 
         return result;
     }
 
+    private Map<String, KeyValues> reloadModifiedKeyValues(Map<String, KeyValues> keyValuesMap, Date previousModification, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        Map<String, KeyValues> result = new HashMap<>(keyValuesMap);
+        result.keySet().retainAll(new HashSet<>(ropertyKeyDAO.loadRopertyKeyIds()));
+
+        Date since = new Date(previousModification.getTime() - MODIFICATION_OVERLAP_MILLIS);
+        List<String> modifiedKeys = new ArrayList<>(ropertyKeyDAO.loadRopertyKeyIdsModifiedSince(since));
+        modifiedKeys.retainAll(result.keySet());
+        result.keySet().removeAll(modifiedKeys);
+        result.putAll(loadKeyValues(modifiedKeys, keyValuesFactory, domainSpecificValueFactory));
+
+        return result;
+    }
+
+    Map<String, KeyValues> loadKeyValues(Collection<String> keyCollection, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        List<String> keys = new ArrayList<>(keyCollection);
+        int numKeys = keys.size();
+        Map<String, KeyValues> result = new HashMap<>(numKeys);
+
+        RopertyValueTransformer ropertyValueTransformer = new RopertyValueTransformer()
+                .withDomainSpecificValueFactory(domainSpecificValueFactory)
+                .withKeyValuesFactory(keyValuesFactory)
+                .withPatternCache(patternCache)
+                .withValueCodec(valueCodec);
+
+        for (int fromIndex = 0; fromIndex < numKeys; fromIndex += chunkSize) {
+            List<String> chunk = keys.subList(fromIndex, Math.min(fromIndex + chunkSize, numKeys));
+            List<RopertyValue> ropertyValues = readRopertyValues(chunk);
+            result.putAll(ropertyValueTransformer.transformValuesByKey(ropertyValues));
+        }
+
+        return result;
+    }
+
+    private List<RopertyValue> readRopertyValues(Collection<String> keys) {
+        List<RopertyValue> ropertyValues = ropertyValueDAO.readRopertyValues(keys);
+        metrics.rowsRead(ropertyValues.size());
+        return ropertyValues;
+    }
+
+    private List<RopertyValue> readRopertyValues(String firstKey, String lastKey) {
+        List<RopertyValue> ropertyValues = ropertyValueDAO.readRopertyValues(firstKey, lastKey);
+        metrics.rowsRead(ropertyValues.size());
+        return ropertyValues;
+    }
+
+    private List<RopertyValue> readAllRopertyValues() {
+        List<RopertyValue> ropertyValues = ropertyValueDAO.readAllRopertyValues();
+        metrics.rowsRead(ropertyValues.size());
+        return ropertyValues;
+    }
+
+    private Date loadLastModification() {
+        Date lastModification = ropertyKeyDAO.loadLastModification();
+        if (lastModification == null) {
+            return new Date(0L);
+        }
+        return new Date(lastModification.getTime());
+    }
+
     @Override
     public void store(String key, KeyValues keyValues, String changeSet) {
+        long startTime = metrics.start();
+        try {
+            storeKey(key, keyValues, changeSet);
+            metrics.succeeded(Operation.STORE, startTime);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.STORE, startTime);
+            throw e;
+        }
+    }
+
+    void storeKey(String key, KeyValues keyValues, String changeSet) {
         Validate.notBlank(key, "Key must not be empty");
         Validate.notNull(keyValues, "Key values must not be null");
         Validate.notNull(transactionManager, "Transaction manager must no be null");
 
         transactionManager.begin();
+        try {
+            EntityManager entityManager = transactionManager.getEntityManager();
+
+            RopertyKey ropertyKey = ropertyKeyDAO.loadRopertyKey(entityManager, key);
+            String description = keyValues.getDescription();
+            boolean newKey = ropertyKey == null;
+            if (newKey) {
+                ropertyKey = new RopertyKey();
+                ropertyKey.setId(key);
+                ropertyKey.setDescription(description);
+                ropertyKey.setLastModified(new Date());
+                transactionManager.persist(ropertyKey);
+            }
+
+            Set<DomainSpecificValue> domainSpecificValues = keyValues.getDomainSpecificValues();
+            if (domainSpecificValues == null) {
+                throw new RopertyPersistenceException(String.format("Domain specific values were null for key values with description '%s'", description));
+            }
+            if (domainSpecificValues.isEmpty()) {
+                throw new RopertyPersistenceException(String.format("Domain specific values were empty for key values with description '%s'", description));
+            }
+
+            if (!newKey) {
+                ropertyKey.setLastModified(new Date());
+            }
+
+            storeDomainSpecificValues(entityManager, ropertyKey, newKey, domainSpecificValues, changeSet);
+
+            transactionManager.end();
+        } catch (RuntimeException e) {
+            transactionManager.rollback();
+            throw e;
+        }
+        addToKeyIndex(key);
+    }
+
+    public boolean storeIfUnchanged(String key, KeyValues keyValues, String changeSet, Long expectedVersion) {
+        long startTime = metrics.start();
+        try {
+            boolean stored = storeKeyIfUnchanged(key, keyValues, changeSet, expectedVersion);
+            metrics.succeeded(Operation.STORE, startTime);
+            return stored;
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.STORE, startTime);
+            throw e;
+        }
+    }
+
+    boolean storeKeyIfUnchanged(String key, KeyValues keyValues, String changeSet, Long expectedVersion) {
+        validateKeyValues(key, keyValues, changeSet);
+        Validate.notNull(transactionManager, "Transaction manager must no be null");
+
+        String transformedChangeSet = emptyWhenNull(changeSet);
+        Date lastModified = new Date();
+
+        transactionManager.begin();
+        try {
+            EntityManager entityManager = transactionManager.getEntityManager();
+
+            RopertyKey ropertyKey;
+            Map<String, RopertyValue> existingValues;
+            if (expectedVersion == null) {
+                ropertyKey = new RopertyKey();
+                ropertyKey.setId(key);
+                ropertyKey.setDescription(keyValues.getDescription());
+                ropertyKey.setLastModified(lastModified);
+                transactionManager.persist(ropertyKey);
+                try {
+                    entityManager.flush();
+                } catch (PersistenceException e) {
+                    transactionManager.rollback();
+                    if (ropertyKeyDAO.loadRopertyKey(key) != null) {
+                        return false;
+                    }
+                    throw e;
+                }
+                existingValues = Collections.emptyMap();
+            } else {
+                if (ropertyKeyDAO.touchRopertyKey(entityManager, key, expectedVersion, lastModified) == 0) {
+                    transactionManager.rollback();
+                    return false;
+                }
+                ropertyKey = entityManager.getReference(RopertyKey.class, key);
+                existingValues = indexByPattern(ropertyValueDAO.loadRopertyValues(entityManager, key), transformedChangeSet);
+            }
+
+            for (DomainSpecificValue domainSpecificValue : keyValues.getDomainSpecificValues()) {
+                if (domainSpecificValue.changeSetIs(nullWhenEmpty(changeSet))) {
+                    String patternStr = domainSpecificValue.getPatternStr();
+                    storeRopertyValue(ropertyKey, existingValues.get(patternStr), patternStr, domainSpecificValue.getValue(), transformedChangeSet);
+                }
+            }
+
+            transactionManager.end();
+        } catch (RuntimeException e) {
+            transactionManager.rollback();
+            throw e;
+        }
+        addToKeyIndex(key);
+        return true;
+    }
 
+    public Long getVersion(String key) {
+        Validate.notBlank(key, "Key must not be empty");
         RopertyKey ropertyKey = ropertyKeyDAO.loadRopertyKey(key);
-        String description = keyValues.getDescription();
         if (ropertyKey == null) {
-            ropertyKey = new RopertyKey();
-            ropertyKey.setId(key);
-            ropertyKey.setDescription(description);
-            transactionManager.persist(ropertyKey);
+            return null;
+        }
+        return ropertyKey.getVersion();
+    }
+
+    public void storeAll(Map<String, KeyValues> keyValuesMap, String changeSet) {
+        long startTime = metrics.start();
+        try {
+            storeAllKeys(keyValuesMap, changeSet);
+            metrics.succeeded(Operation.STORE, startTime);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.STORE, startTime);
+            throw e;
         }
+    }
+
+    void storeAllKeys(Map<String, KeyValues> keyValuesMap, String changeSet) {
+        Validate.notNull(keyValuesMap, "Key values map must not be null");
+        Validate.notNull(transactionManager, "Transaction manager must no be null");
+
+        keyValuesMap.forEach((key, keyValues) -> validateKeyValues(key, keyValues, changeSet));
 
+        List<String> keys = new ArrayList<>(keyValuesMap.keySet());
+        for (int fromIndex = 0; fromIndex < keys.size(); fromIndex += chunkSize) {
+            List<String> chunk = keys.subList(fromIndex, Math.min(fromIndex + chunkSize, keys.size()));
+            storeChunk(chunk, keyValuesMap, changeSet);
+            chunk.forEach(this::addToKeyIndex);
+        }
+    }
+
+    private void validateKeyValues(String key, KeyValues keyValues, String changeSet) {
+        Validate.notBlank(key, "Key must not be empty");
+        Validate.notNull(keyValues, "Key values for key '%s' must not be null", key);
         Set<DomainSpecificValue> domainSpecificValues = keyValues.getDomainSpecificValues();
         if (domainSpecificValues == null) {
-            transactionManager.end();
-            throw new RopertyPersistenceException(String.format("Domain specific values were null for key values with description '%s'", description));
+            throw new RopertyPersistenceException(String.format("Domain specific values were null for key values with description '%s'", keyValues.getDescription()));
         }
         if (domainSpecificValues.isEmpty()) {
-            transactionManager.end();
-            throw new RopertyPersistenceException(String.format("Domain specific values were empty for key values with description '%s'", description));
+            throw new RopertyPersistenceException(String.format("Domain specific values were empty for key values with description '%s'", keyValues.getDescription()));
+        }
+        for (DomainSpecificValue domainSpecificValue : domainSpecificValues) {
+            if (domainSpecificValue.getPatternStr() == null) {
+                throw new RopertyPersistenceException(String.format("Pattern for key '%s' must not be null", key));
+            }
+            Object value = domainSpecificValue.getValue();
+            if (domainSpecificValue.changeSetIs(nullWhenEmpty(changeSet)) && (value == null || !valueCodec.canEncode(value))) {
+                throw new RopertyPersistenceException(String.format("Cannot serialize value '%s' of key '%s'", value, key));
+            }
         }
+    }
+
+    private void storeChunk(List<String> keys, Map<String, KeyValues> keyValuesMap, String changeSet) {
+        String transformedChangeSet = emptyWhenNull(changeSet);
+        Date lastModified = new Date();
+
+        transactionManager.begin();
+        try {
+            EntityManager entityManager = transactionManager.getEntityManager();
+
+            Map<String, RopertyKey> ropertyKeys = new HashMap<>();
+            ropertyKeyDAO.loadRopertyKeys(entityManager, keys).forEach(ropertyKey -> ropertyKeys.put(ropertyKey.getId(), ropertyKey));
+
+            Map<String, Map<String, RopertyValue>> ropertyValuesByPattern = new HashMap<>();
+            if (!ropertyKeys.isEmpty()) {
+                for (RopertyValue ropertyValue : ropertyValueDAO.loadRopertyValues(entityManager, ropertyKeys.keySet())) {
+                    if (Objects.equals(ropertyValue.getChangeSet(), transformedChangeSet)) {
+                        ropertyValuesByPattern.computeIfAbsent(ropertyValue.getKey().getId(), key -> new HashMap<>())
+                                .put(ropertyValue.getPattern(), ropertyValue);
+                    }
+                }
+            }
 
-        storeDomainSpecificValues(ropertyKey, domainSpecificValues, changeSet);
+            for (String key : keys) {
+                KeyValues keyValues = keyValuesMap.get(key);
+                RopertyKey ropertyKey = ropertyKeys.get(key);
+                if (ropertyKey == null) {
+                    ropertyKey = new RopertyKey();
+                    ropertyKey.setId(key);
+                    ropertyKey.setDescription(keyValues.getDescription());
+                    ropertyKey.setLastModified(lastModified);
+                    transactionManager.persist(ropertyKey);
+                } else {
+                    ropertyKey.setLastModified(lastModified);
+                }
 
-        transactionManager.end();
+                Map<String, RopertyValue> existingValues = ropertyValuesByPattern.getOrDefault(key, Collections.emptyMap());
+                for (DomainSpecificValue domainSpecificValue : keyValues.getDomainSpecificValues()) {
+                    if (domainSpecificValue.changeSetIs(nullWhenEmpty(changeSet))) {
+                        String patternStr = domainSpecificValue.getPatternStr();
+                        storeRopertyValue(ropertyKey, existingValues.get(patternStr), patternStr, domainSpecificValue.getValue(), transformedChangeSet);
+                    }
+                }
+            }
+            transactionManager.end();
+        } catch (RuntimeException e) {
+            transactionManager.rollback();
+            throw e;
+        }
     }
 
-    private void storeDomainSpecificValues(RopertyKey key, Iterable<DomainSpecificValue> domainSpecificValues, String changeSet) {
+    private void touch(RopertyKey ropertyKey) {
+        ropertyKey.setLastModified(new Date());
+        transactionManager.merge(ropertyKey);
+    }
+
+    private void storeDomainSpecificValues(EntityManager entityManager, RopertyKey key, boolean newKey, Iterable<DomainSpecificValue> domainSpecificValues, String changeSet) {
         String transformedChangeSet = emptyWhenNull(changeSet);
+        Map<String, RopertyValue> existingValues;
+        if (newKey) {
+            existingValues = Collections.emptyMap();
+        } else {
+            existingValues = indexByPattern(ropertyValueDAO.loadRopertyValues(entityManager, key.getId()), transformedChangeSet);
+        }
         for (DomainSpecificValue domainSpecificValue : domainSpecificValues) {
             Object rawValue = domainSpecificValue.getValue();
             String patternStr = domainSpecificValue.getPatternStr();
             if (patternStr == null) {
-                transactionManager.end();
                 throw new RopertyPersistenceException(String.format("Pattern for key '%s' must not be null", key.getId()));
             }
             if (domainSpecificValue.changeSetIs(nullWhenEmpty(changeSet))) {
-                storeRopertyValue(key, patternStr, rawValue, transformedChangeSet);
+                storeRopertyValue(key, existingValues.get(patternStr), patternStr, rawValue, transformedChangeSet);
             }
         }
     }
 
-    private void storeRopertyValue(RopertyKey ropertyKey, String pattern, Object value, String changeSet) {
-        RopertyValue ropertyValue = ropertyValueDAO.loadRopertyValue(ropertyKey, pattern, changeSet);
+    private void storeRopertyValue(RopertyKey ropertyKey, RopertyValue ropertyValue, String pattern, Object value, String changeSet) {
         if (ropertyValue == null) {
             RopertyValue newRopertyValue = createRopertyValue(ropertyKey, changeSet, value, pattern);
             transactionManager.persist(newRopertyValue);
         } else {
-            boolean merge = mergeRopertyValue(ropertyValue, changeSet, value);
-            if (merge) {
-                transactionManager.merge(ropertyValue);
+            updateRopertyValue(ropertyValue, changeSet, value);
+        }
+    }
+
+    private static Map<String, RopertyValue> indexByPattern(Iterable<RopertyValue> ropertyValues, String changeSet) {
+        Map<String, RopertyValue> ropertyValuesByPattern = new HashMap<>();
+        for (RopertyValue ropertyValue : ropertyValues) {
+            if (Objects.equals(ropertyValue.getChangeSet(), changeSet)) {
+                ropertyValuesByPattern.put(ropertyValue.getPattern(), ropertyValue);
             }
         }
+        return ropertyValuesByPattern;
     }
 
-    private static boolean mergeRopertyValue(RopertyValue original, String newChangeSet, Object newValue) {
-        boolean merge = false;
+    private void updateRopertyValue(RopertyValue original, String newChangeSet, Object newValue) {
         if (!Objects.equals(original.getChangeSet(), newChangeSet)) {
             original.setChangeSet(newChangeSet);
-            merge = true;
-        }
-        if (!Objects.equals(original.getValue(), newValue)) {
-            if (newValue == null) {
-                original.setValue(null);
-                merge = true;
-            } else if (Serializable.class.isAssignableFrom(newValue.getClass())) {
-                Serializable value = (Serializable) newValue;
-                original.setValue(value);
-                merge = true;
+        }
+        if (!Objects.equals(original.getValue(valueCodec), newValue)) {
+            if (newValue == null || valueCodec.canEncode(newValue)) {
+                original.setValue(newValue, valueCodec);
             } else {
                 throw new RopertyPersistenceException(String.format("Cannot serialize value '%s'", newValue));
             }
         }
-        return merge;
     }
 
-    private static RopertyValue createRopertyValue(RopertyKey key, String changeSet, Object value, String pattern) {
+    private RopertyValue createRopertyValue(RopertyKey key, String changeSet, Object value, String pattern) {
         RopertyValue newRopertyValue = new RopertyValue();
         newRopertyValue.setKey(key);
-        if (value != null && Serializable.class.isAssignableFrom(value.getClass())) {
-            Serializable serializableValue = (Serializable) value;
-            newRopertyValue.setValue(serializableValue);
+        if (value != null && valueCodec.canEncode(value)) {
+            newRopertyValue.setValue(value, valueCodec);
         } else {
             throw new RopertyPersistenceException(String.format("Cannot serialize value '%s'", value));
         }
@@ -201,39 +630,61 @@ public class JpaPersistence implements Persistence {
 
     @Override
     public void remove(String key, KeyValues keyValues, String changeSet) {
-        Validate.notBlank(key, "Key must not be empty");
+        long startTime = metrics.start();
+        try {
+            removeKey(key, keyValues, changeSet);
+            metrics.succeeded(Operation.REMOVE, startTime);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.REMOVE, startTime);
+            throw e;
+        }
+    }
 
-        transactionManager.begin();
+    void removeKey(String key, KeyValues keyValues, String changeSet) {
+        Validate.notBlank(key, "Key must not be empty");
 
-        RopertyKey ropertyKey = ropertyKeyDAO.loadRopertyKey(key);
-        if (ropertyKey == null) {
-            transactionManager.end();
+        if (bulkRemoval) {
+            removeInBulk(key, keyValues, changeSet);
             return;
         }
 
-        List<RopertyValue> ropertyValues = new LinkedList<>(ropertyValueDAO.loadRopertyValues(ropertyKey));
-        if (ropertyValues.isEmpty()) {
-            transactionManager.end();
-            throw new RopertyPersistenceException(String.format("Could not find any values for key '%s'. This is an inconsistency that should not happen.", ropertyKey.getId()));
-        }
+        boolean keyRemoved = true;
+        transactionManager.begin();
+        try {
+            RopertyKey ropertyKey = ropertyKeyDAO.loadRopertyKey(key);
+            if (ropertyKey == null) {
+                transactionManager.end();
+                return;
+            }
 
-        if (keyValues == null) {
-            for (RopertyValue value : ropertyValues) {
-                transactionManager.remove(value);
+            List<RopertyValue> ropertyValues = new LinkedList<>(ropertyValueDAO.loadRopertyValues(ropertyKey));
+            if (ropertyValues.isEmpty()) {
+                throw new RopertyPersistenceException(String.format("Could not find any values for key '%s'. This is an inconsistency that should not happen.", ropertyKey.getId()));
             }
-            transactionManager.remove(ropertyKey);
-        } else {
-            removeKeyValues(ropertyKey, keyValues, ropertyValues);
-        }
 
-        transactionManager.end();
+            if (keyValues == null) {
+                for (RopertyValue value : ropertyValues) {
+                    transactionManager.remove(value);
+                }
+                transactionManager.remove(ropertyKey);
+            } else {
+                keyRemoved = removeKeyValues(ropertyKey, keyValues, ropertyValues);
+            }
+
+            transactionManager.end();
+        } catch (RuntimeException e) {
+            transactionManager.rollback();
+            throw e;
+        }
+        if (keyRemoved) {
+            removeFromKeyIndex(key);
+        }
     }
 
-    private void removeKeyValues(RopertyKey ropertyKey, KeyValues keyValues, List<RopertyValue> ropertyValues) {
+    private boolean removeKeyValues(RopertyKey ropertyKey, KeyValues keyValues, List<RopertyValue> ropertyValues) {
         Set<DomainSpecificValue> domainSpecificValues = keyValues.getDomainSpecificValues();
         int numDomainSpecificValues = domainSpecificValues.size();
         if (numDomainSpecificValues == 0) {
-            transactionManager.end();
             throw new RopertyPersistenceException(String.format("Key values for key '%s' must contain domain specific values", ropertyKey.getId()));
         }
 
@@ -242,7 +693,7 @@ public class JpaPersistence implements Persistence {
         for (DomainSpecificValue domainSpecificValue : domainSpecificValues) {
             for (Iterator<RopertyValue> itRopertyValue = ropertyValues.iterator(); itRopertyValue.hasNext(); ) {
                 RopertyValue ropertyValue = itRopertyValue.next();
-                if (ropertyValue.equals(domainSpecificValue)) {
+                if (ropertyValue.equals(domainSpecificValue, valueCodec)) {
                     transactionManager.remove(ropertyValue);
                     itRopertyValue.remove();
                     numRemovedValues++;
@@ -252,62 +703,226 @@ public class JpaPersistence implements Persistence {
 
         if (numDomainSpecificValues == numRemovedValues) {
             transactionManager.remove(ropertyKey);
+            return true;
+        }
+        if (numRemovedValues > 0) {
+            touch(ropertyKey);
+        }
+        return false;
+    }
+
+    private void removeInBulk(String key, KeyValues keyValues, String changeSet) {
+        Set<String> patterns = null;
+        if (keyValues != null) {
+            Set<DomainSpecificValue> domainSpecificValues = keyValues.getDomainSpecificValues();
+            if (domainSpecificValues.isEmpty()) {
+                throw new RopertyPersistenceException(String.format("Key values for key '%s' must contain domain specific values", key));
+            }
+            patterns = new HashSet<>(domainSpecificValues.size());
+            for (DomainSpecificValue domainSpecificValue : domainSpecificValues) {
+                patterns.add(domainSpecificValue.getPatternStr());
+            }
+        }
+
+        boolean keyRemoved;
+        transactionManager.begin();
+        try {
+            EntityManager entityManager = transactionManager.getEntityManager();
+
+            // like removing a single value, values of other change sets are kept, but removing the whole key removes all of them
+            String valueChangeSet = patterns == null ? null : emptyWhenNull(changeSet);
+            int numRemovedValues = ropertyValueDAO.removeRopertyValues(entityManager, key, patterns, valueChangeSet);
+            keyRemoved = patterns == null || ropertyValueDAO.getNumberOfValues(entityManager, key) == 0;
+            if (keyRemoved) {
+                ropertyKeyDAO.removeRopertyKey(entityManager, key);
+            } else if (numRemovedValues > 0) {
+                ropertyKeyDAO.touchRopertyKey(entityManager, key, new Date());
+            }
+
+            transactionManager.end();
+        } catch (RuntimeException e) {
+            transactionManager.rollback();
+            throw e;
+        }
+        if (keyRemoved) {
+            removeFromKeyIndex(key);
         }
     }
 
     @Override
     public void remove(String key, DomainSpecificValue domainSpecificValue, String changeSet) {
+        long startTime = metrics.start();
+        try {
+            removeValue(key, domainSpecificValue, changeSet);
+            metrics.succeeded(Operation.REMOVE, startTime);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.REMOVE, startTime);
+            throw e;
+        }
+    }
+
+    void removeValue(String key, DomainSpecificValue domainSpecificValue, String changeSet) {
         Validate.notBlank(key, "Key must not be empty");
         Validate.notNull(domainSpecificValue, "Domain specific value must not be null");
 
+        long numValues;
         transactionManager.begin();
+        try {
+            RopertyKey ropertyKey = ropertyKeyDAO.loadRopertyKey(key);
+            if (ropertyKey == null) {
+                transactionManager.end();
+                return;
+            }
+
+            numValues = ropertyValueDAO.getNumberOfValues(ropertyKey);
+
+            String patternStr = domainSpecificValue.getPatternStr();
+
+            Object value = domainSpecificValue.getValue();
+            if (value == null) {
+                throw new RopertyPersistenceException(String.format("Value for key '%s' must not be null", key));
+            }
+            if (!valueCodec.canEncode(value)) {
+                throw new RopertyPersistenceException(String.format("Domain specific value '%s' for key '%s' must be encodable", value, key));
+            }
+
+            RopertyValue ropertyValue = ropertyValueDAO.loadRopertyValue(ropertyKey, patternStr, emptyWhenNull(changeSet));
+            if (ropertyValue == null) {
+                transactionManager.end();
+                return;
+            }
+
+            transactionManager.remove(ropertyValue);
+
+            if (numValues == 1) {
+                transactionManager.remove(ropertyKey);
+            } else {
+                touch(ropertyKey);
+            }
 
-        RopertyKey ropertyKey = ropertyKeyDAO.loadRopertyKey(key);
-        if (ropertyKey == null) {
             transactionManager.end();
-            return;
+        } catch (RuntimeException e) {
+            transactionManager.rollback();
+            throw e;
+        }
+        if (numValues == 1) {
+            removeFromKeyIndex(key);
         }
+    }
 
-        long numValues = ropertyValueDAO.getNumberOfValues(ropertyKey);
+    @Override
+    public List<String> findKeys(String substring) {
+        long startTime = metrics.start();
+        try {
+            List<String> keys = findKeysContaining(substring);
+            metrics.succeeded(Operation.FIND_KEYS, startTime);
+            return keys;
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.FIND_KEYS, startTime);
+            throw e;
+        }
+    }
 
-        String patternStr = domainSpecificValue.getPatternStr();
+    private List<String> findKeysContaining(String substring) {
+        if (!indexedKeySearch) {
+            return ropertyKeyDAO.findKeys(substring);
+        }
+        Validate.notNull(substring, "Substring must not be null");
+        synchronized (keyIndexLock) {
+            if (keyIndex == null) {
+                keyIndex = new KeyIndex(ropertyKeyDAO.loadRopertyKeyIds());
+            }
+            return keyIndex.find(substring);
+        }
+    }
 
-        Object value = domainSpecificValue.getValue();
-        if (value == null) {
-            transactionManager.end();
-            throw new RopertyPersistenceException(String.format("Value for key '%s' must not be null", key));
+    public List<String> findKeys(String substring, String lastKey, int maxResults) {
+        long startTime = metrics.start();
+        try {
+            List<String> keys = findKeysContaining(substring, lastKey, maxResults);
+            metrics.succeeded(Operation.FIND_KEYS, startTime);
+            return keys;
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.FIND_KEYS, startTime);
+            throw e;
         }
-        if (!Serializable.class.isAssignableFrom(value.getClass())) {
-            transactionManager.end();
-            throw new RopertyPersistenceException(String.format("Domain specific value '%s' for key '%s' must be serializable", value, key));
+    }
+
+    private List<String> findKeysContaining(String substring, String lastKey, int maxResults) {
+        if (!indexedKeySearch) {
+            return ropertyKeyDAO.findKeys(substring, lastKey, maxResults);
+        }
+        Validate.notNull(substring, "Substring must not be null");
+        Validate.isTrue(maxResults > 0, "Maximum number of results must be positive, but was %d", maxResults);
+        synchronized (keyIndexLock) {
+            if (keyIndex == null) {
+                keyIndex = new KeyIndex(ropertyKeyDAO.loadRopertyKeyIds());
+            }
+            return keyIndex.find(substring, lastKey, maxResults);
         }
+    }
 
-        RopertyValue ropertyValue = ropertyValueDAO.loadRopertyValue(ropertyKey, patternStr, emptyWhenNull(changeSet));
-        if (ropertyValue == null) {
-            transactionManager.end();
-            return;
+    public List<String> findKeysByPrefix(String prefix) {
+        long startTime = metrics.start();
+        try {
+            List<String> keys = ropertyKeyDAO.findKeysByPrefix(prefix);
+            metrics.succeeded(Operation.FIND_KEYS, startTime);
+            return keys;
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.FIND_KEYS, startTime);
+            throw e;
         }
+    }
 
-        transactionManager.remove(ropertyValue);
+    public List<String> findKeysByPrefix(String prefix, String lastKey, int maxResults) {
+        long startTime = metrics.start();
+        try {
+            List<String> keys = ropertyKeyDAO.findKeysByPrefix(prefix, lastKey, maxResults);
+            metrics.succeeded(Operation.FIND_KEYS, startTime);
+            return keys;
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.FIND_KEYS, startTime);
+            throw e;
+        }
+    }
 
-        if (numValues == 1) {
-            transactionManager.remove(ropertyKey);
+    void invalidateKeyIndex() {
+        synchronized (keyIndexLock) {
+            keyIndex = null;
         }
+    }
 
-        transactionManager.end();
+    private void addToKeyIndex(String key) {
+        synchronized (keyIndexLock) {
+            if (keyIndex != null) {
+                keyIndex.add(key);
+            }
+        }
     }
 
-    @Override
-    public List<String> findKeys(String substring) {
-        return ropertyKeyDAO.findKeys(substring);
+    private void removeFromKeyIndex(String key) {
+        synchronized (keyIndexLock) {
+            if (keyIndex != null) {
+                keyIndex.remove(key);
+            }
+        }
     }
 
     @Override
     public List<String> getAllKeys() {
-        List<RopertyKey> ropertyKeys = ropertyKeyDAO.loadAllRopertyKeys();
-        List<String> keys = new ArrayList<>(ropertyKeys.size());
-        ropertyKeys.forEach(ropertyKey -> keys.add(ropertyKey.getId()));
-        return keys;
+        return new ArrayList<>(ropertyKeyDAO.loadRopertyKeyIds());
+    }
+
+    public List<String> getKeys(String lastKey, int maxResults) {
+        return ropertyKeyDAO.loadRopertyKeyIds(lastKey, maxResults);
+    }
+
+    List<String> loadRopertyKeyIds() {
+        return ropertyKeyDAO.loadRopertyKeyIds();
+    }
+
+    int getChunkSize() {
+        return chunkSize;
     }
 
     public void setTransactionManager(TransactionManager transactionManager) {
@@ -324,4 +939,52 @@ public class JpaPersistence implements Persistence {
         Validate.notNull(ropertyValueDAO, "Roperty value DAO must no be null");
         this.ropertyValueDAO = ropertyValueDAO;
     }
+
+    public void setChunkSize(int chunkSize) {
+        Validate.isTrue(chunkSize > 0, "Chunk size must be positive, but was %d", chunkSize);
+        this.chunkSize = chunkSize;
+    }
+
+    public void setExecutorService(ExecutorService executorService) {
+        Validate.notNull(executorService, "Executor service must not be null");
+        this.executorService = executorService;
+    }
+
+    public void setIncrementalReload(boolean incrementalReload) {
+        this.incrementalReload = incrementalReload;
+    }
+
+    public void setBulkRemoval(boolean bulkRemoval) {
+        this.bulkRemoval = bulkRemoval;
+    }
+
+    public void setValueCodec(ValueCodec valueCodec) {
+        Validate.notNull(valueCodec, "Value codec must not be null");
+        this.valueCodec = valueCodec;
+    }
+
+    public void setMaximumPatternCacheSize(int maximumPatternCacheSize) {
+        patternCache = new PatternCache(maximumPatternCacheSize);
+    }
+
+    public void setIndexedKeySearch(boolean indexedKeySearch) {
+        this.indexedKeySearch = indexedKeySearch;
+        if (!indexedKeySearch) {
+            invalidateKeyIndex();
+        }
+    }
+
+    public void setMetrics(PersistenceMetrics metrics) {
+        Validate.notNull(metrics, "Metrics must not be null");
+        this.metrics = metrics;
+    }
+
+    public PersistenceMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setSnapshotFile(Path snapshotFile) {
+        Validate.notNull(snapshotFile, "Snapshot file must not be null");
+        this.snapshotFile = new SnapshotFile(snapshotFile);
+    }
 }
@@ -0,0 +1,76 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+class KeyBloomFilter {
+
+    private static final int MIN_EXPECTED_KEYS = 1024;
+
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashFunctions;
+
+    KeyBloomFilter(int expectedKeys, double falsePositiveProbability) {
+        Validate.isTrue(expectedKeys >= 0, "Expected keys must not be negative, but was %d", expectedKeys);
+        Validate.isTrue(falsePositiveProbability > 0.0 && falsePositiveProbability < 1.0,
+                "False positive probability must be between 0 and 1, but was %f", falsePositiveProbability);
+
+        int keys = Math.max(expectedKeys, MIN_EXPECTED_KEYS);
+        long optimalNumBits = (long) Math.ceil(-keys * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int numWords = (int) ((optimalNumBits + Long.SIZE - 1) / Long.SIZE);
+        bits = new AtomicLongArray(numWords);
+        numBits = (long) numWords * Long.SIZE;
+        numHashFunctions = Math.max(1, (int) Math.round((double) numBits / keys * Math.log(2)));
+    }
+
+    void add(String key) {
+        Validate.notNull(key, "Key must not be null");
+        long hash = hash(key);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashFunctions; i++) {
+            long bitIndex = index(hash1 + i * hash2);
+            int wordIndex = (int) (bitIndex >>> 6);
+            long mask = 1L << bitIndex;
+            long word = bits.get(wordIndex);
+            while ((word & mask) == 0 && !bits.compareAndSet(wordIndex, word, word | mask)) {
+                word = bits.get(wordIndex);
+            }
+        }
+    }
+
+    boolean mightContain(String key) {
+        Validate.notNull(key, "Key must not be null");
+        long hash = hash(key);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashFunctions; i++) {
+            long bitIndex = index(hash1 + i * hash2);
+            if ((bits.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long index(int combinedHash) {
+        return (combinedHash & Integer.MAX_VALUE) % numBits;
+    }
+
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+class KeyIndex {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private static final Ordinals NO_ORDINALS = new Ordinals();
+
+    private final Map<String, Integer> ordinals = new HashMap<>();
+
+    private final List<String> keys = new ArrayList<>();
+
+    private final List<String> lowerCaseKeys = new ArrayList<>();
+
+    private final Map<Long, Ordinals> trigrams = new HashMap<>();
+
+    private final List<String> sortedKeys;
+
+    private final List<String> sortedLowerCaseKeys;
+
+    private int numRemovedKeys;
+
+    KeyIndex(Collection<String> keys) {
+        Validate.notNull(keys, "Keys must not be null");
+        keys.forEach(key -> {
+            Validate.notNull(key, "Key must not be null");
+            index(key);
+        });
+        sortedKeys = new ArrayList<>(ordinals.keySet());
+        Collections.sort(sortedKeys);
+        sortedLowerCaseKeys = new ArrayList<>(sortedKeys.size());
+        for (String key : sortedKeys) {
+            sortedLowerCaseKeys.add(key.toLowerCase(Locale.ROOT));
+        }
+    }
+
+    void add(String key) {
+        Validate.notNull(key, "Key must not be null");
+        if (index(key)) {
+            int position = -Collections.binarySearch(sortedKeys, key) - 1;
+            sortedKeys.add(position, key);
+            sortedLowerCaseKeys.add(position, lowerCaseKeys.get(ordinals.get(key)));
+        }
+    }
+
+    private boolean index(String key) {
+        if (ordinals.containsKey(key)) {
+            return false;
+        }
+        int ordinal = keys.size();
+        String lowerCaseKey = key.toLowerCase(Locale.ROOT);
+        ordinals.put(key, ordinal);
+        keys.add(key);
+        lowerCaseKeys.add(lowerCaseKey);
+        for (int i = 0; i + GRAM_LENGTH <= lowerCaseKey.length(); i++) {
+            trigrams.computeIfAbsent(trigram(lowerCaseKey, i), trigram -> new Ordinals()).add(ordinal);
+        }
+        return true;
+    }
+
+    void remove(String key) {
+        Validate.notNull(key, "Key must not be null");
+        Integer ordinal = ordinals.remove(key);
+        if (ordinal == null) {
+            return;
+        }
+        keys.set(ordinal, null);
+        lowerCaseKeys.set(ordinal, null);
+        int position = Collections.binarySearch(sortedKeys, key);
+        sortedKeys.remove(position);
+        sortedLowerCaseKeys.remove(position);
+        numRemovedKeys++;
+        if (numRemovedKeys > ordinals.size()) {
+            rebuild();
+        }
+    }
+
+    List<String> find(String substring) {
+        Validate.notNull(substring, "Substring must not be null");
+        String lowerCaseSubstring = substring.toLowerCase(Locale.ROOT);
+        List<String> result = new ArrayList<>();
+        if (lowerCaseSubstring.length() < GRAM_LENGTH) {
+            for (int ordinal = 0; ordinal < keys.size(); ordinal++) {
+                collect(result, ordinal, lowerCaseSubstring);
+            }
+        } else {
+            Ordinals candidates = rarestTrigramOrdinals(lowerCaseSubstring);
+            for (int i = 0; i < candidates.size; i++) {
+                collect(result, candidates.values[i], lowerCaseSubstring);
+            }
+        }
+        Collections.sort(result);
+        return Collections.unmodifiableList(result);
+    }
+
+    List<String> find(String substring, String lastKey, int maxResults) {
+        Validate.notNull(substring, "Substring must not be null");
+        Validate.isTrue(maxResults > 0, "Maximum number of results must be positive, but was %d", maxResults);
+        String lowerCaseSubstring = substring.toLowerCase(Locale.ROOT);
+        if (lowerCaseSubstring.length() >= GRAM_LENGTH && rarestTrigramOrdinals(lowerCaseSubstring).size == 0) {
+            return Collections.emptyList();
+        }
+        int position = 0;
+        if (lastKey != null) {
+            int index = Collections.binarySearch(sortedKeys, lastKey);
+            position = index < 0 ? -index - 1 : index + 1;
+        }
+        List<String> result = new ArrayList<>();
+        for (; position < sortedKeys.size() && result.size() < maxResults; position++) {
+            if (sortedLowerCaseKeys.get(position).contains(lowerCaseSubstring)) {
+                result.add(sortedKeys.get(position));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    int size() {
+        return ordinals.size();
+    }
+
+    private Ordinals rarestTrigramOrdinals(String lowerCaseSubstring) {
+        Ordinals rarest = null;
+        for (int i = 0; i + GRAM_LENGTH <= lowerCaseSubstring.length(); i++) {
+            Ordinals candidates = trigrams.get(trigram(lowerCaseSubstring, i));
+            if (candidates == null) {
+                return NO_ORDINALS;
+            }
+            if (rarest == null || candidates.size < rarest.size) {
+                rarest = candidates;
+            }
+        }
+        return rarest;
+    }
+
+    private void collect(List<String> result, int ordinal, String lowerCaseSubstring) {
+        String lowerCaseKey = lowerCaseKeys.get(ordinal);
+        if (lowerCaseKey != null && lowerCaseKey.contains(lowerCaseSubstring)) {
+            result.add(keys.get(ordinal));
+        }
+    }
+
+    private void rebuild() {
+        List<String> remainingKeys = new ArrayList<>(ordinals.size());
+        for (String key : keys) {
+            if (key != null) {
+                remainingKeys.add(key);
+            }
+        }
+        ordinals.clear();
+        keys.clear();
+        lowerCaseKeys.clear();
+        trigrams.clear();
+        numRemovedKeys = 0;
+        remainingKeys.forEach(this::index);
+    }
+
+    private static long trigram(String string, int index) {
+        return ((long) string.charAt(index) << 32) | ((long) string.charAt(index + 1) << 16) | string.charAt(index + 2);
+    }
+
+    private static class Ordinals {
+
+        private int[] values = new int[1];
+
+        private int size;
+
+        private void add(int ordinal) {
+            if (size > 0 && values[size - 1] == ordinal) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = ordinal;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.KeyValues;
+import org.apache.commons.lang3.Validate;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+class KeyValuesCache {
+
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private static final int NUM_SEGMENTS = 64;
+
+    private static final long DEFAULT_NEGATIVE_ENTRY_LIFETIME = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<String, Entry> probationEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Entry> protectedEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // loads of keys in other segments may still be cached while a key is written
+    private final long[] generations = new long[NUM_SEGMENTS];
+
+    private final LongSupplier clock;
+
+    private long maximumWeight;
+    private long maximumProtectedWeight;
+    private long negativeEntryLifetime = DEFAULT_NEGATIVE_ENTRY_LIFETIME;
+
+    private long probationWeight;
+    private long protectedWeight;
+    private long evictionCount;
+
+    KeyValuesCache(long maximumWeight) {
+        this(maximumWeight, System::nanoTime);
+    }
+
+    KeyValuesCache(long maximumWeight, LongSupplier clock) {
+        Validate.notNull(clock, "Clock must not be null");
+        this.clock = clock;
+        setMaximumWeight(maximumWeight);
+    }
+
+    synchronized Entry get(String key) {
+        Entry entry = protectedEntries.get(key);
+        if (entry == null) {
+            entry = probationEntries.get(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (entry.keyValues == null && clock.getAsLong() - entry.creationTime >= negativeEntryLifetime) {
+            remove(key);
+            return null;
+        }
+        if (protectedEntries.containsKey(key)) {
+            return entry;
+        }
+        probationEntries.remove(key);
+        probationWeight -= entry.weight;
+        protectedEntries.put(key, entry);
+        protectedWeight += entry.weight;
+        demoteProtectedEntries();
+        return entry;
+    }
+
+    synchronized long getGeneration(String key) {
+        return generations[segment(key)];
+    }
+
+    synchronized boolean put(String key, KeyValues keyValues, int weight, long expectedGeneration) {
+        Validate.isTrue(weight > 0, "Weight must be positive, but was %d", weight);
+        if (generations[segment(key)] != expectedGeneration || weight > maximumWeight) {
+            return false;
+        }
+        remove(key);
+        probationEntries.put(key, new Entry(keyValues, weight, clock.getAsLong()));
+        probationWeight += weight;
+        evictEntries();
+        return true;
+    }
+
+    synchronized void invalidate(String key) {
+        generations[segment(key)]++;
+        remove(key);
+    }
+
+    synchronized void invalidateAll() {
+        for (int i = 0; i < NUM_SEGMENTS; i++) {
+            generations[i]++;
+        }
+        probationEntries.clear();
+        protectedEntries.clear();
+        probationWeight = 0;
+        protectedWeight = 0;
+    }
+
+    synchronized long getWeight() {
+        return probationWeight + protectedWeight;
+    }
+
+    synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    synchronized void setMaximumWeight(long maximumWeight) {
+        Validate.isTrue(maximumWeight > 0, "Maximum weight must be positive, but was %d", maximumWeight);
+        this.maximumWeight = maximumWeight;
+        this.maximumProtectedWeight = (long) (maximumWeight * PROTECTED_RATIO);
+        demoteProtectedEntries();
+        evictEntries();
+    }
+
+    synchronized void setNegativeEntryLifetime(long negativeEntryLifetime) {
+        Validate.isTrue(negativeEntryLifetime > 0, "Negative entry lifetime must be positive, but was %d", negativeEntryLifetime);
+        this.negativeEntryLifetime = negativeEntryLifetime;
+    }
+
+    private static int segment(String key) {
+        return (key.hashCode() & Integer.MAX_VALUE) % NUM_SEGMENTS;
+    }
+
+    private void remove(String key) {
+        Entry entry = probationEntries.remove(key);
+        if (entry != null) {
+            probationWeight -= entry.weight;
+        }
+        entry = protectedEntries.remove(key);
+        if (entry != null) {
+            protectedWeight -= entry.weight;
+        }
+    }
+
+    private void demoteProtectedEntries() {
+        Iterator<Map.Entry<String, Entry>> iterator = protectedEntries.entrySet().iterator();
+        while (protectedWeight > maximumProtectedWeight && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            iterator.remove();
+            protectedWeight -= eldest.getValue().weight;
+            probationEntries.put(eldest.getKey(), eldest.getValue());
+            probationWeight += eldest.getValue().weight;
+        }
+    }
+
+    private void evictEntries() {
+        evictEntries(probationEntries.values().iterator(), true);
+        evictEntries(protectedEntries.values().iterator(), false);
+    }
+
+    private void evictEntries(Iterator<Entry> iterator, boolean probation) {
+        while (probationWeight + protectedWeight > maximumWeight && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            if (probation) {
+                probationWeight -= eldest.weight;
+            } else {
+                protectedWeight -= eldest.weight;
+            }
+            evictionCount++;
+        }
+    }
+
+    static class Entry {
+        private final KeyValues keyValues;
+        private final int weight;
+        private final long creationTime;
+
+        private Entry(KeyValues keyValues, int weight, long creationTime) {
+            this.keyValues = keyValues;
+            this.weight = weight;
+            this.creationTime = creationTime;
+        }
+
+        KeyValues getKeyValues() {
+            return keyValues;
+        }
+    }
+
+}
@@ -1,22 +1,275 @@
 package com.parship.roperty.persistence.jpa;
 
+import com.parship.roperty.DomainSpecificValue;
 import com.parship.roperty.DomainSpecificValueFactory;
 import com.parship.roperty.KeyValues;
 import com.parship.roperty.KeyValuesFactory;
+import org.apache.commons.lang3.Validate;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 public class LazyJpaPersistence extends JpaPersistence {
 
+    private static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.01;
+
+    private static final double EXPECTED_KEYS_HEADROOM = 1.25;
+
+    private static final long DEFAULT_MAXIMUM_KEY_FILTER_AGE = TimeUnit.MINUTES.toNanos(1);
+
+    private boolean missingKeyFilter;
+
+    private double falsePositiveProbability = DEFAULT_FALSE_POSITIVE_PROBABILITY;
+
+    private long maximumKeyFilterAge = DEFAULT_MAXIMUM_KEY_FILTER_AGE;
+
+    private volatile KeyBloomFilter keyFilter;
+
+    private volatile long keyFilterBuildTime;
+
+    private volatile Queue<String> keysStoredDuringRebuild;
+
+    private Executor warmUpExecutor;
+
+    private volatile ConcurrentMap<String, CompletableFuture<KeyValues>> warmedUpKeyValues;
+
+    private volatile CompletableFuture<Void> warmUp;
+
+    @Override
+    KeyValues loadKey(String key, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        KeyBloomFilter currentKeyFilter = keyFilter;
+        if (currentKeyFilter != null && key != null && !currentKeyFilter.mightContain(key)) {
+            // keys created by other nodes are only known to a filter built after them
+            if (System.nanoTime() - keyFilterBuildTime < maximumKeyFilterAge) {
+                return null;
+            }
+            currentKeyFilter = rebuildStaleKeyFilter(currentKeyFilter);
+            if (currentKeyFilter != null && !currentKeyFilter.mightContain(key)) {
+                return null;
+            }
+        }
+        ConcurrentMap<String, CompletableFuture<KeyValues>> currentWarmedUpKeyValues = warmedUpKeyValues;
+        if (currentWarmedUpKeyValues == null || key == null) {
+            return super.loadKey(key, keyValuesFactory, domainSpecificValueFactory);
+        }
+        return loadCoalesced(currentWarmedUpKeyValues, key, keyValuesFactory, domainSpecificValueFactory);
+    }
+
     @Override
-    public Map<String, KeyValues> loadAll(KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+    Map<String, KeyValues> loadAllKeys(KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        invalidateKeyIndex();
+        if (missingKeyFilter) {
+            rebuildKeyFilter();
+        }
+        if (warmUpExecutor != null) {
+            startWarmUp(keyValuesFactory, domainSpecificValueFactory);
+        }
         return Collections.emptyMap();
     }
 
     @Override
-    public Map<String, KeyValues> reload(Map<String, KeyValues> keyValuesMap, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+    Map<String, KeyValues> reloadKeys(Map<String, KeyValues> keyValuesMap, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        invalidateKeyIndex();
+        if (missingKeyFilter) {
+            rebuildKeyFilter();
+        }
+        if (warmUpExecutor != null) {
+            startWarmUp(keyValuesFactory, domainSpecificValueFactory);
+        }
         return Collections.emptyMap();
     }
 
+    @Override
+    void storeKey(String key, KeyValues keyValues, String changeSet) {
+        try {
+            super.storeKey(key, keyValues, changeSet);
+        } finally {
+            invalidateWarmedUpKeyValues(key);
+        }
+        addToKeyFilter(key);
+    }
+
+    @Override
+    boolean storeKeyIfUnchanged(String key, KeyValues keyValues, String changeSet, Long expectedVersion) {
+        boolean stored;
+        try {
+            stored = super.storeKeyIfUnchanged(key, keyValues, changeSet, expectedVersion);
+        } finally {
+            invalidateWarmedUpKeyValues(key);
+        }
+        if (stored) {
+            addToKeyFilter(key);
+        }
+        return stored;
+    }
+
+    @Override
+    void storeAllKeys(Map<String, KeyValues> keyValuesMap, String changeSet) {
+        try {
+            super.storeAllKeys(keyValuesMap, changeSet);
+        } finally {
+            keyValuesMap.keySet().forEach(this::invalidateWarmedUpKeyValues);
+        }
+        keyValuesMap.keySet().forEach(this::addToKeyFilter);
+    }
+
+    @Override
+    void removeKey(String key, KeyValues keyValues, String changeSet) {
+        try {
+            super.removeKey(key, keyValues, changeSet);
+        } finally {
+            invalidateWarmedUpKeyValues(key);
+        }
+    }
+
+    @Override
+    void removeValue(String key, DomainSpecificValue domainSpecificValue, String changeSet) {
+        try {
+            super.removeValue(key, domainSpecificValue, changeSet);
+        } finally {
+            invalidateWarmedUpKeyValues(key);
+        }
+    }
+
+    private KeyValues loadCoalesced(ConcurrentMap<String, CompletableFuture<KeyValues>> currentWarmedUpKeyValues, String key, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        CompletableFuture<KeyValues> loading = new CompletableFuture<>();
+        CompletableFuture<KeyValues> inFlight = currentWarmedUpKeyValues.putIfAbsent(key, loading);
+        if (inFlight == null) {
+            try {
+                loading.complete(super.loadKey(key, keyValuesFactory, domainSpecificValueFactory));
+            } catch (RuntimeException e) {
+                loading.completeExceptionally(e);
+                throw e;
+            } finally {
+                currentWarmedUpKeyValues.remove(key, loading);
+            }
+            return loading.join();
+        }
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            return super.loadKey(key, keyValuesFactory, domainSpecificValueFactory);
+        } finally {
+            currentWarmedUpKeyValues.remove(key, inFlight);
+        }
+    }
+
+    private synchronized void startWarmUp(KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        ConcurrentMap<String, CompletableFuture<KeyValues>> startedWarmedUpKeyValues = new ConcurrentHashMap<>();
+        warmedUpKeyValues = startedWarmedUpKeyValues;
+        warmUp = CompletableFuture.runAsync(() -> warmUp(startedWarmedUpKeyValues, keyValuesFactory, domainSpecificValueFactory), warmUpExecutor);
+    }
+
+    private void warmUp(ConcurrentMap<String, CompletableFuture<KeyValues>> startedWarmedUpKeyValues, KeyValuesFactory keyValuesFactory, DomainSpecificValueFactory domainSpecificValueFactory) {
+        List<String> keys = loadRopertyKeyIds();
+        int chunkSize = getChunkSize();
+        for (int fromIndex = 0; fromIndex < keys.size() && warmedUpKeyValues == startedWarmedUpKeyValues; fromIndex += chunkSize) {
+            Map<String, CompletableFuture<KeyValues>> chunk = new HashMap<>();
+            for (String key : keys.subList(fromIndex, Math.min(fromIndex + chunkSize, keys.size()))) {
+                CompletableFuture<KeyValues> loading = new CompletableFuture<>();
+                if (startedWarmedUpKeyValues.putIfAbsent(key, loading) == null) {
+                    chunk.put(key, loading);
+                }
+            }
+            if (chunk.isEmpty()) {
+                continue;
+            }
+            try {
+                Map<String, KeyValues> keyValuesMap = loadKeyValues(chunk.keySet(), keyValuesFactory, domainSpecificValueFactory);
+                chunk.forEach((key, loading) -> loading.complete(keyValuesMap.get(key)));
+            } catch (RuntimeException e) {
+                chunk.forEach((key, loading) -> {
+                    startedWarmedUpKeyValues.remove(key, loading);
+                    loading.completeExceptionally(e);
+                });
+                throw e;
+            }
+        }
+    }
+
+    private void invalidateWarmedUpKeyValues(String key) {
+        ConcurrentMap<String, CompletableFuture<KeyValues>> currentWarmedUpKeyValues = warmedUpKeyValues;
+        if (currentWarmedUpKeyValues != null && key != null) {
+            currentWarmedUpKeyValues.remove(key);
+        }
+    }
+
+    CompletableFuture<Void> getWarmUp() {
+        return warmUp;
+    }
+
+    private synchronized KeyBloomFilter rebuildStaleKeyFilter(KeyBloomFilter staleKeyFilter) {
+        if (keyFilter == staleKeyFilter) {
+            rebuildKeyFilter();
+        }
+        return keyFilter;
+    }
+
+    private synchronized void rebuildKeyFilter() {
+        Queue<String> storedKeys = new ConcurrentLinkedQueue<>();
+        keysStoredDuringRebuild = storedKeys;
+        long buildTime = System.nanoTime();
+        List<String> keys = loadRopertyKeyIds();
+        KeyBloomFilter rebuiltKeyFilter = new KeyBloomFilter((int) (keys.size() * EXPECTED_KEYS_HEADROOM), falsePositiveProbability);
+        keys.forEach(rebuiltKeyFilter::add);
+        keyFilterBuildTime = buildTime;
+        keyFilter = rebuiltKeyFilter;
+        for (String storedKey = storedKeys.poll(); storedKey != null; storedKey = storedKeys.poll()) {
+            rebuiltKeyFilter.add(storedKey);
+        }
+        keysStoredDuringRebuild = null;
+    }
+
+    private void addToKeyFilter(String key) {
+        Queue<String> storedKeys = keysStoredDuringRebuild;
+        if (storedKeys != null) {
+            storedKeys.add(key);
+        }
+        KeyBloomFilter currentKeyFilter = keyFilter;
+        if (currentKeyFilter != null) {
+            currentKeyFilter.add(key);
+        }
+    }
+
+    public void setMissingKeyFilter(boolean missingKeyFilter) {
+        this.missingKeyFilter = missingKeyFilter;
+        if (!missingKeyFilter) {
+            keyFilter = null;
+        }
+    }
+
+    public void setMaximumKeyFilterAge(long maximumKeyFilterAge, TimeUnit timeUnit) {
+        Validate.isTrue(maximumKeyFilterAge > 0, "Maximum key filter age must be positive, but was %d", maximumKeyFilterAge);
+        Validate.notNull(timeUnit, "Time unit must not be null");
+        this.maximumKeyFilterAge = timeUnit.toNanos(maximumKeyFilterAge);
+    }
+
+    public void setWarmUpExecutor(Executor warmUpExecutor) {
+        this.warmUpExecutor = warmUpExecutor;
+        if (warmUpExecutor == null) {
+            warmedUpKeyValues = null;
+        }
+    }
+
+    public boolean isWarmedUp() {
+        CompletableFuture<Void> currentWarmUp = warmUp;
+        return currentWarmUp != null && currentWarmUp.isDone() && !currentWarmUp.isCompletedExceptionally();
+    }
+
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        Validate.isTrue(falsePositiveProbability > 0.0 && falsePositiveProbability < 1.0,
+                "False positive probability must be between 0 and 1, but was %f", falsePositiveProbability);
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
 }
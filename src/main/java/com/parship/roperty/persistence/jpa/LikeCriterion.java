@@ -1,6 +1,9 @@
 package com.parship.roperty.persistence.jpa;
 
 class LikeCriterion {
+
+    static final char ESCAPE_CHARACTER = '\\';
+
     private String attributeName;
     private String expression;
 
@@ -21,4 +24,28 @@ class LikeCriterion {
         this.expression = comparison;
         return this;
     }
+
+    LikeCriterion withPrefix(String prefix) {
+        StringBuilder expression = new StringBuilder(prefix.length() + 1);
+        appendEscaped(expression, prefix);
+        this.expression = expression.append('%').toString();
+        return this;
+    }
+
+    LikeCriterion withSubstring(String substring) {
+        StringBuilder expression = new StringBuilder(substring.length() + 2).append('%');
+        appendEscaped(expression, substring);
+        this.expression = expression.append('%').toString();
+        return this;
+    }
+
+    private static void appendEscaped(StringBuilder expression, String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            char character = literal.charAt(i);
+            if (character == '%' || character == '_' || character == ESCAPE_CHARACTER) {
+                expression.append(ESCAPE_CHARACTER);
+            }
+            expression.append(character);
+        }
+    }
 }
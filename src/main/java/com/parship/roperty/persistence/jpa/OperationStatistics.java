@@ -0,0 +1,72 @@
+package com.parship.roperty.persistence.jpa;
+
+import java.beans.ConstructorProperties;
+
+public class OperationStatistics {
+
+    private final long count;
+
+    private final long errors;
+
+    private final long meanMicros;
+
+    private final long p50Micros;
+
+    private final long p90Micros;
+
+    private final long p99Micros;
+
+    private final long maxMicros;
+
+    @ConstructorProperties({"count", "errors", "meanMicros", "p50Micros", "p90Micros", "p99Micros", "maxMicros"})
+    public OperationStatistics(long count, long errors, long meanMicros, long p50Micros, long p90Micros, long p99Micros, long maxMicros) {
+        this.count = count;
+        this.errors = errors;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP90Micros() {
+        return p90Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "OperationStatistics{" +
+                "count=" + count +
+                ", errors=" + errors +
+                ", meanMicros=" + meanMicros +
+                ", p50Micros=" + p50Micros +
+                ", p90Micros=" + p90Micros +
+                ", p99Micros=" + p99Micros +
+                ", maxMicros=" + maxMicros +
+                '}';
+    }
+}
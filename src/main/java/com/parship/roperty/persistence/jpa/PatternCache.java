@@ -0,0 +1,91 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class PatternCache {
+
+    private static final String[] NO_DOMAIN_KEY_PARTS = new String[0];
+
+    private static final char SEPARATOR = '|';
+
+    private static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final Map<String, String[]> domainKeyPartsByPattern = new ConcurrentHashMap<>();
+
+    private final Map<String, String> domainKeyParts = new ConcurrentHashMap<>();
+
+    private final int maximumSize;
+
+    PatternCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    PatternCache(int maximumSize) {
+        Validate.isTrue(maximumSize >= 0, "Maximum size must not be negative, but was %d", maximumSize);
+        this.maximumSize = maximumSize;
+    }
+
+    String[] split(String pattern) {
+        Validate.notNull(pattern, "Pattern must not be null");
+        if (pattern.isEmpty()) {
+            return NO_DOMAIN_KEY_PARTS;
+        }
+        String[] parts = domainKeyPartsByPattern.get(pattern);
+        if (parts != null) {
+            return parts;
+        }
+        parts = splitAtSeparator(pattern);
+        if (domainKeyPartsByPattern.size() < maximumSize) {
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = intern(parts[i]);
+            }
+            String[] previousParts = domainKeyPartsByPattern.putIfAbsent(pattern, parts);
+            if (previousParts != null) {
+                return previousParts;
+            }
+        }
+        return parts;
+    }
+
+    int size() {
+        return domainKeyPartsByPattern.size();
+    }
+
+    private String intern(String part) {
+        if (domainKeyParts.size() >= maximumSize) {
+            String internedPart = domainKeyParts.get(part);
+            return internedPart == null ? part : internedPart;
+        }
+        String internedPart = domainKeyParts.putIfAbsent(part, part);
+        return internedPart == null ? part : internedPart;
+    }
+
+    private static String[] splitAtSeparator(String pattern) {
+        int end = pattern.length();
+        while (end > 0 && pattern.charAt(end - 1) == SEPARATOR) {
+            end--;
+        }
+        if (end == 0) {
+            return NO_DOMAIN_KEY_PARTS;
+        }
+        int numParts = 1;
+        for (int i = 0; i < end; i++) {
+            if (pattern.charAt(i) == SEPARATOR) {
+                numParts++;
+            }
+        }
+        String[] parts = new String[numParts];
+        int start = 0;
+        for (int i = 0; i < numParts - 1; i++) {
+            int separatorIndex = pattern.indexOf(SEPARATOR, start);
+            parts[i] = pattern.substring(start, separatorIndex);
+            start = separatorIndex + 1;
+        }
+        parts[numParts - 1] = pattern.substring(start, end);
+        return parts;
+    }
+
+}
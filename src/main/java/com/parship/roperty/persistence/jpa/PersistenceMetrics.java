@@ -0,0 +1,188 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.apache.commons.lang3.Validate;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class PersistenceMetrics implements PersistenceMetricsMXBean {
+
+    enum Operation {
+        LOAD("load"),
+        LOAD_ALL("loadAll"),
+        RELOAD("reload"),
+        STORE("store"),
+        REMOVE("remove"),
+        FIND_KEYS("findKeys");
+
+        private final String attributeName;
+
+        Operation(String attributeName) {
+            this.attributeName = attributeName;
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private static final String DOMAIN = "com.parship.roperty.persistence.jpa";
+
+    private static final int NUM_BUCKETS = 32;
+
+    private static final int COUNT = 0;
+
+    private static final int ERRORS = 1;
+
+    private static final int TOTAL_NANOS = 2;
+
+    private static final int MAX_NANOS = 3;
+
+    private static final int FIRST_BUCKET = 4;
+
+    private static final int STRIDE = FIRST_BUCKET + NUM_BUCKETS;
+
+    private final AtomicLongArray samples = new AtomicLongArray(OPERATIONS.length * STRIDE);
+
+    private final AtomicLong rowsRead = new AtomicLong();
+
+    private final AtomicLong entityManagersOpened = new AtomicLong();
+
+    private ObjectName objectName;
+
+    long start() {
+        return System.nanoTime();
+    }
+
+    void succeeded(Operation operation, long startTime) {
+        record(operation.ordinal() * STRIDE, System.nanoTime() - startTime);
+    }
+
+    void failed(Operation operation, long startTime) {
+        int offset = operation.ordinal() * STRIDE;
+        samples.incrementAndGet(offset + ERRORS);
+        record(offset, System.nanoTime() - startTime);
+    }
+
+    void rowsRead(int numRows) {
+        rowsRead.addAndGet(numRows);
+    }
+
+    void entityManagerOpened() {
+        entityManagersOpened.incrementAndGet();
+    }
+
+    private void record(int offset, long nanos) {
+        samples.incrementAndGet(offset + COUNT);
+        samples.addAndGet(offset + TOTAL_NANOS, nanos);
+        samples.incrementAndGet(offset + FIRST_BUCKET + bucket(nanos));
+        long maxNanos = samples.get(offset + MAX_NANOS);
+        while (nanos > maxNanos && !samples.compareAndSet(offset + MAX_NANOS, maxNanos, nanos)) {
+            maxNanos = samples.get(offset + MAX_NANOS);
+        }
+    }
+
+    private static int bucket(long nanos) {
+        long micros = nanos / 1000L;
+        return Math.min(Long.SIZE - Long.numberOfLeadingZeros(micros), NUM_BUCKETS - 1);
+    }
+
+    @Override
+    public Map<String, OperationStatistics> getOperations() {
+        Map<String, OperationStatistics> operations = new LinkedHashMap<>(OPERATIONS.length * 2);
+        for (Operation operation : OPERATIONS) {
+            operations.put(operation.attributeName, getStatistics(operation));
+        }
+        return operations;
+    }
+
+    OperationStatistics getStatistics(Operation operation) {
+        int offset = operation.ordinal() * STRIDE;
+        long[] buckets = new long[NUM_BUCKETS];
+        long numSamples = 0L;
+        for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+            buckets[bucket] = samples.get(offset + FIRST_BUCKET + bucket);
+            numSamples += buckets[bucket];
+        }
+        long count = samples.get(offset + COUNT);
+        long maxMicros = samples.get(offset + MAX_NANOS) / 1000L;
+        return new OperationStatistics(
+                count,
+                samples.get(offset + ERRORS),
+                count == 0L ? 0L : samples.get(offset + TOTAL_NANOS) / count / 1000L,
+                percentileMicros(buckets, numSamples, 0.5, maxMicros),
+                percentileMicros(buckets, numSamples, 0.9, maxMicros),
+                percentileMicros(buckets, numSamples, 0.99, maxMicros),
+                maxMicros);
+    }
+
+    private static long percentileMicros(long[] buckets, long numSamples, double percentile, long maxMicros) {
+        if (numSamples == 0L) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(numSamples * percentile);
+        long numRankedSamples = 0L;
+        for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+            numRankedSamples += buckets[bucket];
+            if (numRankedSamples >= rank) {
+                return Math.min(1L << bucket, maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead.get();
+    }
+
+    @Override
+    public long getEntityManagersOpened() {
+        return entityManagersOpened.get();
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < samples.length(); i++) {
+            samples.set(i, 0L);
+        }
+        rowsRead.set(0L);
+        entityManagersOpened.set(0L);
+    }
+
+    public synchronized void register(String name) {
+        Validate.notBlank(name, "Name must not be blank");
+        unregister();
+        try {
+            ObjectName registeredName = new ObjectName(DOMAIN + ":type=PersistenceMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, registeredName);
+            objectName = registeredName;
+        } catch (JMException e) {
+            throw new RopertyPersistenceException(String.format("Could not register persistence metrics as '%s'", name), e);
+        }
+    }
+
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new RopertyPersistenceException(String.format("Could not unregister persistence metrics '%s'", objectName), e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    synchronized ObjectName getObjectName() {
+        return objectName;
+    }
+}
@@ -0,0 +1,14 @@
+package com.parship.roperty.persistence.jpa;
+
+import java.util.Map;
+
+public interface PersistenceMetricsMXBean {
+
+    Map<String, OperationStatistics> getOperations();
+
+    long getRowsRead();
+
+    long getEntityManagersOpened();
+
+    void reset();
+}
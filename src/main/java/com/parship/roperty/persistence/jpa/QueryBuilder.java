@@ -1,64 +1,573 @@
 package com.parship.roperty.persistence.jpa;
 
+import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.Validate;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Selection;
 import javax.persistence.criteria.Root;
 import javax.persistence.metamodel.EntityType;
 import javax.persistence.metamodel.Metamodel;
 import javax.persistence.metamodel.SingularAttribute;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 public class QueryBuilder<X> {
 
+    private static final String PARAMETER_PREFIX = "p";
+
+    private static final String READ_ONLY_HINT = "org.hibernate.readOnly";
+
     private Class<X> resultClass;
 
-    private EntityManager entityManager;
+    private final ThreadLocal<EntityManager> entityManagers = new ThreadLocal<>();
+
+    // names are registered on the factory, which may be shared by several builders or replaced
+    private final Map<EntityManagerFactory, Set<String>> namedQueries = Collections.synchronizedMap(new WeakHashMap<>());
 
     TypedQuery<X> equality(EqualsCriterion<?>... equalsCriteria) {
+        EntityManager entityManager = entityManagers.get();
         Validate.notNull(entityManager, "Entity manager must not be null");
         Validate.notNull(resultClass, "Result class must not be null");
         Validate.notEmpty(equalsCriteria, "At least one equals criterion should be given");
 
-        for (EqualsCriterion<?> equalsCriterion : equalsCriteria) {
-            Validate.notEmpty(equalsCriterion.getAttributeName(), "Attribute name of equals criterion must no be blank");
+        int numRestrictions = equalsCriteria.length;
+        String[] attributeNames = new String[numRestrictions];
+        for (int i = 0; i < numRestrictions; i++) {
+            EqualsCriterion<?> equalsCriterion = equalsCriteria[i];
+            attributeNames[i] = equalsCriterion.getAttributeName();
+            Validate.notEmpty(attributeNames[i], "Attribute name of equals criterion must no be blank");
             Validate.notNull(equalsCriterion.getComparison(), "A comparison value must exist. It is currently null");
         }
 
-        Metamodel metamodel = entityManager.getMetamodel();
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<X> query = criteriaBuilder.createQuery(resultClass);
-        EntityType<X> entityType = metamodel.entity(resultClass);
-        Root<X> root = query.from(entityType);
+        TypedQuery<X> typedQuery = namedQuery(entityManager, queryName("equality", attributeNames), resultClass, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<X> query = criteriaBuilder.createQuery(resultClass);
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
+            Predicate[] restrictions = new Predicate[numRestrictions];
+            for (int i = 0; i < numRestrictions; i++) {
+                SingularAttribute<? super X, ?> singularAttribute = entityType.getSingularAttribute(attributeNames[i]);
+                Path<?> path = root.get(singularAttribute);
+                ParameterExpression<?> parameter = criteriaBuilder.parameter(singularAttribute.getJavaType(), parameterName(i));
+                restrictions[i] = criteriaBuilder.equal(path, parameter);
+            }
+            query.where(criteriaBuilder.and(restrictions));
+            return query;
+        });
+        for (int i = 0; i < numRestrictions; i++) {
+            typedQuery.setParameter(parameterName(i), equalsCriteria[i].getComparison());
+        }
+        return typedQuery;
+    }
+
+    TypedQuery<X> all() {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+
+        return namedQuery(entityManager, queryName("all"), resultClass, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<X> query = criteriaBuilder.createQuery(resultClass);
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
+            query.select(root);
+            return query;
+        });
+    }
+
+    TypedQuery<X> allFetching(String attributeName) {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notEmpty(attributeName, "Attribute name of fetched association must not be blank");
+
+        return namedQuery(entityManager, queryName("allFetching", attributeName), resultClass, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<X> query = criteriaBuilder.createQuery(resultClass);
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
+            SingularAttribute<? super X, ?> singularAttribute = entityType.getSingularAttribute(attributeName);
+            root.fetch(attributeName);
+            query.select(root);
+            query.orderBy(criteriaBuilder.asc(root.get(singularAttribute)));
+            return query;
+        });
+    }
+
+    TypedQuery<X> inclusion(InCriterion<?> inCriterion) {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notNull(inCriterion, "In criterion must not be null");
+        String includedAttributeName = inCriterion.getAttributeName();
+        Validate.notEmpty(includedAttributeName, "Attribute name of in criterion must no be blank");
+        Validate.notEmpty(inCriterion.getValues(), "Values of in criterion must not be empty");
+
+        TypedQuery<X> typedQuery = namedQuery(entityManager, queryName("inclusion", includedAttributeName), resultClass, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<X> query = criteriaBuilder.createQuery(resultClass);
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
+            query.select(root);
+            query.where(path(root, includedAttributeName).in(collectionParameter(criteriaBuilder, parameterName(0))));
+            return query;
+        });
+        typedQuery.setParameter(parameterName(0), inCriterion.getValues());
+        return typedQuery;
+    }
+
+    TypedQuery<X> inclusionFetching(String attributeName, InCriterion<?> inCriterion) {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notEmpty(attributeName, "Attribute name of fetched association must not be blank");
+        Validate.notNull(inCriterion, "In criterion must not be null");
+        String includedAttributeName = inCriterion.getAttributeName();
+        Validate.notEmpty(includedAttributeName, "Attribute name of in criterion must no be blank");
+        Validate.notEmpty(inCriterion.getValues(), "Values of in criterion must not be empty");
+
+        TypedQuery<X> typedQuery = namedQuery(entityManager, queryName("inclusionFetching", attributeName, includedAttributeName), resultClass, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<X> query = criteriaBuilder.createQuery(resultClass);
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
+            SingularAttribute<? super X, ?> singularAttribute = entityType.getSingularAttribute(attributeName);
+            root.fetch(attributeName);
+            query.select(root);
+            query.where(path(root, includedAttributeName).in(collectionParameter(criteriaBuilder, parameterName(0))));
+            query.orderBy(criteriaBuilder.asc(root.get(singularAttribute)));
+            return query;
+        });
+        typedQuery.setParameter(parameterName(0), inCriterion.getValues());
+        return typedQuery;
+    }
+
+    TypedQuery<Tuple> projection(String orderAttributeName, InCriterion<?> inCriterion, String... attributeNames) {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notEmpty(orderAttributeName, "Attribute name of order must not be blank");
+        Validate.notEmpty(attributeNames, "At least one attribute name should be given");
+        Validate.noNullElements(attributeNames, "Attribute names must not be null");
+        String includedAttributeName = inCriterion == null ? null : inCriterion.getAttributeName();
+        if (inCriterion != null) {
+            Validate.notEmpty(includedAttributeName, "Attribute name of in criterion must no be blank");
+            Validate.notEmpty(inCriterion.getValues(), "Values of in criterion must not be empty");
+        }
+
+        String[] queryAttributeNames = ArrayUtils.addAll(new String[]{orderAttributeName}, attributeNames);
+        String queryName = inCriterion == null ? queryName("projection", queryAttributeNames) : queryName("inclusionProjection", ArrayUtils.add(queryAttributeNames, includedAttributeName));
+        TypedQuery<Tuple> typedQuery = namedQuery(entityManager, queryName, Tuple.class, () -> {
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+            Root<X> root = query.from(resultClass);
+            Selection<?>[] selections = new Selection<?>[attributeNames.length];
+            for (int i = 0; i < attributeNames.length; i++) {
+                selections[i] = path(root, attributeNames[i]);
+            }
+            query.multiselect(selections);
+            if (includedAttributeName != null) {
+                query.where(path(root, includedAttributeName).in(collectionParameter(criteriaBuilder, parameterName(0))));
+            }
+            query.orderBy(criteriaBuilder.asc(path(root, orderAttributeName)));
+            return query;
+        });
+        if (inCriterion != null) {
+            typedQuery.setParameter(parameterName(0), inCriterion.getValues());
+        }
+        typedQuery.setHint(READ_ONLY_HINT, true);
+        return typedQuery;
+    }
+
+    <Y extends Comparable<? super Y>> TypedQuery<Tuple> rangeProjection(String orderAttributeName, BetweenCriterion<Y> betweenCriterion, String... attributeNames) {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notEmpty(orderAttributeName, "Attribute name of order must not be blank");
+        Validate.notNull(betweenCriterion, "Between criterion must not be null");
+        Validate.notEmpty(betweenCriterion.getAttributeName(), "Attribute name of between criterion must no be blank");
+        Validate.notNull(betweenCriterion.getLowerBound(), "Lower bound of between criterion must not be null");
+        Validate.notNull(betweenCriterion.getUpperBound(), "Upper bound of between criterion must not be null");
+        Validate.notEmpty(attributeNames, "At least one attribute name should be given");
+        Validate.noNullElements(attributeNames, "Attribute names must not be null");
+
+        String boundedAttributeName = betweenCriterion.getAttributeName();
+        @SuppressWarnings("unchecked")
+        Class<Y> boundClass = (Class<Y>) betweenCriterion.getLowerBound().getClass();
+        String[] queryAttributeNames = ArrayUtils.add(ArrayUtils.addAll(new String[]{orderAttributeName}, attributeNames), boundedAttributeName);
+        TypedQuery<Tuple> typedQuery = namedQuery(entityManager, queryName("rangeProjection", queryAttributeNames), Tuple.class, () -> {
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+            Root<X> root = query.from(resultClass);
+            // explicit joins let the database restrict the joined table by the range, too
+            Map<String, Join<?, ?>> joins = new HashMap<>();
+            Selection<?>[] selections = new Selection<?>[attributeNames.length];
+            for (int i = 0; i < attributeNames.length; i++) {
+                selections[i] = joinedPath(root, joins, attributeNames[i]);
+            }
+            query.multiselect(selections);
+            @SuppressWarnings("unchecked")
+            Path<Y> boundedPath = (Path<Y>) joinedPath(root, joins, boundedAttributeName);
+            query.where(criteriaBuilder.between(boundedPath, criteriaBuilder.parameter(boundClass, parameterName(0)), criteriaBuilder.parameter(boundClass, parameterName(1))));
+            query.orderBy(criteriaBuilder.asc(path(root, orderAttributeName)));
+            return query;
+        });
+        typedQuery.setParameter(parameterName(0), betweenCriterion.getLowerBound());
+        typedQuery.setParameter(parameterName(1), betweenCriterion.getUpperBound());
+        typedQuery.setHint(READ_ONLY_HINT, true);
+        return typedQuery;
+    }
+
+    <Y extends Comparable<? super Y>> TypedQuery<Y> orderedAttributes(String attributeName, Class<Y> attributeClass, Y lastValue) {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notEmpty(attributeName, "Attribute name must not be blank");
+        Validate.notNull(attributeClass, "Attribute class must not be null");
+
+        String queryName = lastValue == null ? queryName("orderedAttributes", attributeName) : queryName("orderedAttributesAfter", attributeName);
+        TypedQuery<Y> typedQuery = namedQuery(entityManager, queryName, attributeClass, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Y> query = criteriaBuilder.createQuery(attributeClass);
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
+            SingularAttribute<? super X, Y> singularAttribute = entityType.getSingularAttribute(attributeName, attributeClass);
+            Path<Y> path = root.get(singularAttribute);
+            query.select(path);
+            if (lastValue != null) {
+                query.where(criteriaBuilder.greaterThan(path, criteriaBuilder.parameter(attributeClass, parameterName(0))));
+            }
+            query.orderBy(criteriaBuilder.asc(path));
+            return query;
+        });
+        if (lastValue != null) {
+            typedQuery.setParameter(parameterName(0), lastValue);
+        }
+        return typedQuery;
+    }
+
+    TypedQuery<String> orderedAttributesLike(String attributeName, LikeCriterion likeCriterion, String lastValue) {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notEmpty(attributeName, "Attribute name must not be blank");
+        Validate.notNull(likeCriterion, "Like criterion must not be null");
+        String likeAttributeName = likeCriterion.getAttributeName();
+        Validate.notEmpty(likeAttributeName, "Attribute name of like criterion must no be blank");
+        Validate.notNull(likeCriterion.getExpression(), "An expression must exist. It is currently null");
+
+        String shape = lastValue == null ? "orderedAttributesLike" : "orderedAttributesLikeAfter";
+        TypedQuery<String> typedQuery = namedQuery(entityManager, queryName(shape, attributeName, likeAttributeName), String.class, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<String> query = criteriaBuilder.createQuery(String.class);
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
+            Path<String> path = root.get(entityType.getSingularAttribute(attributeName, String.class));
+            Path<String> likePath = root.get(entityType.getSingularAttribute(likeAttributeName, String.class));
+            Predicate likeRestriction = criteriaBuilder.like(criteriaBuilder.lower(likePath), criteriaBuilder.parameter(String.class, parameterName(0)), criteriaBuilder.parameter(Character.class, parameterName(1)));
+            query.select(path);
+            if (lastValue == null) {
+                query.where(likeRestriction);
+            } else {
+                query.where(likeRestriction, criteriaBuilder.greaterThan(path, criteriaBuilder.parameter(String.class, parameterName(2))));
+            }
+            query.orderBy(criteriaBuilder.asc(path));
+            return query;
+        });
+        typedQuery.setParameter(parameterName(0), likeCriterion.getExpression().toLowerCase());
+        typedQuery.setParameter(parameterName(1), LikeCriterion.ESCAPE_CHARACTER);
+        if (lastValue != null) {
+            typedQuery.setParameter(parameterName(2), lastValue);
+        }
+        return typedQuery;
+    }
+
+    TypedQuery<String> orderedAttributesWithPrefix(String attributeName, LikeCriterion prefixCriterion, String lastValue) {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notEmpty(attributeName, "Attribute name must not be blank");
+        Validate.notNull(prefixCriterion, "Prefix criterion must not be null");
+        String prefixAttributeName = prefixCriterion.getAttributeName();
+        Validate.notEmpty(prefixAttributeName, "Attribute name of prefix criterion must no be blank");
+        Validate.notNull(prefixCriterion.getExpression(), "An expression must exist. It is currently null");
+
+        String shape = lastValue == null ? "orderedAttributesWithPrefix" : "orderedAttributesWithPrefixAfter";
+        TypedQuery<String> typedQuery = namedQuery(entityManager, queryName(shape, attributeName, prefixAttributeName), String.class, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<String> query = criteriaBuilder.createQuery(String.class);
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
+            Path<String> path = root.get(entityType.getSingularAttribute(attributeName, String.class));
+            Path<String> prefixPath = root.get(entityType.getSingularAttribute(prefixAttributeName, String.class));
+            Predicate prefixRestriction = criteriaBuilder.like(prefixPath, criteriaBuilder.parameter(String.class, parameterName(0)), criteriaBuilder.parameter(Character.class, parameterName(1)));
+            query.select(path);
+            if (lastValue == null) {
+                query.where(prefixRestriction);
+            } else {
+                query.where(prefixRestriction, criteriaBuilder.greaterThan(path, criteriaBuilder.parameter(String.class, parameterName(2))));
+            }
+            query.orderBy(criteriaBuilder.asc(path));
+            return query;
+        });
+        typedQuery.setParameter(parameterName(0), prefixCriterion.getExpression());
+        typedQuery.setParameter(parameterName(1), LikeCriterion.ESCAPE_CHARACTER);
+        if (lastValue != null) {
+            typedQuery.setParameter(parameterName(2), lastValue);
+        }
+        return typedQuery;
+    }
+
+    <Y, Z extends Comparable<? super Z>> TypedQuery<Y> attributesFrom(String attributeName, Class<Y> attributeClass, String comparedAttributeName, Z lowerBound) {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notEmpty(attributeName, "Attribute name must not be blank");
+        Validate.notNull(attributeClass, "Attribute class must not be null");
+        Validate.notEmpty(comparedAttributeName, "Compared attribute name must not be blank");
+        Validate.notNull(lowerBound, "Lower bound must not be null");
+
+        TypedQuery<Y> typedQuery = namedQuery(entityManager, queryName("attributesFrom", attributeName, comparedAttributeName), attributeClass, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Y> query = criteriaBuilder.createQuery(attributeClass);
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
+            SingularAttribute<? super X, Y> singularAttribute = entityType.getSingularAttribute(attributeName, attributeClass);
+            Path<Z> comparedPath = root.get(comparedAttributeName);
+            query.select(root.get(singularAttribute));
+            query.where(criteriaBuilder.greaterThanOrEqualTo(comparedPath, criteriaBuilder.parameter(comparedPath.getJavaType(), parameterName(0))));
+            return query;
+        });
+        typedQuery.setParameter(parameterName(0), lowerBound);
+        return typedQuery;
+    }
+
+    <Y extends Comparable<? super Y>> TypedQuery<Y> greatest(String attributeName, Class<Y> attributeClass) {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notEmpty(attributeName, "Attribute name must not be blank");
+        Validate.notNull(attributeClass, "Attribute class must not be null");
+
+        return namedQuery(entityManager, queryName("greatest", attributeName), attributeClass, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Y> query = criteriaBuilder.createQuery(attributeClass);
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
+            SingularAttribute<? super X, Y> singularAttribute = entityType.getSingularAttribute(attributeName, attributeClass);
+            query.select(criteriaBuilder.greatest(root.get(singularAttribute)));
+            return query;
+        });
+    }
+
+    <Y extends Comparable<? super Y>> TypedQuery<Tuple> summary(String summedAttributeName, String greatestAttributeName, Class<Y> greatestAttributeClass) {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notEmpty(summedAttributeName, "Summed attribute name must not be blank");
+        Validate.notEmpty(greatestAttributeName, "Greatest attribute name must not be blank");
+        Validate.notNull(greatestAttributeClass, "Greatest attribute class must not be null");
+
+        TypedQuery<Tuple> typedQuery = namedQuery(entityManager, queryName("summary", summedAttributeName, greatestAttributeName), Tuple.class, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
+            query.multiselect(
+                    criteriaBuilder.count(root),
+                    criteriaBuilder.sum(root.<Long>get(summedAttributeName)),
+                    criteriaBuilder.greatest(root.get(entityType.getSingularAttribute(greatestAttributeName, greatestAttributeClass))));
+            return query;
+        });
+        typedQuery.setHint(READ_ONLY_HINT, true);
+        return typedQuery;
+    }
+
+    Query deletion(EqualsCriterion<?> equalsCriterion, InCriterion<?> inCriterion) {
+        Validate.notNull(equalsCriterion, "Equals criterion must not be null");
+        return deletion(inCriterion, equalsCriterion);
+    }
+
+    Query deletion(InCriterion<?> inCriterion, EqualsCriterion<?>... equalsCriteria) {
+        EntityManager entityManager = entityManagers.get();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notEmpty(equalsCriteria, "At least one equals criterion should be given");
+
         int numRestrictions = equalsCriteria.length;
-        Predicate[] restrictions = new Predicate[numRestrictions];
+        String[] attributeNames = new String[inCriterion == null ? numRestrictions : numRestrictions + 1];
         for (int i = 0; i < numRestrictions; i++) {
             EqualsCriterion<?> equalsCriterion = equalsCriteria[i];
-            String attributeName = equalsCriterion.getAttributeName();
-            SingularAttribute<? super X, ?> singularAttribute = entityType.getSingularAttribute(attributeName);
-            Path<?> path = root.get(singularAttribute);
-            Predicate restriction = criteriaBuilder.equal(path, equalsCriterion.getComparison());
-            restrictions[i] = restriction;
+            Validate.notNull(equalsCriterion, "Equals criterion must not be null");
+            attributeNames[i] = equalsCriterion.getAttributeName();
+            Validate.notEmpty(attributeNames[i], "Attribute name of equals criterion must no be blank");
+            Validate.notNull(equalsCriterion.getComparison(), "A comparison value must exist. It is currently null");
+        }
+        if (inCriterion != null) {
+            attributeNames[numRestrictions] = inCriterion.getAttributeName();
+            Validate.notEmpty(attributeNames[numRestrictions], "Attribute name of in criterion must no be blank");
+            Validate.notEmpty(inCriterion.getValues(), "Values of in criterion must not be empty");
+        }
+
+        Query query = namedQuery(entityManager, queryName("deletion", attributeNames), () -> {
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaDelete<X> delete = criteriaBuilder.createCriteriaDelete(resultClass);
+            Root<X> root = delete.from(resultClass);
+            Predicate[] restrictions = new Predicate[attributeNames.length];
+            for (int i = 0; i < numRestrictions; i++) {
+                Path<?> equalPath = path(root, attributeNames[i]);
+                restrictions[i] = criteriaBuilder.equal(equalPath, criteriaBuilder.parameter(equalPath.getJavaType(), parameterName(i)));
+            }
+            if (inCriterion != null) {
+                restrictions[numRestrictions] = path(root, attributeNames[numRestrictions]).in(collectionParameter(criteriaBuilder, parameterName(numRestrictions)));
+            }
+            delete.where(restrictions);
+            return entityManager.createQuery(delete);
+        });
+        for (int i = 0; i < numRestrictions; i++) {
+            query.setParameter(parameterName(i), equalsCriteria[i].getComparison());
+        }
+        if (inCriterion != null) {
+            query.setParameter(parameterName(numRestrictions), inCriterion.getValues());
         }
-        query.where(criteriaBuilder.and(restrictions));
-        return entityManager.createQuery(query);
+        return query;
     }
 
-    TypedQuery<X> all() {
+    <Y> Query assignment(String attributeName, Class<Y> attributeClass, Y value, EqualsCriterion<?>... equalsCriteria) {
+        EntityManager entityManager = entityManagers.get();
         Validate.notNull(entityManager, "Entity manager must not be null");
         Validate.notNull(resultClass, "Result class must not be null");
+        Validate.notEmpty(attributeName, "Attribute name must not be blank");
+        Validate.notNull(attributeClass, "Attribute class must not be null");
+        Validate.notEmpty(equalsCriteria, "At least one equals criterion should be given");
+
+        int numRestrictions = equalsCriteria.length;
+        String[] attributeNames = new String[numRestrictions + 1];
+        attributeNames[0] = attributeName;
+        for (int i = 0; i < numRestrictions; i++) {
+            EqualsCriterion<?> equalsCriterion = equalsCriteria[i];
+            attributeNames[i + 1] = equalsCriterion.getAttributeName();
+            Validate.notEmpty(attributeNames[i + 1], "Attribute name of equals criterion must no be blank");
+            Validate.notNull(equalsCriterion.getComparison(), "A comparison value must exist. It is currently null");
+        }
 
-        Metamodel metamodel = entityManager.getMetamodel();
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<X> query = criteriaBuilder.createQuery(resultClass);
-        EntityType<X> entityType = metamodel.entity(resultClass);
-        Root<X> root = query.from(entityType);
-        query.select(root);
-        return entityManager.createQuery(query);
+        Query query = namedQuery(entityManager, queryName("assignment", attributeNames), () -> {
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaUpdate<X> update = criteriaBuilder.createCriteriaUpdate(resultClass);
+            EntityType<X> entityType = entityManager.getMetamodel().entity(resultClass);
+            Root<X> root = update.from(entityType);
+            update.set(root.<Y>get(attributeName), criteriaBuilder.parameter(attributeClass, parameterName(numRestrictions)));
+            for (SingularAttribute<? super X, ?> singularAttribute : entityType.getSingularAttributes()) {
+                if (singularAttribute.isVersion()) {
+                    Path<Long> versionPath = root.get(singularAttribute.getName());
+                    update.set(versionPath, criteriaBuilder.sum(versionPath, 1L));
+                }
+            }
+            Predicate[] restrictions = new Predicate[numRestrictions];
+            for (int i = 0; i < numRestrictions; i++) {
+                Path<?> path = path(root, attributeNames[i + 1]);
+                restrictions[i] = criteriaBuilder.equal(path, criteriaBuilder.parameter(path.getJavaType(), parameterName(i)));
+            }
+            update.where(restrictions);
+            return entityManager.createQuery(update);
+        });
+        for (int i = 0; i < numRestrictions; i++) {
+            query.setParameter(parameterName(i), equalsCriteria[i].getComparison());
+        }
+        query.setParameter(parameterName(numRestrictions), value);
+        return query;
+    }
+
+    private Query namedQuery(EntityManager entityManager, String queryName, Supplier<Query> querySupplier) {
+        EntityManagerFactory entityManagerFactory = entityManager.getEntityManagerFactory();
+        Set<String> registeredQueries = namedQueries(entityManagerFactory);
+        if (registeredQueries.contains(queryName)) {
+            return entityManager.createNamedQuery(queryName);
+        }
+        Query query = querySupplier.get();
+        entityManagerFactory.addNamedQuery(queryName, query);
+        registeredQueries.add(queryName);
+        return query;
+    }
+
+    private <Y> TypedQuery<Y> namedQuery(EntityManager entityManager, String queryName, Class<Y> queryClass, Supplier<CriteriaQuery<Y>> querySupplier) {
+        EntityManagerFactory entityManagerFactory = entityManager.getEntityManagerFactory();
+        Set<String> registeredQueries = namedQueries(entityManagerFactory);
+        if (registeredQueries.contains(queryName)) {
+            return entityManager.createNamedQuery(queryName, queryClass);
+        }
+        TypedQuery<Y> typedQuery = entityManager.createQuery(querySupplier.get());
+        entityManagerFactory.addNamedQuery(queryName, typedQuery);
+        registeredQueries.add(queryName);
+        return typedQuery;
+    }
+
+    private Set<String> namedQueries(EntityManagerFactory entityManagerFactory) {
+        Validate.notNull(entityManagerFactory, "Entity manager factory must not be null");
+        return namedQueries.computeIfAbsent(entityManagerFactory, key -> ConcurrentHashMap.newKeySet());
+    }
+
+    private String queryName(String shape, String... attributeNames) {
+        return resultClass.getName() + '.' + shape + '(' + String.join(",", attributeNames) + ')';
+    }
+
+    private static String parameterName(int index) {
+        return PARAMETER_PREFIX + index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ParameterExpression<Collection<?>> collectionParameter(CriteriaBuilder criteriaBuilder, String parameterName) {
+        ParameterExpression<?> parameter = criteriaBuilder.parameter(Collection.class, parameterName);
+        return (ParameterExpression<Collection<?>>) parameter;
+    }
+
+    private static Path<?> path(Root<?> root, String attributeName) {
+        String[] attributeNames = attributeName.split("\\.");
+        Path<?> path = root.get(attributeNames[0]);
+        for (int i = 1; i < attributeNames.length; i++) {
+            path = path.get(attributeNames[i]);
+        }
+        return path;
+    }
+
+    private static Path<?> joinedPath(Root<?> root, Map<String, Join<?, ?>> joins, String attributeName) {
+        int separatorIndex = attributeName.lastIndexOf('.');
+        if (separatorIndex < 0) {
+            return root.get(attributeName);
+        }
+        String joinedAttributeName = attributeName.substring(0, separatorIndex);
+        Join<?, ?> join = joins.computeIfAbsent(joinedAttributeName, name -> root.join(name));
+        return join.get(attributeName.substring(separatorIndex + 1));
     }
 
     void setResultClass(Class<X> resultClass) {
@@ -68,52 +577,69 @@ public class QueryBuilder<X> {
 
     void withEntityManager(EntityManager entityManager) {
         Validate.notNull(entityManager, "Entity manager must not be null");
-        this.entityManager = entityManager;
+        entityManagers.set(entityManager);
+    }
+
+    void withoutEntityManager(EntityManager entityManager) {
+        if (entityManagers.get() == entityManager) {
+            entityManagers.remove();
+        }
     }
 
     TypedQuery<Long> count(RopertyKey ropertyKey) {
+        EntityManager entityManager = entityManagers.get();
         Validate.notNull(entityManager, "Entity manager must not be null");
         Validate.notNull(resultClass, "Result class must not be null");
 
-        Metamodel metamodel = entityManager.getMetamodel();
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
-        EntityType<X> entityType = metamodel.entity(resultClass);
-        Root<X> root = query.from(entityType);
-
-        query.select(criteriaBuilder.count(root));
-        query.where(criteriaBuilder.equal(root.get(entityType.getSingularAttribute("key")), ropertyKey));
+        TypedQuery<Long> typedQuery = namedQuery(entityManager, queryName("count", "key"), Long.class, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
 
-        return entityManager.createQuery(query);
+            query.select(criteriaBuilder.count(root));
+            query.where(criteriaBuilder.equal(root.get(entityType.getSingularAttribute("key")), criteriaBuilder.parameter(RopertyKey.class, parameterName(0))));
+            return query;
+        });
+        typedQuery.setParameter(parameterName(0), ropertyKey);
+        return typedQuery;
     }
 
     TypedQuery<X> likeliness(LikeCriterion... criteria) {
+        EntityManager entityManager = entityManagers.get();
         Validate.notNull(entityManager, "Entity manager must not be null");
         Validate.notNull(resultClass, "Result class must not be null");
         Validate.notEmpty(criteria, "At least one like criterion should be given");
 
-        for (LikeCriterion criterion : criteria) {
-            Validate.notEmpty(criterion.getAttributeName(), "Attribute name of equals criterion must no be blank");
+        int numRestrictions = criteria.length;
+        String[] attributeNames = new String[numRestrictions];
+        for (int i = 0; i < numRestrictions; i++) {
+            LikeCriterion criterion = criteria[i];
+            attributeNames[i] = criterion.getAttributeName();
+            Validate.notEmpty(attributeNames[i], "Attribute name of equals criterion must no be blank");
             Validate.notNull(criterion.getExpression(), "An expression must exist. It is currently null");
         }
 
-        Metamodel metamodel = entityManager.getMetamodel();
-        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
-        CriteriaQuery<X> query = criteriaBuilder.createQuery(resultClass);
-        EntityType<X> entityType = metamodel.entity(resultClass);
-        Root<X> root = query.from(entityType);
-        int numRestrictions = criteria.length;
-        Predicate[] restrictions = new Predicate[numRestrictions];
+        TypedQuery<X> typedQuery = namedQuery(entityManager, queryName("likeliness", attributeNames), resultClass, () -> {
+            Metamodel metamodel = entityManager.getMetamodel();
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<X> query = criteriaBuilder.createQuery(resultClass);
+            EntityType<X> entityType = metamodel.entity(resultClass);
+            Root<X> root = query.from(entityType);
+            Predicate[] restrictions = new Predicate[numRestrictions];
+            for (int i = 0; i < numRestrictions; i++) {
+                SingularAttribute<? super X, String> singularAttribute = entityType.getSingularAttribute(attributeNames[i], String.class);
+                Path<String> path = root.get(singularAttribute);
+                ParameterExpression<String> parameter = criteriaBuilder.parameter(String.class, parameterName(i));
+                restrictions[i] = criteriaBuilder.like(criteriaBuilder.lower(path), parameter);
+            }
+            query.where(criteriaBuilder.and(restrictions));
+            return query;
+        });
         for (int i = 0; i < numRestrictions; i++) {
-            LikeCriterion criterion = criteria[i];
-            String attributeName = criterion.getAttributeName();
-            SingularAttribute<? super X, String> singularAttribute = entityType.getSingularAttribute(attributeName, String.class);
-            Path<String> path = root.get(singularAttribute);
-            String expression = criterion.getExpression();
-            Predicate restriction = criteriaBuilder.like(criteriaBuilder.lower(path), expression.toLowerCase());
-            restrictions[i] = restriction;
-        }
-        query.where(criteriaBuilder.and(restrictions));
-        return entityManager.createQuery(query);
+            typedQuery.setParameter(parameterName(i), criteria[i].getExpression().toLowerCase());
+        }
+        return typedQuery;
     }
 }
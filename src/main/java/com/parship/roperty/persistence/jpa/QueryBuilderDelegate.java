@@ -4,7 +4,11 @@ import org.apache.commons.lang3.Validate;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 
 public class QueryBuilderDelegate<T> {
 
@@ -12,6 +16,8 @@ public class QueryBuilderDelegate<T> {
 
     private QueryBuilder<T> queryBuilder;
 
+    private PersistenceMetrics metrics;
+
     public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
         Validate.notNull(entityManagerFactory, "Entity manager factory must not be null");
         this.entityManagerFactory = entityManagerFactory;
@@ -22,13 +28,47 @@ public class QueryBuilderDelegate<T> {
         this.queryBuilder = queryBuilder;
     }
 
+    public void setMetrics(PersistenceMetrics metrics) {
+        Validate.notNull(metrics, "Metrics must not be null");
+        this.metrics = metrics;
+    }
+
     EntityManager createEntityManager() {
         Validate.notNull(entityManagerFactory, "Entity manager factory must not be null");
-        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        EntityManager entityManager = releasedOnClose(entityManagerFactory.createEntityManager());
         queryBuilder.withEntityManager(entityManager);
+        if (metrics != null) {
+            metrics.entityManagerOpened();
+        }
         return entityManager;
     }
 
+    void withEntityManager(EntityManager entityManager) {
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        queryBuilder.withEntityManager(entityManager);
+    }
+
+    void withoutEntityManager(EntityManager entityManager) {
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        queryBuilder.withoutEntityManager(entityManager);
+    }
+
+    private EntityManager releasedOnClose(EntityManager entityManager) {
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        return (EntityManager) Proxy.newProxyInstance(EntityManager.class.getClassLoader(), new Class<?>[]{EntityManager.class}, (proxy, method, arguments) -> {
+            try {
+                return method.invoke(entityManager, arguments);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            } finally {
+                if ("close".equals(method.getName())) {
+                    queryBuilder.withoutEntityManager((EntityManager) proxy);
+                }
+            }
+        });
+    }
+
     TypedQuery<T> equality(EqualsCriterion<?>... equalsCriteria) {
         Validate.notEmpty(equalsCriteria, "Equals criteria must not be empty");
         return queryBuilder.equality(equalsCriteria);
@@ -39,6 +79,100 @@ public class QueryBuilderDelegate<T> {
         return queryBuilder.all();
     }
 
+    TypedQuery<T> allFetching(String attributeName) {
+        Validate.notEmpty(attributeName, "Attribute name must not be empty");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.allFetching(attributeName);
+    }
+
+    TypedQuery<T> inclusion(InCriterion<?> inCriterion) {
+        Validate.notNull(inCriterion, "In criterion must not be null");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.inclusion(inCriterion);
+    }
+
+    TypedQuery<T> inclusionFetching(String attributeName, InCriterion<?> inCriterion) {
+        Validate.notEmpty(attributeName, "Attribute name must not be empty");
+        Validate.notNull(inCriterion, "In criterion must not be null");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.inclusionFetching(attributeName, inCriterion);
+    }
+
+    TypedQuery<Tuple> projection(String orderAttributeName, InCriterion<?> inCriterion, String... attributeNames) {
+        Validate.notEmpty(orderAttributeName, "Order attribute name must not be empty");
+        Validate.notEmpty(attributeNames, "Attribute names must not be empty");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.projection(orderAttributeName, inCriterion, attributeNames);
+    }
+
+    <Y extends Comparable<? super Y>> TypedQuery<Tuple> rangeProjection(String orderAttributeName, BetweenCriterion<Y> betweenCriterion, String... attributeNames) {
+        Validate.notEmpty(orderAttributeName, "Order attribute name must not be empty");
+        Validate.notNull(betweenCriterion, "Between criterion must not be null");
+        Validate.notEmpty(attributeNames, "Attribute names must not be empty");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.rangeProjection(orderAttributeName, betweenCriterion, attributeNames);
+    }
+
+    <Y extends Comparable<? super Y>> TypedQuery<Y> orderedAttributes(String attributeName, Class<Y> attributeClass, Y lastValue) {
+        Validate.notEmpty(attributeName, "Attribute name must not be empty");
+        Validate.notNull(attributeClass, "Attribute class must not be null");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.orderedAttributes(attributeName, attributeClass, lastValue);
+    }
+
+    TypedQuery<String> orderedAttributesLike(String attributeName, LikeCriterion likeCriterion, String lastValue) {
+        Validate.notEmpty(attributeName, "Attribute name must not be empty");
+        Validate.notNull(likeCriterion, "Like criterion must not be null");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.orderedAttributesLike(attributeName, likeCriterion, lastValue);
+    }
+
+    TypedQuery<String> orderedAttributesWithPrefix(String attributeName, LikeCriterion prefixCriterion, String lastValue) {
+        Validate.notEmpty(attributeName, "Attribute name must not be empty");
+        Validate.notNull(prefixCriterion, "Prefix criterion must not be null");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.orderedAttributesWithPrefix(attributeName, prefixCriterion, lastValue);
+    }
+
+    <Y, Z extends Comparable<? super Z>> TypedQuery<Y> attributesFrom(String attributeName, Class<Y> attributeClass, String comparedAttributeName, Z lowerBound) {
+        Validate.notEmpty(attributeName, "Attribute name must not be empty");
+        Validate.notEmpty(comparedAttributeName, "Compared attribute name must not be empty");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.attributesFrom(attributeName, attributeClass, comparedAttributeName, lowerBound);
+    }
+
+    <Y extends Comparable<? super Y>> TypedQuery<Y> greatest(String attributeName, Class<Y> attributeClass) {
+        Validate.notEmpty(attributeName, "Attribute name must not be empty");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.greatest(attributeName, attributeClass);
+    }
+
+    <Y extends Comparable<? super Y>> TypedQuery<Tuple> summary(String summedAttributeName, String greatestAttributeName, Class<Y> greatestAttributeClass) {
+        Validate.notEmpty(summedAttributeName, "Summed attribute name must not be empty");
+        Validate.notEmpty(greatestAttributeName, "Greatest attribute name must not be empty");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.summary(summedAttributeName, greatestAttributeName, greatestAttributeClass);
+    }
+
+    Query deletion(EqualsCriterion<?> equalsCriterion, InCriterion<?> inCriterion) {
+        Validate.notNull(equalsCriterion, "Equals criterion must not be null");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.deletion(equalsCriterion, inCriterion);
+    }
+
+    Query deletion(InCriterion<?> inCriterion, EqualsCriterion<?>... equalsCriteria) {
+        Validate.notEmpty(equalsCriteria, "Equals criteria must not be empty");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.deletion(inCriterion, equalsCriteria);
+    }
+
+    <Y> Query assignment(String attributeName, Class<Y> attributeClass, Y value, EqualsCriterion<?>... equalsCriteria) {
+        Validate.notEmpty(attributeName, "Attribute name must not be empty");
+        Validate.notEmpty(equalsCriteria, "Equals criteria must not be empty");
+        Validate.notNull(queryBuilder, "Query builder must not be null");
+        return queryBuilder.assignment(attributeName, attributeClass, value, equalsCriteria);
+    }
+
     public void setResultClass(Class<T> resultClass) {
         Validate.notNull(resultClass, "Result class must not be null");
         queryBuilder.setResultClass(resultClass);
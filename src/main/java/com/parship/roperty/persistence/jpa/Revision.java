@@ -0,0 +1,59 @@
+package com.parship.roperty.persistence.jpa;
+
+final class Revision {
+
+    private final long numberOfKeys;
+
+    private final long versionSum;
+
+    private final long lastModification;
+
+    Revision(long numberOfKeys, long versionSum, long lastModification) {
+        this.numberOfKeys = numberOfKeys;
+        this.versionSum = versionSum;
+        this.lastModification = lastModification;
+    }
+
+    long getNumberOfKeys() {
+        return numberOfKeys;
+    }
+
+    long getVersionSum() {
+        return versionSum;
+    }
+
+    long getLastModification() {
+        return lastModification;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Revision revision = (Revision) o;
+        return numberOfKeys == revision.numberOfKeys
+                && versionSum == revision.versionSum
+                && lastModification == revision.lastModification;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(numberOfKeys);
+        result = 31 * result + Long.hashCode(versionSum);
+        result = 31 * result + Long.hashCode(lastModification);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Revision{" +
+                "numberOfKeys=" + numberOfKeys +
+                ", versionSum=" + versionSum +
+                ", lastModification=" + lastModification +
+                '}';
+    }
+}
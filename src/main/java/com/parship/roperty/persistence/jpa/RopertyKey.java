@@ -2,19 +2,38 @@ package com.parship.roperty.persistence.jpa;
 
 import org.apache.commons.lang3.Validate;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
 import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.Version;
+import java.util.Date;
+import java.util.Locale;
 
 @Entity
-@Table(name = "roperty_key")
+@Table(name = "roperty_key", indexes = {@Index(columnList = "last_modified"), @Index(columnList = "search_id")})
 public class RopertyKey {
 
     @Id
     private String id;
 
+    @Column(name = "search_id")
+    private String searchId;
+
     private String description;
 
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "last_modified")
+    private Date lastModified;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     public String getId() {
         return id;
     }
@@ -24,6 +43,15 @@ public class RopertyKey {
         this.id = id;
     }
 
+    String getSearchId() {
+        return searchId;
+    }
+
+    @PrePersist
+    void normalizeSearchId() {
+        searchId = id.toLowerCase(Locale.ROOT);
+    }
+
     public String getDescription() {
         return description;
     }
@@ -32,6 +60,18 @@ public class RopertyKey {
         this.description = description;
     }
 
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Date lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public String toString() {
         return "RopertyKey{" +
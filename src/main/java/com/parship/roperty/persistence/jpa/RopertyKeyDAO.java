@@ -3,10 +3,15 @@ package com.parship.roperty.persistence.jpa;
 import org.apache.commons.lang3.Validate;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 public class RopertyKeyDAO {
 
@@ -21,6 +26,12 @@ public class RopertyKeyDAO {
         return ropertyKey;
     }
 
+    RopertyKey loadRopertyKey(EntityManager entityManager, String key) {
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notBlank(key, "Key must not be empty");
+        return entityManager.find(RopertyKey.class, key);
+    }
+
     List<RopertyKey> loadAllRopertyKeys() {
         Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
         EntityManager entityManager = queryBuilderDelegate.createEntityManager();
@@ -37,6 +48,174 @@ public class RopertyKeyDAO {
         return Collections.unmodifiableList(ropertyKeys);
     }
 
+    List<RopertyKey> loadRopertyKeys(EntityManager entityManager, Collection<String> keys) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notEmpty(keys, "Keys must not be empty");
+        queryBuilderDelegate.withEntityManager(entityManager);
+
+        InCriterion<String> idCriterion = new InCriterion<String>()
+                .withAttributeName("id")
+                .withValues(keys);
+
+        TypedQuery<RopertyKey> typedQuery = queryBuilderDelegate.inclusion(idCriterion);
+        queryBuilderDelegate.withoutEntityManager(entityManager);
+        if (typedQuery == null) {
+            throw new RopertyPersistenceException(String.format("Typed query for inclusion of %d keys must not be null", keys.size()));
+        }
+
+        return Collections.unmodifiableList(typedQuery.getResultList());
+    }
+
+    List<String> loadRopertyKeyIds(String lastKey, int maxResults) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.isTrue(maxResults > 0, "Maximum number of results must be positive, but was %d", maxResults);
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        TypedQuery<String> typedQuery = queryBuilderDelegate.orderedAttributes("id", String.class, lastKey);
+
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException("Typed query must not be null");
+        }
+
+        List<String> keys = typedQuery.setMaxResults(maxResults).getResultList();
+        entityManager.close();
+        return Collections.unmodifiableList(keys);
+    }
+
+    List<String> loadRopertyKeyIds() {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        TypedQuery<String> typedQuery = queryBuilderDelegate.orderedAttributes("id", String.class, null);
+
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException("Typed query must not be null");
+        }
+
+        List<String> keys = typedQuery.getResultList();
+        entityManager.close();
+        return Collections.unmodifiableList(keys);
+    }
+
+    List<String> loadRopertyKeyIdsModifiedSince(Date since) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(since, "Date of last modification must not be null");
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        TypedQuery<String> typedQuery = queryBuilderDelegate.attributesFrom("id", String.class, "lastModified", since);
+
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException("Typed query must not be null");
+        }
+
+        List<String> keys = typedQuery.getResultList();
+        entityManager.close();
+        return Collections.unmodifiableList(keys);
+    }
+
+    Date loadLastModification() {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        TypedQuery<Date> typedQuery = queryBuilderDelegate.greatest("lastModified", Date.class);
+
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException("Typed query must not be null");
+        }
+
+        Date lastModification = typedQuery.getSingleResult();
+        entityManager.close();
+        return lastModification;
+    }
+
+    Revision loadRevision() {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        TypedQuery<Tuple> typedQuery = queryBuilderDelegate.summary("version", "lastModified", Date.class);
+
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException("Typed query for revision must not be null");
+        }
+
+        Tuple summary = typedQuery.getSingleResult();
+        entityManager.close();
+        Validate.notNull(summary, "Summary of keys must not be null");
+
+        Long versionSum = summary.get(1, Long.class);
+        Date lastModification = summary.get(2, Date.class);
+        return new Revision(
+                summary.get(0, Long.class),
+                versionSum == null ? 0L : versionSum,
+                lastModification == null ? 0L : lastModification.getTime());
+    }
+
+    int removeRopertyKey(EntityManager entityManager, String key) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notBlank(key, "Key must not be empty");
+        queryBuilderDelegate.withEntityManager(entityManager);
+
+        EqualsCriterion<String> idCriterion = new EqualsCriterion<String>()
+                .withAttributeName("id")
+                .withComparison(key);
+
+        Query query = queryBuilderDelegate.deletion(idCriterion, null);
+        queryBuilderDelegate.withoutEntityManager(entityManager);
+        if (query == null) {
+            throw new RopertyPersistenceException(String.format("Query for deletion of key '%s' must not be null", key));
+        }
+        return query.executeUpdate();
+    }
+
+    int touchRopertyKey(EntityManager entityManager, String key, Date lastModified) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notBlank(key, "Key must not be empty");
+        Validate.notNull(lastModified, "Date of last modification must not be null");
+        queryBuilderDelegate.withEntityManager(entityManager);
+
+        EqualsCriterion<String> idCriterion = new EqualsCriterion<String>()
+                .withAttributeName("id")
+                .withComparison(key);
+
+        Query query = queryBuilderDelegate.assignment("lastModified", Date.class, lastModified, idCriterion);
+        queryBuilderDelegate.withoutEntityManager(entityManager);
+        if (query == null) {
+            throw new RopertyPersistenceException(String.format("Query for modification of key '%s' must not be null", key));
+        }
+        return query.executeUpdate();
+    }
+
+    int touchRopertyKey(EntityManager entityManager, String key, long expectedVersion, Date lastModified) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notBlank(key, "Key must not be empty");
+        Validate.notNull(lastModified, "Date of last modification must not be null");
+        queryBuilderDelegate.withEntityManager(entityManager);
+
+        EqualsCriterion<String> idCriterion = new EqualsCriterion<String>()
+                .withAttributeName("id")
+                .withComparison(key);
+
+        EqualsCriterion<Long> versionCriterion = new EqualsCriterion<Long>()
+                .withAttributeName("version")
+                .withComparison(expectedVersion);
+
+        Query query = queryBuilderDelegate.assignment("lastModified", Date.class, lastModified, idCriterion, versionCriterion);
+        queryBuilderDelegate.withoutEntityManager(entityManager);
+        if (query == null) {
+            throw new RopertyPersistenceException(String.format("Query for modification of key '%s' must not be null", key));
+        }
+        return query.executeUpdate();
+    }
+
     public void setQueryBuilderDelegate(QueryBuilderDelegate<RopertyKey> queryBuilderDelegate) {
         Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
         this.queryBuilderDelegate = queryBuilderDelegate;
@@ -65,4 +244,72 @@ public class RopertyKeyDAO {
         return Collections.unmodifiableList(result);
     }
 
+    List<String> findKeys(String substring, String lastKey, int maxResults) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(substring, "Substring must not be null");
+        Validate.isTrue(maxResults > 0, "Maximum number of results must be positive, but was %d", maxResults);
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+
+        LikeCriterion idCriterion = new LikeCriterion()
+                .withAttributeName("id")
+                .withSubstring(substring);
+
+        TypedQuery<String> typedQuery = queryBuilderDelegate.orderedAttributesLike("id", idCriterion, lastKey);
+
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException("Typed query must not be null");
+        }
+
+        List<String> keys = typedQuery.setMaxResults(maxResults).getResultList();
+        entityManager.close();
+        return Collections.unmodifiableList(keys);
+    }
+
+    List<String> findKeysByPrefix(String prefix) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(prefix, "Prefix must not be null");
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+
+        LikeCriterion searchIdCriterion = new LikeCriterion()
+                .withAttributeName("searchId")
+                .withPrefix(prefix.toLowerCase(Locale.ROOT));
+
+        TypedQuery<String> typedQuery = queryBuilderDelegate.orderedAttributesWithPrefix("id", searchIdCriterion, null);
+
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException("Typed query must not be null");
+        }
+
+        List<String> keys = typedQuery.getResultList();
+        entityManager.close();
+        return Collections.unmodifiableList(keys);
+    }
+
+    List<String> findKeysByPrefix(String prefix, String lastKey, int maxResults) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(prefix, "Prefix must not be null");
+        Validate.isTrue(maxResults > 0, "Maximum number of results must be positive, but was %d", maxResults);
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+
+        LikeCriterion searchIdCriterion = new LikeCriterion()
+                .withAttributeName("searchId")
+                .withPrefix(prefix.toLowerCase(Locale.ROOT));
+
+        TypedQuery<String> typedQuery = queryBuilderDelegate.orderedAttributesWithPrefix("id", searchIdCriterion, lastKey);
+
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException("Typed query must not be null");
+        }
+
+        List<String> keys = typedQuery.setMaxResults(maxResults).getResultList();
+        entityManager.close();
+        return Collections.unmodifiableList(keys);
+    }
+
 }
@@ -4,4 +4,8 @@ public class RopertyPersistenceException extends RuntimeException {
     public RopertyPersistenceException(String message) {
         super(message);
     }
+
+    public RopertyPersistenceException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -1,15 +1,19 @@
 package com.parship.roperty.persistence.jpa;
 
 import com.parship.roperty.DomainSpecificValue;
+import org.apache.commons.lang3.Validate;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.io.Serializable;
 import java.util.Objects;
 
@@ -17,6 +21,8 @@ import java.util.Objects;
 @Table(name = "roperty_value", indexes = {@Index(columnList = "key"), @Index(columnList = "key, pattern, change_set", unique = true)})
 public class RopertyValue {
 
+    private static final ValueCodec DEFAULT_VALUE_CODEC = new SerializationValueCodec();
+
     @Id
     @GeneratedValue
     private Long id;
@@ -25,8 +31,24 @@ public class RopertyValue {
     @JoinColumn(name = "key")
     private RopertyKey key;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "value_type", length = 16)
+    private ValueType valueType;
+
+    @Column(name = "string_value", length = ValueType.MAX_STRING_LENGTH)
+    private String stringValue;
+
+    @Column(name = "long_value")
+    private Long longValue;
+
+    @Column(name = "boolean_value")
+    private Boolean booleanValue;
+
+    @Column(name = "double_value")
+    private Double doubleValue;
+
     @Column(name = "value")
-    private Serializable value;
+    private byte[] value;
 
     @Column(name = "change_set", nullable = false)
     private String changeSet;
@@ -34,6 +56,25 @@ public class RopertyValue {
     @Column(name = "pattern", nullable = false)
     private String pattern;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    public RopertyValue() {
+    }
+
+    RopertyValue(RopertyKey key, String pattern, String changeSet, ValueType valueType, String stringValue, Long longValue, Boolean booleanValue, Double doubleValue, byte[] value) {
+        this.key = key;
+        this.pattern = pattern;
+        this.changeSet = changeSet;
+        this.valueType = valueType;
+        this.stringValue = stringValue;
+        this.longValue = longValue;
+        this.booleanValue = booleanValue;
+        this.doubleValue = doubleValue;
+        this.value = value;
+    }
+
     public RopertyKey getKey() {
         return key;
     }
@@ -43,11 +84,86 @@ public class RopertyValue {
     }
 
     public Object getValue() {
-        return value;
+        return getValue(DEFAULT_VALUE_CODEC);
+    }
+
+    public Object getValue(ValueCodec valueCodec) {
+        Validate.notNull(valueCodec, "Value codec must not be null");
+        if (valueType == null) {
+            return value == null ? null : valueCodec.decode(value);
+        }
+        switch (valueType) {
+            case STRING:
+                return stringValue;
+            case INTEGER:
+                return longValue.intValue();
+            case LONG:
+                return longValue;
+            case BOOLEAN:
+                return booleanValue;
+            case DOUBLE:
+                return doubleValue;
+            default:
+                return value == null ? null : valueCodec.decode(value);
+        }
     }
 
     public void setValue(Serializable value) {
-        this.value = value;
+        setValue(value, DEFAULT_VALUE_CODEC);
+    }
+
+    public void setValue(Object value, ValueCodec valueCodec) {
+        Validate.notNull(valueCodec, "Value codec must not be null");
+        valueType = ValueType.of(value, valueCodec);
+        stringValue = null;
+        longValue = null;
+        booleanValue = null;
+        doubleValue = null;
+        this.value = null;
+        if (valueType == null) {
+            return;
+        }
+        switch (valueType) {
+            case STRING:
+                stringValue = (String) value;
+                break;
+            case INTEGER:
+            case LONG:
+                longValue = ((Number) value).longValue();
+                break;
+            case BOOLEAN:
+                booleanValue = (Boolean) value;
+                break;
+            case DOUBLE:
+                doubleValue = (Double) value;
+                break;
+            default:
+                this.value = valueCodec.encode(value);
+        }
+    }
+
+    public ValueType getValueType() {
+        return valueType;
+    }
+
+    String getStringValue() {
+        return stringValue;
+    }
+
+    Long getLongValue() {
+        return longValue;
+    }
+
+    Boolean getBooleanValue() {
+        return booleanValue;
+    }
+
+    Double getDoubleValue() {
+        return doubleValue;
+    }
+
+    byte[] getSerializedValue() {
+        return value;
     }
 
     public String getChangeSet() {
@@ -67,14 +183,22 @@ public class RopertyValue {
     }
 
     public boolean equals(DomainSpecificValue domainSpecificValue) {
+        return equals(domainSpecificValue, DEFAULT_VALUE_CODEC);
+    }
+
+    public boolean equals(DomainSpecificValue domainSpecificValue, ValueCodec valueCodec) {
         return Objects.equals(domainSpecificValue.getPatternStr(), pattern)
-                && Objects.equals(domainSpecificValue.getValue(), value);
+                && Objects.equals(domainSpecificValue.getValue(), getValue(valueCodec));
     }
 
     public Long getId() {
         return id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public String toString() {
         return "RopertyValue{" +
@@ -3,12 +3,19 @@ package com.parship.roperty.persistence.jpa;
 import org.apache.commons.lang3.Validate;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class RopertyValueDAO {
 
+    private static final String[] PROJECTED_ATTRIBUTE_NAMES = {"key.id", "key.description", "pattern", "changeSet", "valueType", "stringValue", "longValue", "booleanValue", "doubleValue", "value"};
+
     private QueryBuilderDelegate<RopertyValue> queryBuilderDelegate;
 
     Long getNumberOfValues(RopertyKey ropertyKey) {
@@ -50,6 +57,189 @@ public class RopertyValueDAO {
         return Collections.unmodifiableList(ropertyValues);
     }
 
+    List<RopertyValue> loadAllRopertyValues() {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+
+        TypedQuery<RopertyValue> typedQuery = queryBuilderDelegate.allFetching("key");
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException("Typed query for all values must not be null");
+        }
+
+        List<RopertyValue> ropertyValues = typedQuery.getResultList();
+        entityManager.close();
+
+        Validate.notNull(ropertyValues, "Result list of all Roperty values was null");
+
+        return Collections.unmodifiableList(ropertyValues);
+    }
+
+    List<RopertyValue> loadRopertyValues(Collection<String> keys) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notEmpty(keys, "Keys must not be empty");
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+
+        InCriterion<String> keyCriterion = new InCriterion<String>()
+                .withAttributeName("key.id")
+                .withValues(keys);
+
+        TypedQuery<RopertyValue> typedQuery = queryBuilderDelegate.inclusionFetching("key", keyCriterion);
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException(String.format("Typed query for inclusion of %d keys must not be null", keys.size()));
+        }
+
+        List<RopertyValue> ropertyValues = typedQuery.getResultList();
+        entityManager.close();
+
+        Validate.notNull(ropertyValues, "Result list of Roperty values for %d keys was null", keys.size());
+
+        return Collections.unmodifiableList(ropertyValues);
+    }
+
+    List<RopertyValue> readAllRopertyValues() {
+        List<RopertyValue> ropertyValues = new ArrayList<>();
+        readAllRopertyValues(ropertyValues::addAll);
+        return Collections.unmodifiableList(ropertyValues);
+    }
+
+    void readAllRopertyValues(Consumer<List<RopertyValue>> consumer) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(consumer, "Consumer must not be null");
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+
+        TypedQuery<Tuple> typedQuery = queryBuilderDelegate.projection("key.id", null, PROJECTED_ATTRIBUTE_NAMES);
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException("Typed query for projection of all values must not be null");
+        }
+
+        List<Tuple> tuples = typedQuery.getResultList();
+        entityManager.close();
+
+        Validate.notNull(tuples, "Result list of all Roperty values was null");
+
+        forEachKey(tuples, consumer);
+    }
+
+    List<RopertyValue> readRopertyValues(Collection<String> keys) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notEmpty(keys, "Keys must not be empty");
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+
+        InCriterion<String> keyCriterion = new InCriterion<String>()
+                .withAttributeName("key.id")
+                .withValues(keys);
+
+        TypedQuery<Tuple> typedQuery = queryBuilderDelegate.projection("key.id", keyCriterion, PROJECTED_ATTRIBUTE_NAMES);
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException(String.format("Typed query for projection of %d keys must not be null", keys.size()));
+        }
+
+        List<Tuple> tuples = typedQuery.getResultList();
+        entityManager.close();
+
+        Validate.notNull(tuples, "Result list of Roperty values for %d keys was null", keys.size());
+
+        return toRopertyValues(tuples);
+    }
+
+    List<RopertyValue> readRopertyValues(String firstKey, String lastKey) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(firstKey, "First key must not be null");
+        Validate.notNull(lastKey, "Last key must not be null");
+        EntityManager entityManager = queryBuilderDelegate.createEntityManager();
+        Validate.notNull(entityManager, "Entity manager must not be null");
+
+        BetweenCriterion<String> keyCriterion = new BetweenCriterion<String>()
+                .withAttributeName("key.id")
+                .withLowerBound(firstKey)
+                .withUpperBound(lastKey);
+
+        TypedQuery<Tuple> typedQuery = queryBuilderDelegate.rangeProjection("key.id", keyCriterion, PROJECTED_ATTRIBUTE_NAMES);
+        if (typedQuery == null) {
+            entityManager.close();
+            throw new RopertyPersistenceException(String.format("Typed query for projection of keys from '%s' to '%s' must not be null", firstKey, lastKey));
+        }
+
+        List<Tuple> tuples = typedQuery.getResultList();
+        entityManager.close();
+
+        Validate.notNull(tuples, "Result list of Roperty values for keys from '%s' to '%s' was null", firstKey, lastKey);
+
+        return toRopertyValues(tuples);
+    }
+
+    private static List<RopertyValue> toRopertyValues(List<Tuple> tuples) {
+        List<RopertyValue> ropertyValues = new ArrayList<>(tuples.size());
+        forEachKey(tuples, ropertyValues::addAll);
+        return Collections.unmodifiableList(ropertyValues);
+    }
+
+    // rows are ordered by key, so the values of a key are handed over as soon as the next key starts
+    private static void forEachKey(List<Tuple> tuples, Consumer<List<RopertyValue>> consumer) {
+        List<RopertyValue> ropertyValues = new ArrayList<>();
+        RopertyKey ropertyKey = null;
+        for (Tuple tuple : tuples) {
+            String id = tuple.get(0, String.class);
+            if (ropertyKey == null || !ropertyKey.getId().equals(id)) {
+                if (!ropertyValues.isEmpty()) {
+                    consumer.accept(ropertyValues);
+                    ropertyValues = new ArrayList<>();
+                }
+                ropertyKey = new RopertyKey();
+                ropertyKey.setId(id);
+                ropertyKey.setDescription(tuple.get(1, String.class));
+            }
+            ropertyValues.add(new RopertyValue(
+                    ropertyKey,
+                    tuple.get(2, String.class),
+                    tuple.get(3, String.class),
+                    tuple.get(4, ValueType.class),
+                    tuple.get(5, String.class),
+                    tuple.get(6, Long.class),
+                    tuple.get(7, Boolean.class),
+                    tuple.get(8, Double.class),
+                    tuple.get(9, byte[].class)));
+        }
+        if (!ropertyValues.isEmpty()) {
+            consumer.accept(ropertyValues);
+        }
+    }
+
+    List<RopertyValue> loadRopertyValues(EntityManager entityManager, String key) {
+        Validate.notBlank(key, "Key must not be empty");
+        return loadRopertyValues(entityManager, Collections.singletonList(key));
+    }
+
+    List<RopertyValue> loadRopertyValues(EntityManager entityManager, Collection<String> keys) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notEmpty(keys, "Keys must not be empty");
+        queryBuilderDelegate.withEntityManager(entityManager);
+
+        InCriterion<String> keyCriterion = new InCriterion<String>()
+                .withAttributeName("key.id")
+                .withValues(keys);
+
+        TypedQuery<RopertyValue> typedQuery = queryBuilderDelegate.inclusionFetching("key", keyCriterion);
+        queryBuilderDelegate.withoutEntityManager(entityManager);
+        if (typedQuery == null) {
+            throw new RopertyPersistenceException(String.format("Typed query for inclusion of %d keys must not be null", keys.size()));
+        }
+
+        List<RopertyValue> ropertyValues = typedQuery.getResultList();
+        Validate.notNull(ropertyValues, "Result list of Roperty values for %d keys was null", keys.size());
+
+        return Collections.unmodifiableList(ropertyValues);
+    }
+
     RopertyValue loadRopertyValue(RopertyKey ropertyKey, String pattern, String changeSet) {
         Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
         EntityManager entityManager = queryBuilderDelegate.createEntityManager();
@@ -92,6 +282,58 @@ public class RopertyValueDAO {
         return ropertyValue;
     }
 
+    int removeRopertyValues(EntityManager entityManager, String key, Collection<String> patterns, String changeSet) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notBlank(key, "Key must not be empty");
+        queryBuilderDelegate.withEntityManager(entityManager);
+
+        EqualsCriterion<String> keyCriterion = new EqualsCriterion<String>()
+                .withAttributeName("key.id")
+                .withComparison(key);
+
+        InCriterion<String> patternCriterion = null;
+        if (patterns != null) {
+            Validate.notEmpty(patterns, "Patterns must not be empty");
+            patternCriterion = new InCriterion<String>()
+                    .withAttributeName("pattern")
+                    .withValues(patterns);
+        }
+
+        Query query;
+        if (changeSet == null) {
+            query = queryBuilderDelegate.deletion(keyCriterion, patternCriterion);
+        } else {
+            EqualsCriterion<String> changeSetCriterion = new EqualsCriterion<String>()
+                    .withAttributeName("changeSet")
+                    .withComparison(changeSet);
+            query = queryBuilderDelegate.deletion(patternCriterion, keyCriterion, changeSetCriterion);
+        }
+        queryBuilderDelegate.withoutEntityManager(entityManager);
+        if (query == null) {
+            throw new RopertyPersistenceException(String.format("Query for deletion of values of key '%s' must not be null", key));
+        }
+        return query.executeUpdate();
+    }
+
+    long getNumberOfValues(EntityManager entityManager, String key) {
+        Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
+        Validate.notNull(entityManager, "Entity manager must not be null");
+        Validate.notBlank(key, "Key must not be empty");
+        queryBuilderDelegate.withEntityManager(entityManager);
+
+        TypedQuery<Long> typedQuery = queryBuilderDelegate.count(entityManager.getReference(RopertyKey.class, key));
+        queryBuilderDelegate.withoutEntityManager(entityManager);
+        if (typedQuery == null) {
+            throw new RopertyPersistenceException(String.format("Typed query for counting of key '%s' must not be null", key));
+        }
+        Long result = typedQuery.getSingleResult();
+        if (result == null) {
+            throw new RopertyPersistenceException("Single result of query must not be null");
+        }
+        return result;
+    }
+
     public void setQueryBuilderDelegate(QueryBuilderDelegate<RopertyValue> queryBuilderDelegate) {
         Validate.notNull(queryBuilderDelegate, "Query builder delegate must not be null");
         this.queryBuilderDelegate = queryBuilderDelegate;
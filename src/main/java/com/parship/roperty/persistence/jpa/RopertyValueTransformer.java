@@ -3,50 +3,80 @@ package com.parship.roperty.persistence.jpa;
 import com.parship.roperty.DomainSpecificValueFactory;
 import com.parship.roperty.KeyValues;
 import com.parship.roperty.KeyValuesFactory;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 class RopertyValueTransformer {
 
     private KeyValuesFactory keyValuesFactory;
     private DomainSpecificValueFactory domainSpecificValueFactory;
+    private PatternCache patternCache = new PatternCache();
+    private ValueCodec valueCodec = new SerializationValueCodec();
 
     KeyValues transformValues(List<RopertyValue> ropertyValues) {
         if (ropertyValues.isEmpty()) {
             return null;
         }
 
-        KeyValues keyValues = keyValuesFactory.create(domainSpecificValueFactory);
-        Validate.notNull(keyValues, "Key values must not be null");
+        KeyValues keyValues = createKeyValues();
 
         for (RopertyValue ropertyValue : ropertyValues) {
-            String pattern = ropertyValue.getPattern();
+            transformValue(keyValues, ropertyValue.getKey(), ropertyValue);
+        }
+
+        return keyValues;
+    }
+
+    Map<String, KeyValues> transformValuesByKey(List<RopertyValue> ropertyValues) {
+        Map<String, KeyValues> keyValuesMap = new LinkedHashMap<>();
+
+        String currentKey = null;
+        KeyValues keyValues = null;
+        for (RopertyValue ropertyValue : ropertyValues) {
             RopertyKey key = ropertyValue.getKey();
-            Validate.notNull(pattern, "Pattern of value with key '%s' may not be null", key);
-            String[] domainKeyParts;
-            if (StringUtils.isEmpty(pattern)) {
-                domainKeyParts = new String[0];
-            } else {
-                domainKeyParts = pattern.split("\\|");
-            }
-            Object value = ropertyValue.getValue();
-            String changeSet = ropertyValue.getChangeSet();
-            if (Objects.equals(changeSet, "")) {
-                keyValues.put(value, domainKeyParts);
-            } else {
-                keyValues.putWithChangeSet(changeSet, value, domainKeyParts);
+            Validate.notNull(key, "Key of value '%s' may not be null", ropertyValue);
+            String id = key.getId();
+            Validate.notNull(id, "Id of key '%s' may not be null", key);
+            if (!Objects.equals(id, currentKey)) {
+                keyValues = keyValuesMap.get(id);
+                if (keyValues == null) {
+                    keyValues = createKeyValues();
+                    keyValuesMap.put(id, keyValues);
+                }
+                currentKey = id;
             }
-
-            Validate.notNull(key, "Key of value '%s' for pattern '%s' may not be null", value, pattern);
-            keyValues.setDescription(key.getDescription());
+            transformValue(keyValues, key, ropertyValue);
         }
 
+        return keyValuesMap;
+    }
+
+    private KeyValues createKeyValues() {
+        KeyValues keyValues = keyValuesFactory.create(domainSpecificValueFactory);
+        Validate.notNull(keyValues, "Key values must not be null");
         return keyValues;
     }
 
+    private void transformValue(KeyValues keyValues, RopertyKey key, RopertyValue ropertyValue) {
+        String pattern = ropertyValue.getPattern();
+        Validate.notNull(pattern, "Pattern of value with key '%s' may not be null", key);
+        String[] domainKeyParts = patternCache.split(pattern);
+        Object value = ropertyValue.getValue(valueCodec);
+        String changeSet = ropertyValue.getChangeSet();
+        if (Objects.equals(changeSet, "")) {
+            keyValues.put(value, domainKeyParts);
+        } else {
+            keyValues.putWithChangeSet(changeSet, value, domainKeyParts);
+        }
+
+        Validate.notNull(key, "Key of value '%s' for pattern '%s' may not be null", value, pattern);
+        keyValues.setDescription(key.getDescription());
+    }
+
 
     RopertyValueTransformer withKeyValuesFactory(KeyValuesFactory keyValuesFactory) {
         this.keyValuesFactory = keyValuesFactory;
@@ -57,4 +87,14 @@ class RopertyValueTransformer {
         this.domainSpecificValueFactory = domainSpecificValueFactory;
         return this;
     }
+
+    RopertyValueTransformer withPatternCache(PatternCache patternCache) {
+        this.patternCache = patternCache;
+        return this;
+    }
+
+    RopertyValueTransformer withValueCodec(ValueCodec valueCodec) {
+        this.valueCodec = valueCodec;
+        return this;
+    }
 }
@@ -0,0 +1,25 @@
+package com.parship.roperty.persistence.jpa;
+
+import java.io.Serializable;
+
+public class SerializationValueCodec implements ValueCodec {
+
+    @Override
+    public boolean canEncode(Object value) {
+        return value instanceof Serializable;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        if (!canEncode(value)) {
+            throw new RopertyPersistenceException(String.format("Cannot serialize value '%s'", value));
+        }
+        return ValueCodecs.serialize(value);
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        return ValueCodecs.decode(bytes);
+    }
+
+}
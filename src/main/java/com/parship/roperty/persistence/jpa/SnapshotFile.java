@@ -0,0 +1,243 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+class SnapshotFile {
+
+    private static final int MAGIC = 0x52505331;
+
+    private static final int HEADER_LENGTH = 4 + 3 * 8 + 4;
+
+    private static final int TRAILER_LENGTH = 8;
+
+    private static final byte NO_VALUE_TYPE = -1;
+
+    private static final ValueType[] VALUE_TYPES = ValueType.values();
+
+    private final Path path;
+
+    SnapshotFile(Path path) {
+        Validate.notNull(path, "Path must not be null");
+        this.path = path;
+    }
+
+    List<RopertyValue> read(Revision revision) {
+        Validate.notNull(revision, "Revision must not be null");
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH + TRAILER_LENGTH || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return null;
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                return null;
+            }
+            Revision snapshotRevision = new Revision(header.getLong(), header.getLong(), header.getLong());
+            if (!snapshotRevision.equals(revision)) {
+                return null;
+            }
+            int numValues = header.getInt();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH, size - HEADER_LENGTH);
+            int trailerPosition = (int) size - HEADER_LENGTH - TRAILER_LENGTH;
+            if (checksum(buffer, trailerPosition) != buffer.getLong(trailerPosition)) {
+                return null;
+            }
+            buffer.limit(trailerPosition);
+            return readValues(buffer, numValues);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    void write(Revision revision, List<RopertyValue> ropertyValues) {
+        Validate.notNull(revision, "Revision must not be null");
+        Validate.notNull(ropertyValues, "Roperty values must not be null");
+        Path directory = path.toAbsolutePath().getParent();
+        Path temporaryPath = null;
+        try {
+            Files.createDirectories(directory);
+            temporaryPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(temporaryPath))) {
+                DataOutputStream header = new DataOutputStream(outputStream);
+                header.writeInt(MAGIC);
+                header.writeLong(revision.getNumberOfKeys());
+                header.writeLong(revision.getVersionSum());
+                header.writeLong(revision.getLastModification());
+                header.writeInt(ropertyValues.size());
+                CRC32 crc = new CRC32();
+                DataOutputStream body = new DataOutputStream(new CheckedOutputStream(outputStream, crc));
+                writeValues(body, ropertyValues);
+                body.flush();
+                header.writeLong(crc.getValue());
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RopertyPersistenceException(String.format("Could not write snapshot to '%s'", path), e);
+        } finally {
+            deleteIfExists(temporaryPath);
+        }
+    }
+
+    private static long checksum(ByteBuffer buffer, int limit) {
+        ByteBuffer body = buffer.duplicate();
+        body.limit(limit);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return crc.getValue();
+    }
+
+    private static void writeValues(DataOutputStream output, List<RopertyValue> ropertyValues) throws IOException {
+        RopertyKey currentKey = null;
+        for (RopertyValue ropertyValue : ropertyValues) {
+            RopertyKey ropertyKey = ropertyValue.getKey();
+            Validate.notNull(ropertyKey, "Key of value '%s' may not be null", ropertyValue);
+            boolean sameKey = currentKey != null && Objects.equals(currentKey.getId(), ropertyKey.getId());
+            output.writeBoolean(sameKey);
+            if (!sameKey) {
+                writeString(output, ropertyKey.getId());
+                writeString(output, ropertyKey.getDescription());
+                currentKey = ropertyKey;
+            }
+            writeString(output, ropertyValue.getPattern());
+            writeString(output, ropertyValue.getChangeSet());
+            ValueType valueType = ropertyValue.getValueType();
+            if (valueType == null) {
+                output.writeByte(NO_VALUE_TYPE);
+                writeBytes(output, ropertyValue.getSerializedValue());
+                continue;
+            }
+            output.writeByte(valueType.ordinal());
+            switch (valueType) {
+                case STRING:
+                    writeString(output, ropertyValue.getStringValue());
+                    break;
+                case INTEGER:
+                case LONG:
+                    output.writeLong(ropertyValue.getLongValue());
+                    break;
+                case BOOLEAN:
+                    output.writeBoolean(ropertyValue.getBooleanValue());
+                    break;
+                case DOUBLE:
+                    output.writeDouble(ropertyValue.getDoubleValue());
+                    break;
+                default:
+                    writeBytes(output, ropertyValue.getSerializedValue());
+            }
+        }
+    }
+
+    private static List<RopertyValue> readValues(ByteBuffer buffer, int numValues) {
+        List<RopertyValue> ropertyValues = new ArrayList<>(numValues);
+        RopertyKey ropertyKey = null;
+        for (int i = 0; i < numValues; i++) {
+            boolean sameKey = buffer.get() != 0;
+            if (!sameKey) {
+                ropertyKey = new RopertyKey();
+                ropertyKey.setId(readString(buffer));
+                ropertyKey.setDescription(readString(buffer));
+            }
+            Validate.isTrue(ropertyKey != null, "Snapshot must start with a key");
+            String pattern = readString(buffer);
+            String changeSet = readString(buffer);
+            byte valueTypeOrdinal = buffer.get();
+            ValueType valueType = valueTypeOrdinal == NO_VALUE_TYPE ? null : VALUE_TYPES[valueTypeOrdinal];
+            String stringValue = null;
+            Long longValue = null;
+            Boolean booleanValue = null;
+            Double doubleValue = null;
+            byte[] value = null;
+            if (valueType == null) {
+                value = readBytes(buffer);
+            } else {
+                switch (valueType) {
+                    case STRING:
+                        stringValue = readString(buffer);
+                        break;
+                    case INTEGER:
+                    case LONG:
+                        longValue = buffer.getLong();
+                        break;
+                    case BOOLEAN:
+                        booleanValue = buffer.get() != 0;
+                        break;
+                    case DOUBLE:
+                        doubleValue = buffer.getDouble();
+                        break;
+                    default:
+                        value = readBytes(buffer);
+                }
+            }
+            ropertyValues.add(new RopertyValue(ropertyKey, pattern, changeSet, valueType, stringValue, longValue, booleanValue, doubleValue, value));
+        }
+        Validate.isTrue(!buffer.hasRemaining(), "Snapshot has trailing data");
+        return Collections.unmodifiableList(ropertyValues);
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        writeBytes(output, string == null ? null : string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            output.writeInt(-1);
+            return;
+        }
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = readBytes(buffer);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void deleteIfExists(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new RopertyPersistenceException(String.format("Could not delete temporary snapshot '%s'", path), e);
+        }
+    }
+}
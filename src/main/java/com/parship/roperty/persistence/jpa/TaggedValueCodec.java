@@ -0,0 +1,325 @@
+package com.parship.roperty.persistence.jpa;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class TaggedValueCodec implements ValueCodec {
+
+    private static final byte NULL = 0x01;
+    private static final byte STRING = 0x02;
+    private static final byte INTEGER = 0x03;
+    private static final byte LONG = 0x04;
+    private static final byte FALSE = 0x05;
+    private static final byte TRUE = 0x06;
+    private static final byte DOUBLE = 0x07;
+    private static final byte FLOAT = 0x08;
+    private static final byte SHORT = 0x09;
+    private static final byte BYTE = 0x0A;
+    private static final byte CHARACTER = 0x0B;
+    private static final byte LIST = 0x0C;
+    private static final byte SET = 0x0D;
+    private static final byte MAP = 0x0E;
+    private static final byte SERIALIZED = 0x0F;
+    // 0x10 is ValueCodecs.COMPRESSED
+    private static final byte HASH_SET = 0x11;
+    private static final byte HASH_MAP = 0x12;
+
+    @Override
+    public boolean canEncode(Object value) {
+        if (value == null || isScalar(value)) {
+            return true;
+        }
+        if (!isTaggedCollection(value) && !(value instanceof Serializable)) {
+            return false;
+        }
+        if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                if (!canEncode(element)) {
+                    return false;
+                }
+            }
+        } else if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!canEncode(entry.getKey()) || !canEncode(entry.getValue())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        if (!canEncode(value)) {
+            throw new RopertyPersistenceException(String.format("Cannot encode value '%s'", value));
+        }
+        Output output = new Output();
+        write(output, value);
+        return output.toByteArray();
+    }
+
+    @Override
+    public Object decode(byte[] bytes) {
+        return ValueCodecs.decode(bytes);
+    }
+
+    static Object decodeTagged(byte[] bytes) {
+        Input input = new Input(bytes);
+        Object value = read(input);
+        if (input.position != bytes.length) {
+            throw new RopertyPersistenceException(String.format("Unexpected %d trailing bytes after encoded value", bytes.length - input.position));
+        }
+        return value;
+    }
+
+    private static boolean isScalar(Object value) {
+        Class<?> valueClass = value.getClass();
+        return valueClass == String.class || valueClass == Integer.class || valueClass == Long.class
+                || valueClass == Boolean.class || valueClass == Double.class || valueClass == Float.class
+                || valueClass == Short.class || valueClass == Byte.class || valueClass == Character.class;
+    }
+
+    private static boolean isTaggedCollection(Object value) {
+        Class<?> valueClass = value.getClass();
+        return valueClass == ArrayList.class || valueClass == HashSet.class || valueClass == LinkedHashSet.class
+                || valueClass == HashMap.class || valueClass == LinkedHashMap.class;
+    }
+
+    private static void write(Output output, Object value) {
+        if (value == null) {
+            output.writeByte(NULL);
+            return;
+        }
+        Class<?> valueClass = value.getClass();
+        if (valueClass == String.class) {
+            byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            output.writeByte(STRING);
+            output.writeVarLong(bytes.length);
+            output.writeBytes(bytes);
+        } else if (valueClass == Integer.class) {
+            output.writeByte(INTEGER);
+            output.writeZigZag((Integer) value);
+        } else if (valueClass == Long.class) {
+            output.writeByte(LONG);
+            output.writeZigZag((Long) value);
+        } else if (valueClass == Boolean.class) {
+            output.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (valueClass == Double.class) {
+            output.writeByte(DOUBLE);
+            output.writeFixed(Double.doubleToRawLongBits((Double) value), Long.BYTES);
+        } else if (valueClass == Float.class) {
+            output.writeByte(FLOAT);
+            output.writeFixed(Float.floatToRawIntBits((Float) value), Integer.BYTES);
+        } else if (valueClass == Short.class) {
+            output.writeByte(SHORT);
+            output.writeZigZag((Short) value);
+        } else if (valueClass == Byte.class) {
+            output.writeByte(BYTE);
+            output.writeByte((Byte) value);
+        } else if (valueClass == Character.class) {
+            output.writeByte(CHARACTER);
+            output.writeVarLong((Character) value);
+        } else if (valueClass == ArrayList.class || valueClass == HashSet.class || valueClass == LinkedHashSet.class) {
+            Collection<?> collection = (Collection<?>) value;
+            output.writeByte(valueClass == ArrayList.class ? LIST : valueClass == HashSet.class ? HASH_SET : SET);
+            output.writeVarLong(collection.size());
+            for (Object element : collection) {
+                write(output, element);
+            }
+        } else if (valueClass == HashMap.class || valueClass == LinkedHashMap.class) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            output.writeByte(valueClass == HashMap.class ? HASH_MAP : MAP);
+            output.writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                write(output, entry.getKey());
+                write(output, entry.getValue());
+            }
+        } else {
+            byte[] bytes = ValueCodecs.serialize(value);
+            output.writeByte(SERIALIZED);
+            output.writeVarLong(bytes.length);
+            output.writeBytes(bytes);
+        }
+    }
+
+    private static Object read(Input input) {
+        byte tag = input.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING: {
+                int length = input.readLength();
+                String string = new String(input.bytes, input.position, length, StandardCharsets.UTF_8);
+                input.position += length;
+                return string;
+            }
+            case INTEGER:
+                return (int) input.readZigZag();
+            case LONG:
+                return input.readZigZag();
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case DOUBLE:
+                return Double.longBitsToDouble(input.readFixed(Long.BYTES));
+            case FLOAT:
+                return Float.intBitsToFloat((int) input.readFixed(Integer.BYTES));
+            case SHORT:
+                return (short) input.readZigZag();
+            case BYTE:
+                return input.readByte();
+            case CHARACTER:
+                return (char) input.readVarLong();
+            case LIST: {
+                int size = input.readLength();
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(read(input));
+                }
+                return list;
+            }
+            case SET:
+                return readElements(input, new LinkedHashSet<>());
+            case HASH_SET:
+                return readElements(input, new HashSet<>());
+            case MAP:
+                return readEntries(input, new LinkedHashMap<>());
+            case HASH_MAP:
+                return readEntries(input, new HashMap<>());
+            case SERIALIZED: {
+                int length = input.readLength();
+                Object value = ValueCodecs.deserialize(input.bytes, input.position, length);
+                input.position += length;
+                return value;
+            }
+            default:
+                throw new RopertyPersistenceException(String.format("Unknown value tag %d at position %d", tag, input.position - 1));
+        }
+    }
+
+    private static Set<Object> readElements(Input input, Set<Object> set) {
+        int size = input.readLength();
+        for (int i = 0; i < size; i++) {
+            set.add(read(input));
+        }
+        return set;
+    }
+
+    private static Map<Object, Object> readEntries(Input input, Map<Object, Object> map) {
+        int size = input.readLength();
+        for (int i = 0; i < size; i++) {
+            map.put(read(input), read(input));
+        }
+        return map;
+    }
+
+    private static class Output {
+        private byte[] bytes = new byte[32];
+        private int position;
+
+        private void ensureCapacity(int additionalBytes) {
+            if (position + additionalBytes > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + additionalBytes));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[position++] = (byte) value;
+        }
+
+        private void writeBytes(byte[] value) {
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, bytes, position, value.length);
+            position += value.length;
+        }
+
+        private void writeVarLong(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[position++] = (byte) value;
+        }
+
+        private void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private void writeFixed(long value, int numBytes) {
+            ensureCapacity(numBytes);
+            for (int shift = (numBytes - 1) * 8; shift >= 0; shift -= 8) {
+                bytes[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, position);
+        }
+    }
+
+    private static class Input {
+        private final byte[] bytes;
+        private int position;
+
+        private Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private byte readByte() {
+            if (position >= bytes.length) {
+                throw new RopertyPersistenceException("Unexpected end of encoded value");
+            }
+            return bytes[position++];
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new RopertyPersistenceException("Malformed variable length number in encoded value");
+        }
+
+        private long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > bytes.length - position) {
+                throw new RopertyPersistenceException(String.format("Invalid length %d in encoded value", length));
+            }
+            return (int) length;
+        }
+
+        private long readFixed(int numBytes) {
+            if (position + numBytes > bytes.length) {
+                throw new RopertyPersistenceException("Unexpected end of encoded value");
+            }
+            long value = 0;
+            for (int i = 0; i < numBytes; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+    }
+
+}
@@ -10,53 +10,76 @@ public class TransactionManager {
 
     private EntityManagerFactory entityManagerFactory;
 
-    private EntityManager entityManager;
+    private PersistenceMetrics metrics;
 
-    private EntityTransaction transaction;
-
-    private boolean transactionStarted;
+    private final ThreadLocal<TransactionContext> transactionContexts = new ThreadLocal<>();
 
     public void setEntityManagerFactory(EntityManagerFactory entityManagerFactory) {
         Validate.notNull(entityManagerFactory, "Entity manager factory must not be null");
         this.entityManagerFactory = entityManagerFactory;
     }
 
+    public void setMetrics(PersistenceMetrics metrics) {
+        Validate.notNull(metrics, "Metrics must not be null");
+        this.metrics = metrics;
+    }
+
     void begin() {
         Validate.notNull(entityManagerFactory, "Entity manager factory must not be null");
-        entityManager = entityManagerFactory.createEntityManager();
+        TransactionContext abandonedContext = transactionContexts.get();
+        if (abandonedContext != null) {
+            transactionContexts.remove();
+            abandonedContext.close();
+        }
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
         Validate.notNull(entityManager, "Entity manager must not be null");
-        transaction = entityManager.getTransaction();
+        if (metrics != null) {
+            metrics.entityManagerOpened();
+        }
+        EntityTransaction transaction = entityManager.getTransaction();
         Validate.notNull(transaction, "Entity manager didn't return a transaction");
         transaction.begin();
-        transactionStarted = true;
+        transactionContexts.set(new TransactionContext(entityManager, transaction));
     }
 
     void end() {
-        Validate.isTrue(transactionStarted, "No transaction started yet. You need to call begin first");
-        Validate.notNull(transaction, "Transaction must not be null");
-        Validate.notNull(entityManager, "Entity manager must not be null");
-        transaction.commit();
-        entityManager.close();
-        transactionStarted = false;
+        TransactionContext transactionContext = startedTransaction();
+        transactionContexts.remove();
+        try {
+            transactionContext.transaction.commit();
+        } finally {
+            transactionContext.close();
+        }
+    }
+
+    void rollback() {
+        TransactionContext transactionContext = transactionContexts.get();
+        if (transactionContext == null) {
+            // end() already closed the context, e.g. because the commit failed
+            return;
+        }
+        transactionContexts.remove();
+        transactionContext.close();
+    }
+
+    EntityManager getEntityManager() {
+        return startedTransaction().entityManager;
     }
 
     void merge(Object object) {
-        Validate.isTrue(transactionStarted, "No transaction started yet. You need to call begin first");
-        Validate.notNull(entityManager, "Entity manager must not be null");
+        EntityManager entityManager = startedTransaction().entityManager;
         Validate.notNull(object, "Object must not be null");
         entityManager.merge(object);
     }
 
     void persist(Object object) {
-        Validate.isTrue(transactionStarted, "No transaction started yet. You need to call begin first");
-        Validate.notNull(entityManager, "Entity manager must not be null");
+        EntityManager entityManager = startedTransaction().entityManager;
         Validate.notNull(object, "Object must not be null");
         entityManager.persist(object);
     }
 
     void remove(Object object) {
-        Validate.isTrue(transactionStarted, "No transaction started yet. You need to call begin first");
-        Validate.notNull(entityManager, "Entity manager must not be null");
+        EntityManager entityManager = startedTransaction().entityManager;
         Validate.notNull(object, "Object must not be null");
         Object attachedEntity;
         if (entityManager.contains(object)) {
@@ -66,4 +89,30 @@ public class TransactionManager {
         }
         entityManager.remove(attachedEntity);
     }
+
+    private TransactionContext startedTransaction() {
+        TransactionContext transactionContext = transactionContexts.get();
+        Validate.isTrue(transactionContext != null, "No transaction started yet. You need to call begin first");
+        return transactionContext;
+    }
+
+    private static class TransactionContext {
+        private final EntityManager entityManager;
+        private final EntityTransaction transaction;
+
+        private TransactionContext(EntityManager entityManager, EntityTransaction transaction) {
+            this.entityManager = entityManager;
+            this.transaction = transaction;
+        }
+
+        private void close() {
+            try {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+            } finally {
+                entityManager.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package com.parship.roperty.persistence.jpa;
+
+public interface ValueCodec {
+
+    boolean canEncode(Object value);
+
+    byte[] encode(Object value);
+
+    Object decode(byte[] bytes);
+
+}
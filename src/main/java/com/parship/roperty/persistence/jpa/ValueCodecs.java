@@ -0,0 +1,95 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+final class ValueCodecs {
+
+    private static final byte SERIALIZATION_MAGIC_HIGH = (byte) 0xAC;
+    private static final byte SERIALIZATION_MAGIC_LOW = (byte) 0xED;
+
+    static final byte COMPRESSED = 0x10;
+
+    static final int COMPRESSION_HEADER_LENGTH = 1 + Integer.BYTES;
+
+    static final int DEFAULT_MAXIMUM_DECOMPRESSED_LENGTH = 16 * 1024 * 1024;
+
+    private ValueCodecs() {
+    }
+
+    static Object decode(byte[] bytes) {
+        Validate.notNull(bytes, "Bytes must not be null");
+        if (isSerialized(bytes, 0)) {
+            return deserialize(bytes, 0, bytes.length);
+        }
+        if (bytes.length > 0 && bytes[0] == COMPRESSED) {
+            return decode(decompress(bytes, DEFAULT_MAXIMUM_DECOMPRESSED_LENGTH));
+        }
+        return TaggedValueCodec.decodeTagged(bytes);
+    }
+
+    static byte[] decompress(byte[] bytes, int maximumLength) {
+        if (bytes.length < COMPRESSION_HEADER_LENGTH) {
+            throw new RopertyPersistenceException("Unexpected end of compressed value");
+        }
+        int length = ((bytes[1] & 0xFF) << 24) | ((bytes[2] & 0xFF) << 16) | ((bytes[3] & 0xFF) << 8) | (bytes[4] & 0xFF);
+        if (length < 0) {
+            throw new RopertyPersistenceException(String.format("Invalid length %d of compressed value", length));
+        }
+        // the length is read from the row, so it must not decide alone how much memory is allocated
+        if (length > maximumLength) {
+            throw new RopertyPersistenceException(String.format("Length %d of compressed value exceeds the maximum of %d bytes", length, maximumLength));
+        }
+        byte[] decompressed = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, COMPRESSION_HEADER_LENGTH, bytes.length - COMPRESSION_HEADER_LENGTH);
+            int position = 0;
+            while (position < length && !inflater.finished()) {
+                int inflated = inflater.inflate(decompressed, position, length - position);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                position += inflated;
+            }
+            if (position != length || !inflater.finished() || inflater.getRemaining() > 0) {
+                throw new RopertyPersistenceException(String.format("Compressed value does not match its length of %d bytes", length));
+            }
+        } catch (DataFormatException e) {
+            throw new RopertyPersistenceException("Cannot decompress value", e);
+        } finally {
+            inflater.end();
+        }
+        return decompressed;
+    }
+
+    static boolean isSerialized(byte[] bytes, int offset) {
+        return bytes.length >= offset + 2 && bytes[offset] == SERIALIZATION_MAGIC_HIGH && bytes[offset + 1] == SERIALIZATION_MAGIC_LOW;
+    }
+
+    static byte[] serialize(Object value) {
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectStream = new ObjectOutputStream(byteStream)) {
+            objectStream.writeObject(value);
+        } catch (IOException e) {
+            throw new RopertyPersistenceException(String.format("Cannot serialize value '%s'", value), e);
+        }
+        return byteStream.toByteArray();
+    }
+
+    static Object deserialize(byte[] bytes, int offset, int length) {
+        try (ObjectInputStream objectStream = new ObjectInputStream(new ByteArrayInputStream(bytes, offset, length))) {
+            return objectStream.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RopertyPersistenceException("Cannot deserialize value", e);
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.parship.roperty.persistence.jpa;
+
+public enum ValueType {
+
+    STRING,
+    INTEGER,
+    LONG,
+    BOOLEAN,
+    DOUBLE,
+    SERIALIZED;
+
+    static final int MAX_STRING_LENGTH = 4000;
+
+    static ValueType of(Object value, ValueCodec valueCodec) {
+        if (value == null) {
+            return null;
+        }
+        Class<?> valueClass = value.getClass();
+        if (valueClass == String.class) {
+            String string = (String) value;
+            return string.length() <= MAX_STRING_LENGTH && !isCompressedBy(valueCodec, string) ? STRING : SERIALIZED;
+        }
+        if (valueClass == Integer.class) {
+            return INTEGER;
+        }
+        if (valueClass == Long.class) {
+            return LONG;
+        }
+        if (valueClass == Boolean.class) {
+            return BOOLEAN;
+        }
+        if (valueClass == Double.class) {
+            return DOUBLE;
+        }
+        return SERIALIZED;
+    }
+
+    private static boolean isCompressedBy(ValueCodec valueCodec, String string) {
+        return valueCodec instanceof CompressingValueCodec && ((CompressingValueCodec) valueCodec).exceedsThreshold(string);
+    }
+}
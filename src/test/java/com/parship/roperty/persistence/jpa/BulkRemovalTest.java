@@ -0,0 +1,111 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.DomainSpecificValue;
+import com.parship.roperty.KeyValues;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.parship.roperty.persistence.jpa.H2Fixture.domainSpecificValue;
+import static com.parship.roperty.persistence.jpa.H2Fixture.keyValues;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class BulkRemovalTest {
+
+    private static final String KEY = "key";
+    private static final int NUM_VALUES = 100;
+
+    private H2Fixture h2Fixture;
+
+    private JpaPersistence jpaPersistence;
+
+    private RopertyKeyDAO ropertyKeyDAO;
+
+    private RopertyValueDAO ropertyValueDAO;
+
+    @Before
+    public void initializeRelationPersistence() {
+        h2Fixture = new H2Fixture("roperty_bulk_removal_test");
+        ropertyKeyDAO = h2Fixture.getRopertyKeyDAO();
+        ropertyValueDAO = h2Fixture.getRopertyValueDAO();
+
+        jpaPersistence = h2Fixture.createJpaPersistence();
+        jpaPersistence.setBulkRemoval(true);
+
+        Set<DomainSpecificValue> domainSpecificValues = new HashSet<>();
+        for (int i = 0; i < NUM_VALUES; i++) {
+            domainSpecificValues.add(domainSpecificValue("pattern" + i, "value"));
+        }
+        jpaPersistence.store(KEY, keyValues(domainSpecificValues), "");
+    }
+
+    @After
+    public void closeEntityManagerFactory() {
+        h2Fixture.close();
+    }
+
+    @Test
+    public void removingKeyNeedsConstantNumberOfStatements() {
+        Statistics statistics = h2Fixture.clearedStatistics();
+
+        jpaPersistence.remove(KEY, (KeyValues) null, "");
+
+        assertThat(statistics.getPrepareStatementCount(), is(2L));
+        assertThat(ropertyKeyDAO.loadRopertyKey(KEY), nullValue());
+        assertThat(ropertyValueDAO.loadAllRopertyValues(), empty());
+    }
+
+    @Test
+    public void removingSomeValuesKeepsKey() {
+        Statistics statistics = h2Fixture.clearedStatistics();
+
+        Set<DomainSpecificValue> removedValues = new HashSet<>();
+        for (int i = 2; i < NUM_VALUES; i++) {
+            removedValues.add(domainSpecificValue("pattern" + i, "value"));
+        }
+        jpaPersistence.remove(KEY, keyValues(removedValues), "");
+
+        assertThat(statistics.getPrepareStatementCount(), is(3L));
+        List<RopertyValue> ropertyValues = ropertyValueDAO.loadRopertyValues(singletonList(KEY));
+        assertThat(asList(ropertyValues.get(0).getPattern(), ropertyValues.get(1).getPattern()), containsInAnyOrder("pattern0", "pattern1"));
+        assertThat(ropertyValues.size(), is(2));
+        assertThat(ropertyKeyDAO.loadRopertyKey(KEY).getId(), is(KEY));
+    }
+
+    @Test
+    public void removingLastValuesRemovesKey() {
+        Set<DomainSpecificValue> removedValues = new HashSet<>();
+        for (int i = 0; i < NUM_VALUES; i++) {
+            removedValues.add(domainSpecificValue("pattern" + i, "value"));
+        }
+        jpaPersistence.remove(KEY, keyValues(removedValues), "");
+
+        assertThat(ropertyKeyDAO.loadRopertyKey(KEY), nullValue());
+        assertThat(ropertyValueDAO.loadAllRopertyValues(), empty());
+    }
+
+    @Test
+    public void removingValuesKeepsThoseOfOtherChangeSets() {
+        jpaPersistence.store(KEY, keyValues(domainSpecificValue("pattern0", "released")), "release");
+
+        jpaPersistence.remove(KEY, keyValues(domainSpecificValue("pattern0", "released")), "release");
+
+        List<RopertyValue> ropertyValues = ropertyValueDAO.loadRopertyValues(singletonList(KEY));
+        assertThat(ropertyValues.size(), is(NUM_VALUES));
+        assertThat(ropertyValues.stream().map(RopertyValue::getChangeSet).distinct().collect(Collectors.toList()), contains(""));
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.DomainSpecificValue;
+import com.parship.roperty.DomainSpecificValueFactory;
+import com.parship.roperty.KeyValues;
+import com.parship.roperty.KeyValuesFactory;
+import com.parship.roperty.Persistence;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingPersistenceTest {
+
+    private static final String KEY = "key";
+    private static final String CHANGE_SET = "changeSet";
+
+    @InjectMocks
+    private CachingPersistence cachingPersistence = new CachingPersistence();
+
+    @Mock
+    private Persistence persistence;
+
+    @Mock
+    private KeyValuesFactory keyValuesFactory;
+
+    @Mock
+    private DomainSpecificValueFactory domainSpecificValueFactory;
+
+    @Mock
+    private KeyValues keyValues;
+
+    @Mock
+    private DomainSpecificValue domainSpecificValue;
+
+    @Mock
+    private DomainSpecificValue otherDomainSpecificValue;
+
+    @Test
+    public void repeatedLoadsShouldBeServedFromCache() {
+        when(persistence.load(KEY, keyValuesFactory, domainSpecificValueFactory)).thenReturn(keyValues);
+
+        KeyValues first = cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+        KeyValues second = cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(first, is(keyValues));
+        assertThat(second, is(keyValues));
+        verify(persistence).load(KEY, keyValuesFactory, domainSpecificValueFactory);
+        assertThat(cachingPersistence.getHitCount(), is(1L));
+        assertThat(cachingPersistence.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void missingKeysShouldBeCached() {
+        KeyValues first = cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+        KeyValues second = cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(first, nullValue());
+        assertThat(second, nullValue());
+        verify(persistence).load(KEY, keyValuesFactory, domainSpecificValueFactory);
+    }
+
+    @Test
+    public void missingKeysShouldBeLoadedAgainAfterTheirLifetime() throws InterruptedException {
+        cachingPersistence.setNegativeEntryLifetime(1, TimeUnit.MILLISECONDS);
+
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+        Thread.sleep(2);
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(persistence, times(2)).load(KEY, keyValuesFactory, domainSpecificValueFactory);
+    }
+
+    @Test
+    public void loadsShouldBeCachedWhileOtherKeysAreStored() {
+        when(persistence.load(KEY, keyValuesFactory, domainSpecificValueFactory)).thenAnswer(invocation -> {
+            cachingPersistence.store("otherKey", keyValues, CHANGE_SET);
+            return keyValues;
+        });
+
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(persistence).load(KEY, keyValuesFactory, domainSpecificValueFactory);
+    }
+
+    @Test
+    public void entriesShouldBeWeightedByNumberOfValues() {
+        when(persistence.load(KEY, keyValuesFactory, domainSpecificValueFactory)).thenReturn(keyValues);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(asList(domainSpecificValue, otherDomainSpecificValue)));
+
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(cachingPersistence.getWeight(), is(2L));
+    }
+
+    @Test
+    public void evictedEntriesShouldBeLoadedAgain() {
+        cachingPersistence.setMaximumWeight(1);
+
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+        cachingPersistence.load("otherKey", keyValuesFactory, domainSpecificValueFactory);
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(persistence, times(2)).load(KEY, keyValuesFactory, domainSpecificValueFactory);
+        assertThat(cachingPersistence.getEvictionCount(), is(2L));
+    }
+
+    @Test
+    public void storeShouldInvalidateKey() {
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        cachingPersistence.store(KEY, keyValues, CHANGE_SET);
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(persistence).store(KEY, keyValues, CHANGE_SET);
+        verify(persistence, times(2)).load(KEY, keyValuesFactory, domainSpecificValueFactory);
+    }
+
+    @Test
+    public void removeShouldInvalidateKey() {
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        cachingPersistence.remove(KEY, keyValues, CHANGE_SET);
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+        cachingPersistence.remove(KEY, domainSpecificValue, CHANGE_SET);
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(persistence).remove(KEY, keyValues, CHANGE_SET);
+        verify(persistence).remove(KEY, domainSpecificValue, CHANGE_SET);
+        verify(persistence, times(3)).load(KEY, keyValuesFactory, domainSpecificValueFactory);
+    }
+
+    @Test
+    public void reloadShouldInvalidateAllKeys() {
+        Map<String, KeyValues> keyValuesMap = new HashMap<>();
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        cachingPersistence.reload(keyValuesMap, keyValuesFactory, domainSpecificValueFactory);
+        cachingPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(persistence).reload(keyValuesMap, keyValuesFactory, domainSpecificValueFactory);
+        verify(persistence, times(2)).load(KEY, keyValuesFactory, domainSpecificValueFactory);
+    }
+
+    @Test
+    public void shouldDelegateKeyQueries() {
+        cachingPersistence.findKeys(KEY);
+        cachingPersistence.getAllKeys();
+
+        verify(persistence).findKeys(KEY);
+        verify(persistence).getAllKeys();
+    }
+
+}
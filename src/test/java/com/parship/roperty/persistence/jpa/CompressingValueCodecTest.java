@@ -0,0 +1,144 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertThat;
+
+public class CompressingValueCodecTest {
+
+    private final CompressingValueCodec valueCodec = new CompressingValueCodec();
+
+    private List<String> largeValue;
+
+    @Before
+    public void createLargeValue() {
+        largeValue = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            largeValue.add("{\"country\": \"DE\", \"channel\": \"mobile\", \"index\": " + i + '}');
+        }
+    }
+
+    @Test
+    public void compressesValuesAboveThreshold() {
+        byte[] uncompressed = new SerializationValueCodec().encode(largeValue);
+
+        byte[] bytes = valueCodec.encode(largeValue);
+
+        assertThat(bytes[0], is(ValueCodecs.COMPRESSED));
+        assertThat(bytes.length, lessThan(uncompressed.length / 4));
+        assertThat(valueCodec.decode(bytes), is((Object) largeValue));
+        assertThat(new TaggedValueCodec().decode(bytes), is((Object) largeValue));
+    }
+
+    @Test
+    public void compressesOutputOfGivenCodec() {
+        valueCodec.setValueCodec(new TaggedValueCodec());
+
+        byte[] bytes = valueCodec.encode(largeValue);
+
+        assertThat(bytes[0], is(ValueCodecs.COMPRESSED));
+        assertThat(new SerializationValueCodec().decode(bytes), is((Object) largeValue));
+    }
+
+    @Test
+    public void leavesSmallValuesUncompressed() {
+        assertArrayEquals(new SerializationValueCodec().encode("small"), valueCodec.encode("small"));
+        assertThat(valueCodec.getCompressedValueCount(), is(0L));
+    }
+
+    @Test
+    public void leavesIncompressibleValuesUncompressed() {
+        byte[] randomBytes = new byte[4096];
+        new Random(4711).nextBytes(randomBytes);
+
+        byte[] bytes = valueCodec.encode(randomBytes);
+
+        assertArrayEquals(new SerializationValueCodec().encode(randomBytes), bytes);
+        assertArrayEquals(randomBytes, (byte[]) valueCodec.decode(bytes));
+    }
+
+    @Test
+    public void recordsCompressionRatio() {
+        assertThat(valueCodec.getCompressionRatio(), is(1.0));
+
+        byte[] bytes = valueCodec.encode(largeValue);
+
+        assertThat(valueCodec.getCompressedValueCount(), is(1L));
+        assertThat(valueCodec.getCompressedBytes(), is((long) bytes.length));
+        assertThat(valueCodec.getUncompressedBytes(), is((long) new SerializationValueCodec().encode(largeValue).length));
+        assertThat(valueCodec.getCompressionRatio(), lessThan(0.25));
+    }
+
+    @Test
+    public void compressesLongStringsStoredInValueColumn() {
+        String json = StringUtils.repeat("{\"key\": \"value\"}, ", 1000);
+        RopertyValue ropertyValue = new RopertyValue();
+
+        ropertyValue.setValue(json, valueCodec);
+
+        assertThat(ropertyValue.getValueType(), is(ValueType.SERIALIZED));
+        assertThat(ropertyValue.getValue(), is((Object) json));
+        assertThat(valueCodec.getCompressedValueCount(), is(1L));
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failOnCorruptCompressedValue() {
+        byte[] bytes = valueCodec.encode(largeValue);
+        valueCodec.decode(Arrays.copyOf(bytes, bytes.length / 2));
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failOnCompressedValueLongerThanMaximum() {
+        byte[] bytes = valueCodec.encode(largeValue);
+        valueCodec.setMaximumDecompressedLength(bytes.length);
+
+        valueCodec.decode(bytes);
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failOnHugeLengthOfCompressedValue() {
+        byte[] bytes = valueCodec.encode(largeValue);
+        bytes[1] = (byte) 0x7F;
+
+        valueCodec.decode(bytes);
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failOnCompressedValueShorterThanItsLength() {
+        byte[] bytes = valueCodec.encode(largeValue);
+        bytes[4]++;
+
+        valueCodec.decode(bytes);
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failOnCompressedValueLongerThanItsLength() {
+        byte[] bytes = valueCodec.encode(largeValue);
+        bytes[4]--;
+
+        valueCodec.decode(bytes);
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failOnTrailingBytesOfCompressedValue() {
+        byte[] bytes = valueCodec.encode(largeValue);
+
+        valueCodec.decode(Arrays.copyOf(bytes, bytes.length + 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failOnInvalidCompressionLevel() {
+        valueCodec.setCompressionLevel(10);
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.KeyValues;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.parship.roperty.persistence.jpa.H2Fixture.domainSpecificValue;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ConcurrentStoreTest {
+
+    private static final int NUM_THREADS = 8;
+    private static final int NUM_KEYS_PER_THREAD = 100;
+    private static final int NUM_INCREMENTS_PER_THREAD = 25;
+
+    private H2Fixture h2Fixture;
+
+    private JpaPersistence jpaPersistence;
+
+    private RopertyKeyDAO ropertyKeyDAO;
+
+    private RopertyValueDAO ropertyValueDAO;
+
+    private TransactionManager transactionManager;
+
+    @Before
+    public void initializeRelationPersistence() {
+        h2Fixture = new H2Fixture("roperty_concurrent_store_test;LOCK_TIMEOUT=10000");
+        ropertyKeyDAO = h2Fixture.getRopertyKeyDAO();
+        ropertyValueDAO = h2Fixture.getRopertyValueDAO();
+        transactionManager = h2Fixture.getTransactionManager();
+        jpaPersistence = h2Fixture.createJpaPersistence();
+    }
+
+    @After
+    public void closeEntityManagerFactory() {
+        h2Fixture.close();
+    }
+
+    @Test
+    public void concurrentStoresRunInIndependentTransactions() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(NUM_THREADS);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>(NUM_THREADS);
+        for (int thread = 0; thread < NUM_THREADS; thread++) {
+            int threadIndex = thread;
+            futures.add(executorService.submit((Callable<Void>) () -> {
+                startSignal.await();
+                for (int i = 0; i < NUM_KEYS_PER_THREAD; i++) {
+                    String key = "key" + threadIndex + '_' + i;
+                    jpaPersistence.store(key, keyValues(key, "value"), "");
+                    jpaPersistence.store(key, keyValues(key, "changedValue"), "");
+                }
+                return null;
+            }));
+        }
+        startSignal.countDown();
+        for (Future<Void> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+
+        assertThat(ropertyKeyDAO.loadAllRopertyKeys().size(), is(NUM_THREADS * NUM_KEYS_PER_THREAD));
+        List<RopertyValue> ropertyValues = ropertyValueDAO.loadAllRopertyValues();
+        assertThat(ropertyValues.size(), is(2 * NUM_THREADS * NUM_KEYS_PER_THREAD));
+        for (RopertyValue ropertyValue : ropertyValues) {
+            if (ropertyValue.getPattern().isEmpty()) {
+                assertThat(ropertyValue.getValue(), is(ropertyValue.getKey().getId()));
+            } else {
+                assertThat(ropertyValue.getValue(), is("changedValue"));
+            }
+        }
+    }
+
+    @Test
+    public void concurrentCompareAndSetStoresLoseNoUpdates() throws Exception {
+        assertThat(jpaPersistence.storeIfUnchanged("counter", keyValues("counter", "0"), "", null), is(true));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(NUM_THREADS);
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>(NUM_THREADS);
+        for (int thread = 0; thread < NUM_THREADS; thread++) {
+            futures.add(executorService.submit((Callable<Void>) () -> {
+                startSignal.await();
+                for (int i = 0; i < NUM_INCREMENTS_PER_THREAD; i++) {
+                    boolean stored;
+                    do {
+                        Long version = jpaPersistence.getVersion("counter");
+                        int counter = Integer.parseInt(String.valueOf(mobileValue("counter")));
+                        stored = jpaPersistence.storeIfUnchanged("counter", keyValues("counter", String.valueOf(counter + 1)), "", version);
+                    } while (!stored);
+                }
+                return null;
+            }));
+        }
+        startSignal.countDown();
+        for (Future<Void> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executorService.shutdown();
+
+        assertThat(mobileValue("counter"), is(String.valueOf(NUM_THREADS * NUM_INCREMENTS_PER_THREAD)));
+        assertThat(jpaPersistence.getVersion("counter"), is((long) NUM_THREADS * NUM_INCREMENTS_PER_THREAD));
+    }
+
+    @Test
+    public void compareAndSetStoreFailsForStaleVersion() {
+        jpaPersistence.store("key", keyValues("key", "value"), "");
+        Long version = jpaPersistence.getVersion("key");
+        jpaPersistence.store("key", keyValues("key", "otherValue"), "");
+
+        assertThat(jpaPersistence.storeIfUnchanged("key", keyValues("key", "staleValue"), "", version), is(false));
+        assertThat(jpaPersistence.storeIfUnchanged("key", keyValues("key", "staleValue"), "", null), is(false));
+        assertThat(mobileValue("key"), is("otherValue"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void transactionIsNotVisibleToOtherThreads() throws Throwable {
+        transactionManager.begin();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(() -> transactionManager.end()).get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } finally {
+            executorService.shutdown();
+            transactionManager.end();
+        }
+    }
+
+    private Object mobileValue(String key) {
+        for (RopertyValue ropertyValue : ropertyValueDAO.loadRopertyValues(singletonList(key))) {
+            if (!ropertyValue.getPattern().isEmpty()) {
+                return ropertyValue.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static KeyValues keyValues(String defaultValue, String mobileValue) {
+        return H2Fixture.keyValues(domainSpecificValue("", defaultValue), domainSpecificValue("DE|mobile", mobileValue));
+    }
+
+}
@@ -0,0 +1,133 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.DomainSpecificValueFactory;
+import com.parship.roperty.KeyValues;
+import com.parship.roperty.KeyValuesFactory;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import static com.parship.roperty.persistence.jpa.H2Fixture.domainSpecificValue;
+import static com.parship.roperty.persistence.jpa.H2Fixture.keyValues;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CustomValueCodecTest {
+
+    private static final String KEY = "price";
+
+    private static final Money PRICE = new Money(4711, "EUR");
+
+    private H2Fixture h2Fixture;
+
+    private JpaPersistence jpaPersistence;
+
+    private KeyValuesFactory keyValuesFactory;
+
+    private DomainSpecificValueFactory domainSpecificValueFactory;
+
+    private KeyValues keyValues;
+
+    @Before
+    public void initializeRelationPersistence() {
+        h2Fixture = new H2Fixture("roperty_custom_value_codec_test");
+        jpaPersistence = h2Fixture.createJpaPersistence();
+        keyValuesFactory = mock(KeyValuesFactory.class);
+        domainSpecificValueFactory = mock(DomainSpecificValueFactory.class);
+        keyValues = mock(KeyValues.class);
+        when(keyValuesFactory.create(domainSpecificValueFactory)).thenReturn(keyValues);
+    }
+
+    @After
+    public void closeEntityManagerFactory() {
+        h2Fixture.close();
+    }
+
+    @Test
+    public void loadsValuesWithConfiguredCodec() {
+        jpaPersistence.setValueCodec(new MoneyValueCodec());
+
+        jpaPersistence.store(KEY, keyValues(domainSpecificValue("DE", PRICE)), "");
+        jpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(keyValues).put(PRICE, "DE");
+    }
+
+    @Test
+    public void storingUnchangedValueDecodesWithConfiguredCodec() {
+        jpaPersistence.setValueCodec(new MoneyValueCodec());
+        jpaPersistence.store(KEY, keyValues(domainSpecificValue("DE", PRICE)), "");
+
+        jpaPersistence.store(KEY, keyValues(domainSpecificValue("DE", new Money(4711, "EUR"))), "");
+
+        RopertyValue ropertyValue = h2Fixture.getRopertyValueDAO().readRopertyValues(singletonList(KEY)).get(0);
+        assertThat(ropertyValue.getValue(new MoneyValueCodec()), is((Object) PRICE));
+        assertThat(ropertyValue.getVersion(), is(0L));
+    }
+
+    @Test
+    public void compressingCodecDecodesWithWrappedCodec() {
+        CompressingValueCodec valueCodec = new CompressingValueCodec();
+        valueCodec.setValueCodec(new MoneyValueCodec());
+        valueCodec.setThreshold(0);
+        jpaPersistence.setValueCodec(valueCodec);
+        Money price = new Money(4711, StringUtils.repeat("EUR", 100));
+
+        jpaPersistence.store(KEY, keyValues(domainSpecificValue("DE", price)), "");
+        jpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(keyValues).put(price, "DE");
+        assertThat(valueCodec.getCompressedValueCount(), is(1L));
+    }
+
+    private static class Money {
+
+        private final long amount;
+
+        private final String currency;
+
+        private Money(long amount, String currency) {
+            this.amount = amount;
+            this.currency = currency;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Money && ((Money) other).amount == amount && ((Money) other).currency.equals(currency);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(amount, currency);
+        }
+    }
+
+    private static class MoneyValueCodec implements ValueCodec {
+
+        @Override
+        public boolean canEncode(Object value) {
+            return value instanceof Money;
+        }
+
+        @Override
+        public byte[] encode(Object value) {
+            Money money = (Money) value;
+            return (money.amount + " " + money.currency).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Object decode(byte[] bytes) {
+            String[] parts = new String(bytes, StandardCharsets.UTF_8).split(" ");
+            return new Money(Long.parseLong(parts[0]), parts[1]);
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.DomainSpecificValue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.parship.roperty.persistence.jpa.H2Fixture.domainSpecificValue;
+import static com.parship.roperty.persistence.jpa.H2Fixture.keyValues;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FailedStoreTest {
+
+    private static final String KEY = "key";
+
+    private H2Fixture h2Fixture;
+
+    private JpaPersistence jpaPersistence;
+
+    @Before
+    public void initializeRelationPersistence() {
+        h2Fixture = new H2Fixture("roperty_failed_store_test");
+        jpaPersistence = h2Fixture.createJpaPersistence();
+    }
+
+    @After
+    public void closeEntityManagerFactory() {
+        h2Fixture.close();
+    }
+
+    @Test
+    public void failedStoreLeavesNoTransactionContextBehind() {
+        DomainSpecificValue failingValue = mock(DomainSpecificValue.class);
+        when(failingValue.getPatternStr()).thenReturn("");
+        when(failingValue.getValue()).thenThrow(new IllegalStateException("failure"));
+
+        try {
+            jpaPersistence.store(KEY, keyValues(failingValue), "");
+            fail("Store should have failed");
+        } catch (IllegalStateException e) {
+            assertNoTransactionStarted();
+        }
+
+        assertThat(h2Fixture.getRopertyKeyDAO().loadRopertyKey(KEY), nullValue());
+        jpaPersistence.store(KEY, keyValues(domainSpecificValue("", "value")), "");
+        assertThat(h2Fixture.getRopertyValueDAO().readRopertyValues(singletonList(KEY)).get(0).getValue(), is("value"));
+    }
+
+    @Test
+    public void failedRemovalLeavesNoTransactionContextBehind() {
+        jpaPersistence.store(KEY, keyValues(domainSpecificValue("", "value")), "");
+
+        try {
+            jpaPersistence.remove(KEY, domainSpecificValue("", null), "");
+            fail("Removing a null value should fail");
+        } catch (RopertyPersistenceException e) {
+            assertNoTransactionStarted();
+        }
+    }
+
+    private void assertNoTransactionStarted() {
+        try {
+            h2Fixture.getTransactionManager().getEntityManager();
+            fail("The failed call should have rolled back its transaction");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), is("No transaction started yet. You need to call begin first"));
+        }
+    }
+
+}
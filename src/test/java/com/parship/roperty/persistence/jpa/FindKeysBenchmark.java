@@ -0,0 +1,68 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FindKeysBenchmark {
+
+    private static final String[] SECTIONS = {"checkout", "profile", "search", "messaging", "billing"};
+
+    @Param({"40000"})
+    private int numKeys;
+
+    @Param({"key.001234", "messaging.retry", "KEY.0399"})
+    private String substring;
+
+    private H2Fixture h2Fixture;
+
+    private JpaPersistence databaseJpaPersistence;
+
+    private JpaPersistence indexedJpaPersistence;
+
+    @Setup(Level.Trial)
+    public void createSyntheticDataset() {
+        h2Fixture = new H2Fixture("roperty_find_keys_benchmark;DB_CLOSE_DELAY=-1");
+        h2Fixture.persistKeys(numKeys, i -> String.format("%s.%s.key.%06d", SECTIONS[i % SECTIONS.length], i % 7 == 0 ? "retry" : "limit", i), null);
+
+        databaseJpaPersistence = h2Fixture.createJpaPersistence();
+        indexedJpaPersistence = h2Fixture.createJpaPersistence();
+        indexedJpaPersistence.setIndexedKeySearch(true);
+        indexedJpaPersistence.findKeys(substring);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeEntityManagerFactory() {
+        h2Fixture.close();
+    }
+
+    @Benchmark
+    public List<String> findKeysInDatabase() {
+        return databaseJpaPersistence.findKeys(substring);
+    }
+
+    @Benchmark
+    public List<String> findKeysInIndex() {
+        return indexedJpaPersistence.findKeys(substring);
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.DomainSpecificValue;
+import com.parship.roperty.KeyValues;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class H2Fixture {
+
+    private static final int FLUSH_INTERVAL = 1000;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final RopertyKeyDAO ropertyKeyDAO = new RopertyKeyDAO();
+
+    private final RopertyValueDAO ropertyValueDAO = new RopertyValueDAO();
+
+    private final TransactionManager transactionManager = new TransactionManager();
+
+    H2Fixture(String databaseName) {
+        this(databaseName, Collections.emptyMap());
+    }
+
+    H2Fixture(String databaseName, Map<String, String> additionalProperties) {
+        Map<String, String> properties = new HashMap<>(additionalProperties);
+        properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:" + databaseName);
+        properties.put("hibernate.show_sql", "false");
+        entityManagerFactory = Persistence.createEntityManagerFactory("h2", properties);
+
+        QueryBuilderDelegate<RopertyKey> keyQueryBuilderDelegate = new QueryBuilderDelegate<>();
+        keyQueryBuilderDelegate.setEntityManagerFactory(entityManagerFactory);
+        keyQueryBuilderDelegate.setQueryBuilder(new QueryBuilder<>());
+        keyQueryBuilderDelegate.setResultClass(RopertyKey.class);
+        ropertyKeyDAO.setQueryBuilderDelegate(keyQueryBuilderDelegate);
+
+        QueryBuilderDelegate<RopertyValue> valueQueryBuilderDelegate = new QueryBuilderDelegate<>();
+        valueQueryBuilderDelegate.setEntityManagerFactory(entityManagerFactory);
+        valueQueryBuilderDelegate.setQueryBuilder(new QueryBuilder<>());
+        valueQueryBuilderDelegate.setResultClass(RopertyValue.class);
+        ropertyValueDAO.setQueryBuilderDelegate(valueQueryBuilderDelegate);
+
+        transactionManager.setEntityManagerFactory(entityManagerFactory);
+    }
+
+    JpaPersistence createJpaPersistence() {
+        return wire(new JpaPersistence());
+    }
+
+    <T extends JpaPersistence> T wire(T jpaPersistence) {
+        jpaPersistence.setTransactionManager(transactionManager);
+        jpaPersistence.setRopertyKeyDAO(ropertyKeyDAO);
+        jpaPersistence.setRopertyValueDAO(ropertyValueDAO);
+        return jpaPersistence;
+    }
+
+    void persistKeys(String... keys) {
+        persistKeys(keys.length, i -> keys[i], null);
+    }
+
+    void persistKeys(int numKeys, IntFunction<String> keyName, BiFunction<Integer, String, Serializable> value, String... patterns) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        entityManager.getTransaction().begin();
+        for (int i = 0; i < numKeys; i++) {
+            RopertyKey ropertyKey = new RopertyKey();
+            ropertyKey.setId(keyName.apply(i));
+            entityManager.persist(ropertyKey);
+            for (String pattern : patterns) {
+                RopertyValue ropertyValue = new RopertyValue();
+                ropertyValue.setKey(ropertyKey);
+                ropertyValue.setPattern(pattern);
+                ropertyValue.setChangeSet("");
+                ropertyValue.setValue(value.apply(i, pattern));
+                entityManager.persist(ropertyValue);
+            }
+            if (i % FLUSH_INTERVAL == FLUSH_INTERVAL - 1) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.getTransaction().commit();
+        entityManager.close();
+    }
+
+    Statistics clearedStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+
+    void close() {
+        entityManagerFactory.close();
+    }
+
+    EntityManagerFactory getEntityManagerFactory() {
+        return entityManagerFactory;
+    }
+
+    RopertyKeyDAO getRopertyKeyDAO() {
+        return ropertyKeyDAO;
+    }
+
+    RopertyValueDAO getRopertyValueDAO() {
+        return ropertyValueDAO;
+    }
+
+    TransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    static KeyValues keyValues(DomainSpecificValue... domainSpecificValues) {
+        return keyValues(new HashSet<>(Arrays.asList(domainSpecificValues)));
+    }
+
+    static KeyValues keyValues(Set<DomainSpecificValue> domainSpecificValues) {
+        KeyValues keyValues = mock(KeyValues.class);
+        when(keyValues.getDomainSpecificValues()).thenReturn(domainSpecificValues);
+        return keyValues;
+    }
+
+    static DomainSpecificValue domainSpecificValue(String pattern, Object value) {
+        DomainSpecificValue domainSpecificValue = mock(DomainSpecificValue.class);
+        when(domainSpecificValue.getPatternStr()).thenReturn(pattern);
+        when(domainSpecificValue.getValue()).thenReturn(value);
+        when(domainSpecificValue.changeSetIs(null)).thenReturn(true);
+        return domainSpecificValue;
+    }
+
+}
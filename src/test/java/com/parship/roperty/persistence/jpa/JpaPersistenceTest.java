@@ -11,17 +11,28 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import javax.persistence.EntityManager;
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -71,39 +82,39 @@ public class JpaPersistenceTest {
     @Mock
     private DomainSpecificValue domainSpecificValue;
 
+    @Mock
+    private EntityManager entityManager;
+
     @Test
     public void loadShouldReturnNullIfNoRopertyKeyFound() {
         KeyValues keyValues = jpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
         assertThat(keyValues, Matchers.nullValue());
     }
 
-    @Test(expected = IllegalArgumentException.class)
-    public void loadShouldFailNullIfNoRopertyValuesFound() {
-        when(ropertyKeyDAO.loadRopertyKey(KEY)).thenReturn(ropertyKey);
-        KeyValues keyValues = jpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
-        assertThat(keyValues, Matchers.nullValue());
+    @Test
+    public void loadShouldNeedASingleQuery() {
+        jpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO);
     }
 
     @Test(expected = NullPointerException.class)
     public void failIfRopertyValuePatternIsNull() throws Exception {
-        when(ropertyKeyDAO.loadRopertyKey(KEY)).thenReturn(ropertyKey);
-        when(ropertyValueDAO.loadRopertyValues(ropertyKey)).thenReturn(singletonList(ropertyValue));
+        when(ropertyValueDAO.readRopertyValues(singletonList(KEY))).thenReturn(singletonList(ropertyValue));
 
         jpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
     }
 
     @Test(expected = NullPointerException.class)
     public void failIfKeyValuesIsNull() throws Exception {
-        when(ropertyKeyDAO.loadRopertyKey(KEY)).thenReturn(ropertyKey);
-        when(ropertyValueDAO.loadRopertyValues(ropertyKey)).thenReturn(singletonList(ropertyValue));
+        when(ropertyValueDAO.readRopertyValues(singletonList(KEY))).thenReturn(singletonList(ropertyValue));
 
         jpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
     }
 
     @Test(expected = NullPointerException.class)
     public void failIfRopertyValueHasNoKey() throws Exception {
-        when(ropertyKeyDAO.loadRopertyKey(KEY)).thenReturn(ropertyKey);
-        when(ropertyValueDAO.loadRopertyValues(ropertyKey)).thenReturn(singletonList(ropertyValue));
+        when(ropertyValueDAO.readRopertyValues(singletonList(KEY))).thenReturn(singletonList(ropertyValue));
         when(ropertyValue.getPattern()).thenReturn("pattern");
         when(keyValuesFactory.create(domainSpecificValueFactory)).thenReturn(keyValues);
 
@@ -112,23 +123,21 @@ public class JpaPersistenceTest {
 
     @Test
     public void loadShouldReturnKeyValues() throws Exception {
-        when(ropertyKeyDAO.loadRopertyKey(KEY)).thenReturn(ropertyKey);
-        when(ropertyValueDAO.loadRopertyValues(ropertyKey)).thenReturn(singletonList(ropertyValue));
+        when(ropertyValueDAO.readRopertyValues(singletonList(KEY))).thenReturn(singletonList(ropertyValue));
         when(ropertyValue.getPattern()).thenReturn(PATTERN);
         when(ropertyValue.getKey()).thenReturn(ropertyKey);
         when(ropertyValue.getChangeSet()).thenReturn(CHANGE_SET);
-        when(ropertyValue.getValue()).thenReturn(value);
+        when(ropertyValue.getValue(any(ValueCodec.class))).thenReturn(value);
         when(keyValuesFactory.create(domainSpecificValueFactory)).thenReturn(keyValues);
         when(ropertyKey.getDescription()).thenReturn(DESCRIPTION);
 
         KeyValues result = jpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
 
-        verify(ropertyKeyDAO).loadRopertyKey(KEY);
-        verify(ropertyValueDAO).loadRopertyValues(ropertyKey);
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
         verify(keyValuesFactory).create(domainSpecificValueFactory);
         verify(ropertyKey).getDescription();
         verify(ropertyValue).getPattern();
-        verify(ropertyValue).getValue();
+        verify(ropertyValue).getValue(any(ValueCodec.class));
         verify(ropertyValue).getKey();
         verify(ropertyValue).getChangeSet();
         verify(keyValues).putWithChangeSet(CHANGE_SET, value, DOMAIN_KEY_PART_1, DOMAIN_KEY_PART_2);
@@ -136,50 +145,172 @@ public class JpaPersistenceTest {
         assertThat(result, Matchers.is(keyValues));
     }
 
-    @Test(expected = IllegalArgumentException.class)
+    @Test(expected = NullPointerException.class)
     public void failIfLoadAllAndNotKeyGiven() throws Exception {
-        when(ropertyKeyDAO.loadAllRopertyKeys()).thenReturn(singletonList(ropertyKey));
+        readAllRopertyValues(singletonList(ropertyValue));
         jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
     }
 
-    @Test(expected = IllegalArgumentException.class)
-    public void failIfNoValuesFound() throws Exception {
-        when(ropertyKeyDAO.loadAllRopertyKeys()).thenReturn(singletonList(ropertyKey));
-        when(ropertyKey.getId()).thenReturn(KEY);
+    @Test
+    public void loadAllReturnsEmptyMapIfNoValuesFound() throws Exception {
+        Map<String, KeyValues> result = jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
 
-        jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+        verify(ropertyValueDAO).readAllRopertyValues(any(Consumer.class));
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO, keyValuesFactory);
+        assertThat(result.isEmpty(), Matchers.is(true));
     }
 
     @Test
     public void loadAll() throws Exception {
-        when(ropertyKeyDAO.loadAllRopertyKeys()).thenReturn(singletonList(ropertyKey));
+        readAllRopertyValues(singletonList(ropertyValue));
         when(ropertyKey.getId()).thenReturn(KEY);
-        when(ropertyValueDAO.loadRopertyValues(ropertyKey)).thenReturn(singletonList(ropertyValue));
         when(keyValuesFactory.create(domainSpecificValueFactory)).thenReturn(keyValues);
         when(ropertyValue.getPattern()).thenReturn(PATTERN);
         when(ropertyValue.getKey()).thenReturn(ropertyKey);
         when(ropertyValue.getChangeSet()).thenReturn(CHANGE_SET);
-        when(ropertyValue.getValue()).thenReturn(value);
+        when(ropertyValue.getValue(any(ValueCodec.class))).thenReturn(value);
         when(ropertyKey.getDescription()).thenReturn(DESCRIPTION);
 
         Map<String, KeyValues> result = jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
 
-        verify(ropertyKeyDAO).loadAllRopertyKeys();
-        verify(ropertyValueDAO).loadRopertyValues(ropertyKey);
+        verify(ropertyValueDAO).readAllRopertyValues(any(Consumer.class));
         verify(keyValuesFactory).create(domainSpecificValueFactory);
-        verify(ropertyKey, times(2)).getId();
+        verify(ropertyKey).getId();
         verify(ropertyKey).getDescription();
         verify(ropertyValue).getPattern();
         verify(ropertyValue).getKey();
-        verify(ropertyValue).getValue();
+        verify(ropertyValue).getValue(any(ValueCodec.class));
         verify(ropertyValue).getChangeSet();
-        verify(ropertyValue).getValue();
         verify(keyValues).putWithChangeSet(CHANGE_SET, value, DOMAIN_KEY_PART_1, DOMAIN_KEY_PART_2);
         verify(keyValues).setDescription(DESCRIPTION);
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO);
         assertThat(result.get(KEY), Matchers.is(keyValues));
         assertThat(result.size(), Matchers.is(1));
     }
 
+    @Test
+    public void loadAllGroupsValuesByKey() throws Exception {
+        RopertyKey otherRopertyKey = mock(RopertyKey.class);
+        RopertyValue otherRopertyValue = mock(RopertyValue.class);
+        RopertyValue secondRopertyValue = mock(RopertyValue.class);
+        KeyValues otherKeyValues = mock(KeyValues.class);
+        readAllRopertyValues(Arrays.asList(ropertyValue, secondRopertyValue), singletonList(otherRopertyValue));
+        when(ropertyKey.getId()).thenReturn(KEY);
+        when(otherRopertyKey.getId()).thenReturn("otherKey");
+        when(keyValuesFactory.create(domainSpecificValueFactory)).thenReturn(keyValues, otherKeyValues);
+        when(ropertyValue.getPattern()).thenReturn(PATTERN);
+        when(ropertyValue.getKey()).thenReturn(ropertyKey);
+        when(ropertyValue.getChangeSet()).thenReturn("");
+        when(secondRopertyValue.getPattern()).thenReturn("");
+        when(secondRopertyValue.getKey()).thenReturn(ropertyKey);
+        when(secondRopertyValue.getChangeSet()).thenReturn("");
+        when(otherRopertyValue.getPattern()).thenReturn("");
+        when(otherRopertyValue.getKey()).thenReturn(otherRopertyKey);
+        when(otherRopertyValue.getChangeSet()).thenReturn(CHANGE_SET);
+
+        Map<String, KeyValues> result = jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        verify(keyValuesFactory, times(2)).create(domainSpecificValueFactory);
+        verify(keyValues).put(null, DOMAIN_KEY_PART_1, DOMAIN_KEY_PART_2);
+        verify(keyValues).put(null);
+        verify(otherKeyValues).putWithChangeSet(CHANGE_SET, null);
+        assertThat(result.get(KEY), Matchers.is(keyValues));
+        assertThat(result.get("otherKey"), Matchers.is(otherKeyValues));
+        assertThat(result.size(), Matchers.is(2));
+    }
+
+    @Test
+    public void loadAllStreamsKeyValuesInChunksOfKeys() throws Exception {
+        RopertyKey otherRopertyKey = mock(RopertyKey.class);
+        RopertyValue otherRopertyValue = mock(RopertyValue.class);
+        KeyValues otherKeyValues = mock(KeyValues.class);
+        when(ropertyKeyDAO.loadRopertyKeyIds(null, 1)).thenReturn(singletonList(KEY));
+        when(ropertyKeyDAO.loadRopertyKeyIds(KEY, 1)).thenReturn(singletonList("otherKey"));
+        when(ropertyKeyDAO.loadRopertyKeyIds("otherKey", 1)).thenReturn(Collections.emptyList());
+        when(ropertyValueDAO.readRopertyValues(singletonList(KEY))).thenReturn(singletonList(ropertyValue));
+        when(ropertyValueDAO.readRopertyValues(singletonList("otherKey"))).thenReturn(singletonList(otherRopertyValue));
+        when(keyValuesFactory.create(domainSpecificValueFactory)).thenReturn(keyValues, otherKeyValues);
+        when(ropertyKey.getId()).thenReturn(KEY);
+        when(otherRopertyKey.getId()).thenReturn("otherKey");
+        when(ropertyValue.getKey()).thenReturn(ropertyKey);
+        when(ropertyValue.getPattern()).thenReturn(PATTERN);
+        when(ropertyValue.getChangeSet()).thenReturn(CHANGE_SET);
+        when(otherRopertyValue.getKey()).thenReturn(otherRopertyKey);
+        when(otherRopertyValue.getPattern()).thenReturn("");
+        when(otherRopertyValue.getChangeSet()).thenReturn("");
+        jpaPersistence.setChunkSize(1);
+        Map<String, KeyValues> result = new LinkedHashMap<>();
+
+        jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory, result::put);
+
+        verify(ropertyKeyDAO).loadRopertyKeyIds(null, 1);
+        verify(ropertyKeyDAO).loadRopertyKeyIds(KEY, 1);
+        verify(ropertyKeyDAO).loadRopertyKeyIds("otherKey", 1);
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
+        verify(ropertyValueDAO).readRopertyValues(singletonList("otherKey"));
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO);
+        assertThat(result.keySet(), contains(KEY, "otherKey"));
+        assertThat(result.get(KEY), Matchers.is(keyValues));
+        assertThat(result.get("otherKey"), Matchers.is(otherKeyValues));
+    }
+
+    @Test
+    public void loadAllStopsStreamingAfterIncompleteChunk() throws Exception {
+        when(ropertyKeyDAO.loadRopertyKeyIds(null, 500)).thenReturn(singletonList(KEY));
+        Map<String, KeyValues> result = new HashMap<>();
+
+        jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory, result::put);
+
+        verify(ropertyKeyDAO).loadRopertyKeyIds(null, 500);
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO);
+        assertThat(result.isEmpty(), Matchers.is(true));
+    }
+
+    @Test
+    public void loadAllInParallelMergesPartitionsOfKeys() throws Exception {
+        RopertyKey otherRopertyKey = mock(RopertyKey.class);
+        RopertyValue otherRopertyValue = mock(RopertyValue.class);
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(Arrays.asList(KEY, "otherKey"));
+        when(ropertyValueDAO.readRopertyValues(KEY, KEY)).thenReturn(singletonList(ropertyValue));
+        when(ropertyValueDAO.readRopertyValues("otherKey", "otherKey")).thenReturn(singletonList(otherRopertyValue));
+        when(keyValuesFactory.create(domainSpecificValueFactory)).thenReturn(keyValues);
+        when(ropertyKey.getId()).thenReturn(KEY);
+        when(otherRopertyKey.getId()).thenReturn("otherKey");
+        when(ropertyValue.getKey()).thenReturn(ropertyKey);
+        when(ropertyValue.getPattern()).thenReturn(PATTERN);
+        when(ropertyValue.getChangeSet()).thenReturn(CHANGE_SET);
+        when(otherRopertyValue.getKey()).thenReturn(otherRopertyKey);
+        when(otherRopertyValue.getPattern()).thenReturn("");
+        when(otherRopertyValue.getChangeSet()).thenReturn("");
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        jpaPersistence.setExecutorService(executorService);
+        jpaPersistence.setChunkSize(1);
+
+        Map<String, KeyValues> result = jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+        executorService.shutdown();
+
+        verify(ropertyKeyDAO).loadRopertyKeyIds();
+        verify(ropertyValueDAO).readRopertyValues(KEY, KEY);
+        verify(ropertyValueDAO).readRopertyValues("otherKey", "otherKey");
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO);
+        assertThat(result.keySet(), containsInAnyOrder(KEY, "otherKey"));
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failIfLoadingAPartitionFails() throws Exception {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(singletonList(KEY));
+        when(ropertyValueDAO.readRopertyValues(KEY, KEY)).thenThrow(new IllegalStateException());
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        jpaPersistence.setExecutorService(executorService);
+
+        try {
+            jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
     @Test
     public void reloadWithEmptyMapReturnsEmptyMap() {
         Map<String, KeyValues> keyValuesMap = new HashMap<>();
@@ -196,7 +327,7 @@ public class JpaPersistenceTest {
 
         Map<String, KeyValues> result = jpaPersistence.reload(keyValuesMap, keyValuesFactory, domainSpecificValueFactory);
 
-        verify(ropertyKeyDAO).loadRopertyKey(KEY);
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
 
         assertThat(result.isEmpty(), Matchers.is(true));
     }
@@ -206,34 +337,101 @@ public class JpaPersistenceTest {
         KeyValues oldKeyValues = mock(KeyValues.class);
         Map<String, KeyValues> keyValuesMap = new HashMap<>();
         keyValuesMap.put(KEY, oldKeyValues);
-        when(ropertyKeyDAO.loadRopertyKey(KEY)).thenReturn(ropertyKey);
-        when(ropertyValueDAO.loadRopertyValues(ropertyKey)).thenReturn(Arrays.asList(ropertyValue));
+        when(ropertyValueDAO.readRopertyValues(singletonList(KEY))).thenReturn(Arrays.asList(ropertyValue));
         when(keyValuesFactory.create(domainSpecificValueFactory)).thenReturn(keyValues);
         when(ropertyValue.getKey()).thenReturn(ropertyKey);
         when(ropertyValue.getPattern()).thenReturn(PATTERN);
         when(ropertyValue.getChangeSet()).thenReturn(CHANGE_SET);
-        when(ropertyValue.getValue()).thenReturn(value);
+        when(ropertyValue.getValue(any(ValueCodec.class))).thenReturn(value);
         when(ropertyKey.getDescription()).thenReturn(DESCRIPTION);
         when(ropertyKey.getId()).thenReturn(KEY);
 
         Map<String, KeyValues> result = jpaPersistence.reload(keyValuesMap, keyValuesFactory, domainSpecificValueFactory);
 
-        verify(ropertyKeyDAO).loadRopertyKey(KEY);
-        verify(ropertyValueDAO).loadRopertyValues(ropertyKey);
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
         verify(keyValuesFactory).create(domainSpecificValueFactory);
         verify(ropertyValue).getKey();
         verify(ropertyValue).getPattern();
         verify(ropertyValue).getChangeSet();
-        verify(ropertyValue).getValue();
+        verify(ropertyValue).getValue(any(ValueCodec.class));
         verify(ropertyKey).getDescription();
         verify(ropertyKey).getId();
         verify(keyValues).putWithChangeSet(CHANGE_SET, value, DOMAIN_KEY_PART_1, DOMAIN_KEY_PART_2);
         verify(keyValues).setDescription(DESCRIPTION);
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO);
         assertThat(result.get(KEY), Matchers.is(keyValues));
         assertThat(result.get(KEY), Matchers.not(Matchers.is(oldKeyValues)));
         assertThat(result.size(), Matchers.is(1));
     }
 
+    @Test
+    public void reloadLoadsKeysInChunks() {
+        Map<String, KeyValues> keyValuesMap = new LinkedHashMap<>();
+        keyValuesMap.put("key1", keyValues);
+        keyValuesMap.put("key2", keyValues);
+        keyValuesMap.put("key3", keyValues);
+        jpaPersistence.setChunkSize(2);
+
+        jpaPersistence.reload(keyValuesMap, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(ropertyValueDAO).readRopertyValues(Arrays.asList("key1", "key2"));
+        verify(ropertyValueDAO).readRopertyValues(singletonList("key3"));
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO);
+    }
+
+    @Test
+    public void incrementalReloadLoadsAllKeysOfMapWithoutPreviousModification() {
+        Map<String, KeyValues> keyValuesMap = new HashMap<>();
+        keyValuesMap.put(KEY, keyValues);
+        jpaPersistence.setIncrementalReload(true);
+
+        jpaPersistence.reload(keyValuesMap, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(ropertyKeyDAO).loadLastModification();
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO);
+    }
+
+    @Test
+    public void incrementalReloadOnlyLoadsKeysModifiedSinceLastLoad() {
+        KeyValues unmodifiedKeyValues = mock(KeyValues.class);
+        KeyValues removedKeyValues = mock(KeyValues.class);
+        Map<String, KeyValues> keyValuesMap = new HashMap<>();
+        keyValuesMap.put(KEY, keyValues);
+        keyValuesMap.put("unmodifiedKey", unmodifiedKeyValues);
+        keyValuesMap.put("removedKey", removedKeyValues);
+        KeyValues reloadedKeyValues = mock(KeyValues.class);
+        Date lastModification = new Date(1000000L);
+        when(ropertyKeyDAO.loadLastModification()).thenReturn(lastModification, new Date(2000000L));
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(Arrays.asList(KEY, "newKey", "unmodifiedKey"));
+        when(ropertyKeyDAO.loadRopertyKeyIdsModifiedSince(new Date(lastModification.getTime() - 60000L))).thenReturn(Arrays.asList(KEY, "newKey"));
+        when(ropertyValueDAO.readRopertyValues(singletonList(KEY))).thenReturn(singletonList(ropertyValue));
+        when(ropertyValue.getKey()).thenReturn(ropertyKey);
+        when(ropertyValue.getPattern()).thenReturn(PATTERN);
+        when(ropertyValue.getChangeSet()).thenReturn(CHANGE_SET);
+        when(ropertyKey.getId()).thenReturn(KEY);
+        when(keyValuesFactory.create(domainSpecificValueFactory)).thenReturn(reloadedKeyValues);
+        jpaPersistence.setIncrementalReload(true);
+        jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        Map<String, KeyValues> result = jpaPersistence.reload(keyValuesMap, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(ropertyKeyDAO, times(2)).loadLastModification();
+        verify(ropertyKeyDAO).loadRopertyKeyIds();
+        verify(ropertyKeyDAO).loadRopertyKeyIdsModifiedSince(new Date(lastModification.getTime() - 60000L));
+        verify(ropertyValueDAO).readAllRopertyValues(any(Consumer.class));
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO);
+        assertThat(result.size(), Matchers.is(2));
+        assertThat(result.get(KEY), Matchers.is(reloadedKeyValues));
+        assertThat(result.get("unmodifiedKey"), Matchers.is(unmodifiedKeyValues));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failIfChunkSizeIsNotPositive() {
+        jpaPersistence.setChunkSize(0);
+    }
+
     @Test(expected = RopertyPersistenceException.class)
     public void failIfKeyWithoutValuesShouldBeStored() {
         jpaPersistence.store(KEY, keyValues, CHANGE_SET);
@@ -256,6 +454,7 @@ public class JpaPersistenceTest {
 
     @Test
     public void storeShouldPersistValues() {
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
         when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
         when(domainSpecificValue.getValue()).thenReturn(value);
         when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
@@ -265,8 +464,9 @@ public class JpaPersistenceTest {
 
         verify(keyValues).getDescription();
         verify(keyValues).getDomainSpecificValues();
-        verify(ropertyKeyDAO).loadRopertyKey(KEY);
+        verify(ropertyKeyDAO).loadRopertyKey(entityManager, KEY);
         verify(transactionManager).begin();
+        verify(transactionManager).getEntityManager();
         verify(transactionManager).persist(any(RopertyKey.class));
         verify(transactionManager).persist(any(RopertyValue.class));
         verify(transactionManager).end();
@@ -276,6 +476,26 @@ public class JpaPersistenceTest {
         verifyNoMoreInteractions(transactionManager);
     }
 
+    @Test
+    public void storeShouldTouchExistingKey() {
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        when(ropertyKeyDAO.loadRopertyKey(entityManager, KEY)).thenReturn(ropertyKey);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
+        when(domainSpecificValue.getValue()).thenReturn(value);
+        when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
+        when(domainSpecificValue.changeSetIs(CHANGE_SET)).thenReturn(true);
+
+        jpaPersistence.store(KEY, keyValues, CHANGE_SET);
+
+        verify(ropertyKey).setLastModified(any(Date.class));
+        verify(transactionManager).begin();
+        verify(transactionManager).getEntityManager();
+        verify(transactionManager).persist(any(RopertyValue.class));
+        verify(transactionManager).end();
+
+        verifyNoMoreInteractions(transactionManager);
+    }
+
     @Test(expected=RopertyPersistenceException.class)
     public void failIfNullDomainSpecificValues() {
         when(keyValues.getDomainSpecificValues()).thenReturn(null);
@@ -285,6 +505,7 @@ public class JpaPersistenceTest {
 
     @Test
     public void storeWithNullChangeSetShouldPersistValues() {
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
         when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
         when(domainSpecificValue.getValue()).thenReturn(value);
         when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
@@ -294,8 +515,9 @@ public class JpaPersistenceTest {
 
         verify(keyValues).getDescription();
         verify(keyValues).getDomainSpecificValues();
-        verify(ropertyKeyDAO).loadRopertyKey(KEY);
+        verify(ropertyKeyDAO).loadRopertyKey(entityManager, KEY);
         verify(transactionManager).begin();
+        verify(transactionManager).getEntityManager();
         verify(transactionManager).persist(any(RopertyKey.class));
         verify(transactionManager).persist(any(RopertyValue.class));
         verify(transactionManager).end();
@@ -305,6 +527,226 @@ public class JpaPersistenceTest {
         verifyNoMoreInteractions(transactionManager);
     }
 
+    @Test
+    public void storeShouldLoadValuesOfExistingKeyOnce() {
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        DomainSpecificValue otherDomainSpecificValue = mock(DomainSpecificValue.class);
+        DomainSpecificValue unchangedDomainSpecificValue = mock(DomainSpecificValue.class);
+        RopertyValue unchangedRopertyValue = mock(RopertyValue.class);
+        when(ropertyKeyDAO.loadRopertyKey(entityManager, KEY)).thenReturn(ropertyKey);
+        when(ropertyKey.getId()).thenReturn(KEY);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue, otherDomainSpecificValue, unchangedDomainSpecificValue)));
+        when(domainSpecificValue.getValue()).thenReturn(value);
+        when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
+        when(domainSpecificValue.changeSetIs(CHANGE_SET)).thenReturn(true);
+        when(otherDomainSpecificValue.getValue()).thenReturn("new");
+        when(otherDomainSpecificValue.getPatternStr()).thenReturn("other");
+        when(otherDomainSpecificValue.changeSetIs(CHANGE_SET)).thenReturn(true);
+        when(unchangedDomainSpecificValue.getValue()).thenReturn("unchanged");
+        when(unchangedDomainSpecificValue.getPatternStr()).thenReturn("");
+        when(unchangedDomainSpecificValue.changeSetIs(CHANGE_SET)).thenReturn(true);
+        when(ropertyValue.getPattern()).thenReturn(PATTERN);
+        when(ropertyValue.getChangeSet()).thenReturn(CHANGE_SET);
+        when(unchangedRopertyValue.getPattern()).thenReturn("");
+        when(unchangedRopertyValue.getChangeSet()).thenReturn(CHANGE_SET);
+        when(unchangedRopertyValue.getValue(any(ValueCodec.class))).thenReturn("unchanged");
+        when(ropertyValueDAO.loadRopertyValues(entityManager, KEY)).thenReturn(Arrays.asList(ropertyValue, unchangedRopertyValue));
+
+        jpaPersistence.store(KEY, keyValues, CHANGE_SET);
+
+        verify(ropertyKeyDAO).loadRopertyKey(entityManager, KEY);
+        verify(ropertyValueDAO).loadRopertyValues(entityManager, KEY);
+        verify(ropertyKey).setLastModified(any(Date.class));
+        verify(ropertyValue).setValue(eq(value), any(ValueCodec.class));
+        verify(transactionManager).begin();
+        verify(transactionManager).getEntityManager();
+        verify(transactionManager).persist(any(RopertyValue.class));
+        verify(transactionManager).end();
+        verifyNoMoreInteractions(transactionManager, ropertyKeyDAO, ropertyValueDAO);
+    }
+
+    @Test
+    public void storeShouldRollBackIfLoadingValuesFails() {
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        when(ropertyKeyDAO.loadRopertyKey(entityManager, KEY)).thenReturn(ropertyKey);
+        when(ropertyKey.getId()).thenReturn(KEY);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
+        when(ropertyValueDAO.loadRopertyValues(entityManager, KEY)).thenThrow(new RopertyPersistenceException("failure"));
+
+        try {
+            jpaPersistence.store(KEY, keyValues, CHANGE_SET);
+            fail("Store should have failed");
+        } catch (RopertyPersistenceException e) {
+            verify(transactionManager).begin();
+            verify(transactionManager).getEntityManager();
+            verify(transactionManager).rollback();
+            verifyNoMoreInteractions(transactionManager);
+        }
+    }
+
+    @Test
+    public void storeAllShouldPersistNewKeysAndValues() {
+        Map<String, KeyValues> keyValuesMap = new LinkedHashMap<>();
+        keyValuesMap.put(KEY, keyValues);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
+        when(domainSpecificValue.getValue()).thenReturn(value);
+        when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
+        when(domainSpecificValue.changeSetIs(CHANGE_SET)).thenReturn(true);
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+
+        jpaPersistence.storeAll(keyValuesMap, CHANGE_SET);
+
+        verify(ropertyKeyDAO).loadRopertyKeys(entityManager, singletonList(KEY));
+        verify(transactionManager).begin();
+        verify(transactionManager).getEntityManager();
+        verify(transactionManager).persist(any(RopertyKey.class));
+        verify(transactionManager).persist(any(RopertyValue.class));
+        verify(transactionManager).end();
+        verifyNoMoreInteractions(transactionManager, ropertyKeyDAO, ropertyValueDAO);
+    }
+
+    @Test
+    public void storeAllShouldOnlyUpdateChangedValuesOfExistingKeys() {
+        Map<String, KeyValues> keyValuesMap = new LinkedHashMap<>();
+        keyValuesMap.put(KEY, keyValues);
+        DomainSpecificValue unchangedDomainSpecificValue = mock(DomainSpecificValue.class);
+        RopertyValue unchangedRopertyValue = mock(RopertyValue.class);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue, unchangedDomainSpecificValue)));
+        when(domainSpecificValue.getValue()).thenReturn(value);
+        when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
+        when(domainSpecificValue.changeSetIs(CHANGE_SET)).thenReturn(true);
+        when(unchangedDomainSpecificValue.getValue()).thenReturn("unchanged");
+        when(unchangedDomainSpecificValue.getPatternStr()).thenReturn("");
+        when(unchangedDomainSpecificValue.changeSetIs(CHANGE_SET)).thenReturn(true);
+        when(ropertyKey.getId()).thenReturn(KEY);
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        when(ropertyKeyDAO.loadRopertyKeys(entityManager, singletonList(KEY))).thenReturn(singletonList(ropertyKey));
+        when(ropertyValue.getKey()).thenReturn(ropertyKey);
+        when(ropertyValue.getPattern()).thenReturn(PATTERN);
+        when(ropertyValue.getChangeSet()).thenReturn(CHANGE_SET);
+        when(unchangedRopertyValue.getKey()).thenReturn(ropertyKey);
+        when(unchangedRopertyValue.getPattern()).thenReturn("");
+        when(unchangedRopertyValue.getChangeSet()).thenReturn(CHANGE_SET);
+        when(unchangedRopertyValue.getValue(any(ValueCodec.class))).thenReturn("unchanged");
+        when(ropertyValueDAO.loadRopertyValues(entityManager, Collections.singleton(KEY))).thenReturn(Arrays.asList(ropertyValue, unchangedRopertyValue));
+
+        jpaPersistence.storeAll(keyValuesMap, CHANGE_SET);
+
+        verify(ropertyKey).setLastModified(any(Date.class));
+        verify(ropertyValue).setValue(eq(value), any(ValueCodec.class));
+        verify(transactionManager).begin();
+        verify(transactionManager).getEntityManager();
+        verify(transactionManager).end();
+        verifyNoMoreInteractions(transactionManager);
+    }
+
+    @Test
+    public void storeAllShouldUseOneTransactionPerChunk() {
+        Map<String, KeyValues> keyValuesMap = new LinkedHashMap<>();
+        keyValuesMap.put("key1", keyValues);
+        keyValuesMap.put("key2", keyValues);
+        keyValuesMap.put("key3", keyValues);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
+        when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        jpaPersistence.setChunkSize(2);
+
+        jpaPersistence.storeAll(keyValuesMap, CHANGE_SET);
+
+        verify(ropertyKeyDAO).loadRopertyKeys(entityManager, Arrays.asList("key1", "key2"));
+        verify(ropertyKeyDAO).loadRopertyKeys(entityManager, singletonList("key3"));
+        verify(transactionManager, times(2)).begin();
+        verify(transactionManager, times(2)).getEntityManager();
+        verify(transactionManager, times(3)).persist(any(RopertyKey.class));
+        verify(transactionManager, times(2)).end();
+        verifyNoMoreInteractions(transactionManager);
+    }
+
+    @Test
+    public void storeAllShouldFailBeforeWritingIfValueIsNotSerializable() {
+        Map<String, KeyValues> keyValuesMap = new LinkedHashMap<>();
+        keyValuesMap.put(KEY, keyValues);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
+        when(domainSpecificValue.getValue()).thenReturn(new Object());
+        when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
+        when(domainSpecificValue.changeSetIs(CHANGE_SET)).thenReturn(true);
+
+        try {
+            jpaPersistence.storeAll(keyValuesMap, CHANGE_SET);
+            fail("Storing a value that is not serializable should fail");
+        } catch (RopertyPersistenceException e) {
+            verifyNoMoreInteractions(transactionManager, ropertyKeyDAO);
+        }
+    }
+
+    @Test
+    public void storeIfUnchangedShouldFailForChangedVersion() {
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
+        when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
+
+        boolean stored = jpaPersistence.storeIfUnchanged(KEY, keyValues, CHANGE_SET, 3L);
+
+        assertThat(stored, Matchers.is(false));
+        verify(ropertyKeyDAO).touchRopertyKey(any(EntityManager.class), any(String.class), any(Long.class), any(Date.class));
+        verify(transactionManager).begin();
+        verify(transactionManager).getEntityManager();
+        verify(transactionManager).rollback();
+        verifyNoMoreInteractions(transactionManager, ropertyKeyDAO, ropertyValueDAO);
+    }
+
+    @Test
+    public void storeIfUnchangedShouldStoreValuesWithoutReadingKey() {
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
+        when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
+        when(domainSpecificValue.getValue()).thenReturn(value);
+        when(domainSpecificValue.changeSetIs(CHANGE_SET)).thenReturn(true);
+        when(ropertyKeyDAO.touchRopertyKey(any(EntityManager.class), any(String.class), any(Long.class), any(Date.class))).thenReturn(1);
+        when(entityManager.getReference(RopertyKey.class, KEY)).thenReturn(ropertyKey);
+        when(ropertyValueDAO.loadRopertyValues(entityManager, KEY)).thenReturn(singletonList(ropertyValue));
+        when(ropertyValue.getChangeSet()).thenReturn(CHANGE_SET);
+        when(ropertyValue.getPattern()).thenReturn(PATTERN);
+
+        boolean stored = jpaPersistence.storeIfUnchanged(KEY, keyValues, CHANGE_SET, 3L);
+
+        assertThat(stored, Matchers.is(true));
+        verify(ropertyValue).setValue(eq(value), any(ValueCodec.class));
+        verify(transactionManager, times(0)).merge(ropertyValue);
+        verify(transactionManager).end();
+        verify(ropertyKeyDAO, times(0)).loadRopertyKey(entityManager, KEY);
+    }
+
+    @Test
+    public void storeIfUnchangedShouldPersistNewKey() {
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
+        when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
+        when(domainSpecificValue.getValue()).thenReturn(value);
+        when(domainSpecificValue.changeSetIs(CHANGE_SET)).thenReturn(true);
+
+        boolean stored = jpaPersistence.storeIfUnchanged(KEY, keyValues, CHANGE_SET, null);
+
+        assertThat(stored, Matchers.is(true));
+        verify(transactionManager).persist(any(RopertyKey.class));
+        verify(entityManager).flush();
+        verify(transactionManager).persist(any(RopertyValue.class));
+        verify(transactionManager).end();
+    }
+
+    @Test
+    public void getVersionShouldReturnVersionOfKey() {
+        when(ropertyKeyDAO.loadRopertyKey(KEY)).thenReturn(ropertyKey);
+        when(ropertyKey.getVersion()).thenReturn(7L);
+
+        assertThat(jpaPersistence.getVersion(KEY), Matchers.is(7L));
+    }
+
+    @Test
+    public void getVersionShouldReturnNullForMissingKey() {
+        assertThat(jpaPersistence.getVersion(KEY), Matchers.nullValue());
+    }
+
     @Test
     public void removeNonExistingKeyShouldDoNothing() {
         jpaPersistence.remove(KEY, keyValues, CHANGE_SET);
@@ -338,7 +780,7 @@ public class JpaPersistenceTest {
         verify(ropertyKeyDAO).loadRopertyKey(KEY);
         verify(ropertyValueDAO).loadRopertyValues(ropertyKey);
         verify(keyValues).getDomainSpecificValues();
-        verify(ropertyValue).equals(domainSpecificValue);
+        verify(ropertyValue).equals(eq(domainSpecificValue), any(ValueCodec.class));
     }
 
     @Test
@@ -346,14 +788,14 @@ public class JpaPersistenceTest {
         when(ropertyKeyDAO.loadRopertyKey(KEY)).thenReturn(ropertyKey);
         when(ropertyValueDAO.loadRopertyValues(ropertyKey)).thenReturn(Arrays.asList(ropertyValue));
         when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
-        when(ropertyValue.equals(domainSpecificValue)).thenReturn(true);
+        when(ropertyValue.equals(eq(domainSpecificValue), any(ValueCodec.class))).thenReturn(true);
 
         jpaPersistence.remove(KEY, keyValues, CHANGE_SET);
 
         verify(ropertyKeyDAO).loadRopertyKey(KEY);
         verify(ropertyValueDAO).loadRopertyValues(ropertyKey);
         verify(keyValues).getDomainSpecificValues();
-        verify(ropertyValue).equals(domainSpecificValue);
+        verify(ropertyValue).equals(eq(domainSpecificValue), any(ValueCodec.class));
         verify(transactionManager).begin();
         verify(transactionManager).remove(ropertyValue);
         verify(transactionManager).remove(ropertyKey);
@@ -362,6 +804,85 @@ public class JpaPersistenceTest {
         verifyNoMoreInteractions(transactionManager);
     }
 
+    @Test
+    public void bulkRemovalOfKeyShouldDeleteValuesAndKey() {
+        jpaPersistence.setBulkRemoval(true);
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+
+        jpaPersistence.remove(KEY, (KeyValues) null, CHANGE_SET);
+
+        verify(transactionManager).begin();
+        verify(ropertyValueDAO).removeRopertyValues(entityManager, KEY, null, null);
+        verify(ropertyKeyDAO).removeRopertyKey(entityManager, KEY);
+        verify(transactionManager).end();
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO);
+    }
+
+    @Test
+    public void bulkRemovalOfLastValuesShouldDeleteKey() {
+        jpaPersistence.setBulkRemoval(true);
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
+        when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
+        when(ropertyValueDAO.removeRopertyValues(entityManager, KEY, Collections.singleton(PATTERN), CHANGE_SET)).thenReturn(1);
+
+        jpaPersistence.remove(KEY, keyValues, CHANGE_SET);
+
+        verify(ropertyValueDAO).removeRopertyValues(entityManager, KEY, Collections.singleton(PATTERN), CHANGE_SET);
+        verify(ropertyValueDAO).getNumberOfValues(entityManager, KEY);
+        verify(ropertyKeyDAO).removeRopertyKey(entityManager, KEY);
+        verify(transactionManager).end();
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO);
+    }
+
+    @Test
+    public void bulkRemovalOfSomeValuesShouldTouchKey() {
+        jpaPersistence.setBulkRemoval(true);
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
+        when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
+        when(ropertyValueDAO.removeRopertyValues(entityManager, KEY, Collections.singleton(PATTERN), CHANGE_SET)).thenReturn(1);
+        when(ropertyValueDAO.getNumberOfValues(entityManager, KEY)).thenReturn(1L);
+
+        jpaPersistence.remove(KEY, keyValues, CHANGE_SET);
+
+        verify(ropertyValueDAO).removeRopertyValues(entityManager, KEY, Collections.singleton(PATTERN), CHANGE_SET);
+        verify(ropertyValueDAO).getNumberOfValues(entityManager, KEY);
+        verify(ropertyKeyDAO).touchRopertyKey(any(EntityManager.class), any(String.class), any(Date.class));
+        verify(transactionManager).end();
+        verifyNoMoreInteractions(ropertyKeyDAO, ropertyValueDAO);
+    }
+
+    @Test
+    public void bulkRemovalShouldRollBackIfDeletingFails() {
+        jpaPersistence.setBulkRemoval(true);
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        when(ropertyValueDAO.removeRopertyValues(entityManager, KEY, null, null)).thenThrow(new RopertyPersistenceException("failure"));
+
+        try {
+            jpaPersistence.remove(KEY, (KeyValues) null, CHANGE_SET);
+            fail("Removal should have failed");
+        } catch (RopertyPersistenceException e) {
+            verify(transactionManager).begin();
+            verify(transactionManager).getEntityManager();
+            verify(transactionManager).rollback();
+            verifyNoMoreInteractions(transactionManager);
+        }
+    }
+
+    @Test
+    public void failIfNoDomainSpecificValuesOnBulkRemoval() {
+        jpaPersistence.setBulkRemoval(true);
+        when(keyValues.getDomainSpecificValues()).thenReturn(Collections.emptySet());
+
+        try {
+            jpaPersistence.remove(KEY, keyValues, CHANGE_SET);
+            fail("Removing key values without domain specific values should fail");
+        } catch (RopertyPersistenceException e) {
+            verifyNoMoreInteractions(transactionManager, ropertyKeyDAO, ropertyValueDAO);
+        }
+    }
+
     @Test
     public void removingKeyWithMultipleValuesAndJustOneValueRemovedShouldOnlyRemoveValues() {
         when(ropertyKeyDAO.loadRopertyKey(KEY)).thenReturn(ropertyKey);
@@ -369,18 +890,20 @@ public class JpaPersistenceTest {
         when(ropertyValueDAO.loadRopertyValues(ropertyKey)).thenReturn(Arrays.asList(ropertyValue, ropertyValue2));
         DomainSpecificValue domainSpecificValue2 = mock(DomainSpecificValue.class);
         when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue, domainSpecificValue2)));
-        when(ropertyValue.equals(domainSpecificValue)).thenReturn(true);
+        when(ropertyValue.equals(eq(domainSpecificValue), any(ValueCodec.class))).thenReturn(true);
 
         jpaPersistence.remove(KEY, keyValues, CHANGE_SET);
 
         verify(ropertyKeyDAO).loadRopertyKey(KEY);
         verify(ropertyValueDAO).loadRopertyValues(ropertyKey);
         verify(keyValues).getDomainSpecificValues();
-        verify(ropertyValue).equals(domainSpecificValue);
-        verify(ropertyValue2).equals(domainSpecificValue);
-        verify(ropertyValue2).equals(domainSpecificValue2);
+        verify(ropertyValue).equals(eq(domainSpecificValue), any(ValueCodec.class));
+        verify(ropertyValue2).equals(eq(domainSpecificValue), any(ValueCodec.class));
+        verify(ropertyValue2).equals(eq(domainSpecificValue2), any(ValueCodec.class));
         verify(transactionManager).begin();
         verify(transactionManager).remove(ropertyValue);
+        verify(ropertyKey).setLastModified(any(Date.class));
+        verify(transactionManager).merge(ropertyKey);
         verify(transactionManager).end();
 
         verifyNoMoreInteractions(transactionManager);
@@ -444,6 +967,8 @@ public class JpaPersistenceTest {
         verify(ropertyValueDAO).loadRopertyValue(ropertyKey, PATTERN, CHANGE_SET);
         verify(transactionManager).begin();
         verify(transactionManager).remove(ropertyValue);
+        verify(ropertyKey).setLastModified(any(Date.class));
+        verify(transactionManager).merge(ropertyKey);
         verify(transactionManager).end();
         verify(domainSpecificValue).getPatternStr();
         verify(domainSpecificValue).getValue();
@@ -475,10 +1000,139 @@ public class JpaPersistenceTest {
 
     @Test
     public void returnsAllKeys() {
-        when(ropertyKey.getId()).thenReturn(KEY);
-        when(ropertyKeyDAO.loadAllRopertyKeys()).thenReturn(singletonList(ropertyKey));
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(singletonList(KEY));
         List<String> allKeys = jpaPersistence.getAllKeys();
         assertThat(allKeys, contains(KEY));
+        verify(ropertyKeyDAO).loadRopertyKeyIds();
+        verifyNoMoreInteractions(ropertyKeyDAO);
+    }
+
+    @Test
+    public void returnsPageOfKeysAfterLastKey() {
+        when(ropertyKeyDAO.loadRopertyKeyIds(KEY, 2)).thenReturn(singletonList("otherKey"));
+        assertThat(jpaPersistence.getKeys(KEY, 2), contains("otherKey"));
+    }
+
+    @Test
+    public void findsPageOfKeysInDatabase() {
+        when(ropertyKeyDAO.findKeys("ey", KEY, 2)).thenReturn(singletonList("otherKey"));
+        assertThat(jpaPersistence.findKeys("ey", KEY, 2), contains("otherKey"));
+    }
+
+    @Test
+    public void findsKeysByPrefixInDatabase() {
+        when(ropertyKeyDAO.findKeysByPrefix("k")).thenReturn(singletonList(KEY));
+        when(ropertyKeyDAO.findKeysByPrefix("k", KEY, 2)).thenReturn(Collections.emptyList());
+        assertThat(jpaPersistence.findKeysByPrefix("k"), contains(KEY));
+        assertThat(jpaPersistence.findKeysByPrefix("k", KEY, 2), Matchers.empty());
+    }
+
+    @Test
+    public void indexedFindKeysReturnsPages() {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(Arrays.asList(KEY, "otherKey", "thirdKey"));
+        jpaPersistence.setIndexedKeySearch(true);
+
+        assertThat(jpaPersistence.findKeys("key", null, 2), contains(KEY, "otherKey"));
+        assertThat(jpaPersistence.findKeys("key", "otherKey", 2), contains("thirdKey"));
+        verify(ropertyKeyDAO).loadRopertyKeyIds();
+        verifyNoMoreInteractions(ropertyKeyDAO);
+    }
+
+    @Test
+    public void findKeysDelegatesToDatabaseByDefault() {
+        when(ropertyKeyDAO.findKeys("ey")).thenReturn(singletonList(KEY));
+        assertThat(jpaPersistence.findKeys("ey"), contains(KEY));
+        verify(ropertyKeyDAO).findKeys("ey");
+    }
+
+    @Test
+    public void indexedFindKeysLoadsKeyIdsOnce() {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(Arrays.asList(KEY, "otherKey", "value"));
+        jpaPersistence.setIndexedKeySearch(true);
+
+        assertThat(jpaPersistence.findKeys("KEY"), contains(KEY, "otherKey"));
+        assertThat(jpaPersistence.findKeys("val"), contains("value"));
+
+        verify(ropertyKeyDAO).loadRopertyKeyIds();
+        verifyNoMoreInteractions(ropertyKeyDAO);
+    }
+
+    @Test
+    public void indexedFindKeysContainsStoredKeys() {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(Collections.emptyList());
+        when(keyValues.getDomainSpecificValues()).thenReturn(new HashSet<>(Arrays.asList(domainSpecificValue)));
+        when(domainSpecificValue.getValue()).thenReturn(value);
+        when(domainSpecificValue.getPatternStr()).thenReturn(PATTERN);
+        jpaPersistence.setIndexedKeySearch(true);
+        jpaPersistence.findKeys(KEY);
+
+        jpaPersistence.store(KEY, keyValues, CHANGE_SET);
+
+        assertThat(jpaPersistence.findKeys(KEY), contains(KEY));
+    }
+
+    @Test
+    public void indexedFindKeysOmitsRemovedKeys() {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(singletonList(KEY));
+        when(ropertyKeyDAO.loadRopertyKey(KEY)).thenReturn(ropertyKey);
+        when(ropertyValueDAO.loadRopertyValues(ropertyKey)).thenReturn(singletonList(ropertyValue));
+        jpaPersistence.setIndexedKeySearch(true);
+        jpaPersistence.findKeys(KEY);
+
+        jpaPersistence.remove(KEY, (KeyValues) null, CHANGE_SET);
+
+        assertThat(jpaPersistence.findKeys(KEY), Matchers.empty());
+    }
+
+    @Test
+    public void loadAllRebuildsKeyIndex() {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(Collections.emptyList(), singletonList(KEY));
+        jpaPersistence.setIndexedKeySearch(true);
+        jpaPersistence.findKeys(KEY);
+
+        jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(jpaPersistence.findKeys(KEY), contains(KEY));
+        verify(ropertyKeyDAO, times(2)).loadRopertyKeyIds();
+    }
+
+    @Test
+    public void loadRecordsLatencyAndRowsRead() {
+        when(ropertyValueDAO.readRopertyValues(singletonList(KEY))).thenReturn(Arrays.asList(ropertyValue, ropertyValue));
+        when(keyValuesFactory.create(domainSpecificValueFactory)).thenReturn(keyValues);
+        when(ropertyValue.getKey()).thenReturn(ropertyKey);
+        when(ropertyValue.getPattern()).thenReturn(PATTERN);
+
+        jpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        PersistenceMetrics metrics = jpaPersistence.getMetrics();
+        assertThat(metrics.getStatistics(PersistenceMetrics.Operation.LOAD).getCount(), Matchers.is(1L));
+        assertThat(metrics.getStatistics(PersistenceMetrics.Operation.LOAD).getErrors(), Matchers.is(0L));
+        assertThat(metrics.getRowsRead(), Matchers.is(2L));
+    }
+
+    @Test
+    public void failedStoreRecordsError() {
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        when(ropertyKeyDAO.loadRopertyKey(entityManager, KEY)).thenThrow(new RopertyPersistenceException("failure"));
+
+        try {
+            jpaPersistence.store(KEY, keyValues, CHANGE_SET);
+            fail("Store should have failed");
+        } catch (RopertyPersistenceException e) {
+            OperationStatistics store = jpaPersistence.getMetrics().getStatistics(PersistenceMetrics.Operation.STORE);
+            assertThat(store.getCount(), Matchers.is(1L));
+            assertThat(store.getErrors(), Matchers.is(1L));
+        }
+    }
+
+    @SafeVarargs
+    private final void readAllRopertyValues(List<RopertyValue>... ropertyValuesOfKeys) {
+        doAnswer(invocation -> {
+            Consumer<List<RopertyValue>> consumer = invocation.getArgument(0);
+            Arrays.stream(ropertyValuesOfKeys).forEach(consumer);
+            return null;
+        }).when(ropertyValueDAO).readAllRopertyValues(any(Consumer.class));
     }
 
 }
@@ -0,0 +1,50 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class KeyBloomFilterTest {
+
+    private static final int NUM_KEYS = 10000;
+
+    @Test
+    public void containsAllAddedKeys() {
+        KeyBloomFilter keyBloomFilter = new KeyBloomFilter(NUM_KEYS, 0.01);
+        for (int i = 0; i < NUM_KEYS; i++) {
+            keyBloomFilter.add("key" + i);
+        }
+        for (int i = 0; i < NUM_KEYS; i++) {
+            assertThat(keyBloomFilter.mightContain("key" + i), is(true));
+        }
+    }
+
+    @Test
+    public void rejectsMostMissingKeys() {
+        KeyBloomFilter keyBloomFilter = new KeyBloomFilter(NUM_KEYS, 0.01);
+        for (int i = 0; i < NUM_KEYS; i++) {
+            keyBloomFilter.add("key" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < NUM_KEYS; i++) {
+            if (keyBloomFilter.mightContain("missingKey" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives, lessThan(NUM_KEYS / 50));
+    }
+
+    @Test
+    public void emptyFilterContainsNothing() {
+        KeyBloomFilter keyBloomFilter = new KeyBloomFilter(0, 0.01);
+        assertThat(keyBloomFilter.mightContain("key"), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failIfFalsePositiveProbabilityIsInvalid() {
+        new KeyBloomFilter(NUM_KEYS, 1.0);
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class KeyIndexTest {
+
+    private final KeyIndex keyIndex = new KeyIndex(asList("user.Name", "user.email", "shop.currency", "a"));
+
+    @Test
+    public void findsKeysContainingSubstringIgnoringCase() {
+        assertThat(keyIndex.find("USER."), contains("user.Name", "user.email"));
+        assertThat(keyIndex.find("name"), contains("user.Name"));
+        assertThat(keyIndex.find("rrenc"), contains("shop.currency"));
+    }
+
+    @Test
+    public void findsKeysForSubstringsShorterThanTrigram() {
+        assertThat(keyIndex.find("a"), contains("a", "user.Name", "user.email"));
+        assertThat(keyIndex.find(""), contains("a", "shop.currency", "user.Name", "user.email"));
+    }
+
+    @Test
+    public void findsNothingForUnknownTrigram() {
+        assertThat(keyIndex.find("xyz"), empty());
+    }
+
+    @Test
+    public void doesNotFindKeysThatOnlyContainAllTrigrams() {
+        KeyIndex abcIndex = new KeyIndex(asList("abcxbcd", "abcd"));
+
+        assertThat(abcIndex.find("abcd"), contains("abcd"));
+    }
+
+    @Test
+    public void findsAddedKeys() {
+        keyIndex.add("user.age");
+        keyIndex.add("user.age");
+
+        assertThat(keyIndex.find("user"), contains("user.Name", "user.age", "user.email"));
+        assertThat(keyIndex.size(), is(5));
+    }
+
+    @Test
+    public void doesNotFindRemovedKeys() {
+        keyIndex.remove("user.email");
+        keyIndex.remove("unknown");
+
+        assertThat(keyIndex.find("user"), contains("user.Name"));
+        assertThat(keyIndex.size(), is(3));
+    }
+
+    @Test
+    public void findsReaddedKeysAfterCompaction() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add("key" + i);
+        }
+        KeyIndex compactedIndex = new KeyIndex(keys);
+        keys.subList(0, 90).forEach(compactedIndex::remove);
+        compactedIndex.add("key5");
+
+        assertThat(compactedIndex.find("key5"), contains("key5"));
+        assertThat(compactedIndex.find("key9"), contains("key90", "key91", "key92", "key93", "key94", "key95", "key96", "key97", "key98", "key99"));
+        assertThat(compactedIndex.size(), is(11));
+    }
+
+    @Test
+    public void findsPagesOfKeysAfterLastKey() {
+        assertThat(keyIndex.find("e", null, 2), contains("shop.currency", "user.Name"));
+        assertThat(keyIndex.find("e", "user.Name", 2), contains("user.email"));
+        assertThat(keyIndex.find("e", "user.email", 2), empty());
+        assertThat(keyIndex.find("user", "user.M", 1), contains("user.Name"));
+    }
+
+    @Test
+    public void findsPagesOfAddedAndRemainingKeys() {
+        keyIndex.add("user.age");
+        keyIndex.remove("user.Name");
+
+        assertThat(keyIndex.find("user", null, 1), contains("user.age"));
+        assertThat(keyIndex.find("user", "user.age", 5), contains("user.email"));
+        assertThat(keyIndex.find("xyz", null, 5), empty());
+    }
+
+}
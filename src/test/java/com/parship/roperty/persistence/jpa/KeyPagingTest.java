@@ -0,0 +1,61 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+public class KeyPagingTest {
+
+    private static final String[] KEYS = {"firstMultiKey", "otherKey", "secondMultiKey", "thirdMultiKey"};
+
+    private H2Fixture h2Fixture;
+
+    private JpaPersistence jpaPersistence;
+
+    @Before
+    public void initializeRelationPersistence() {
+        h2Fixture = new H2Fixture("roperty_key_paging_test");
+        h2Fixture.persistKeys(KEYS);
+        jpaPersistence = h2Fixture.createJpaPersistence();
+    }
+
+    @After
+    public void closeEntityManagerFactory() {
+        h2Fixture.close();
+    }
+
+    @Test
+    public void returnsPagesOfKeys() {
+        assertThat(jpaPersistence.getKeys(null, 3), contains("firstMultiKey", "otherKey", "secondMultiKey"));
+        assertThat(jpaPersistence.getKeys("secondMultiKey", 3), contains("thirdMultiKey"));
+        assertThat(jpaPersistence.getKeys("thirdMultiKey", 3), empty());
+    }
+
+    @Test
+    public void findsPagesOfKeysAccordingToSubstring() {
+        assertThat(jpaPersistence.findKeys("MULTI", null, 2), contains("firstMultiKey", "secondMultiKey"));
+        assertThat(jpaPersistence.findKeys("MULTI", "secondMultiKey", 2), contains("thirdMultiKey"));
+        assertThat(jpaPersistence.findKeys("MULTI", "thirdMultiKey", 2), empty());
+    }
+
+    @Test
+    public void findsWildcardsOfSubstringLiterally() {
+        h2Fixture.persistKeys("page_size", "pageXsize", "rate100%", "rate1000");
+
+        assertThat(jpaPersistence.findKeys("E_S", null, 10), contains("page_size"));
+        assertThat(jpaPersistence.findKeys("100%", null, 10), contains("rate100%"));
+    }
+
+    @Test
+    public void indexedSearchFindsSamePagesAsDatabase() {
+        jpaPersistence.setIndexedKeySearch(true);
+
+        assertThat(jpaPersistence.findKeys("MULTI", null, 2), contains("firstMultiKey", "secondMultiKey"));
+        assertThat(jpaPersistence.findKeys("MULTI", "secondMultiKey", 2), contains("thirdMultiKey"));
+    }
+
+}
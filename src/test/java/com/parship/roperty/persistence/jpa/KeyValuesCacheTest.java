@@ -0,0 +1,128 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.KeyValues;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class KeyValuesCacheTest {
+
+    private final KeyValues keyValues = mock(KeyValues.class);
+
+    @Test
+    public void returnsPutEntries() {
+        KeyValuesCache cache = new KeyValuesCache(10);
+
+        cache.put("key", keyValues, 3, cache.getGeneration("key"));
+
+        assertThat(cache.get("key").getKeyValues(), is(keyValues));
+        assertThat(cache.getWeight(), is(3L));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedProbationEntriesFirst() {
+        KeyValuesCache cache = new KeyValuesCache(10);
+        cache.put("protected", keyValues, 4, cache.getGeneration("protected"));
+        cache.get("protected");
+        cache.put("first", keyValues, 4, cache.getGeneration("first"));
+
+        cache.put("second", keyValues, 4, cache.getGeneration("second"));
+
+        assertThat(cache.get("protected"), notNullValue());
+        assertThat(cache.get("first"), nullValue());
+        assertThat(cache.get("second"), notNullValue());
+        assertThat(cache.getEvictionCount(), is(1L));
+        assertThat(cache.getWeight(), is(8L));
+    }
+
+    @Test
+    public void doesNotPutEntriesLoadedBeforeInvalidation() {
+        KeyValuesCache cache = new KeyValuesCache(10);
+        long generation = cache.getGeneration("key");
+        cache.invalidate("key");
+
+        boolean put = cache.put("key", keyValues, 1, generation);
+
+        assertThat(put, is(false));
+        assertThat(cache.get("key"), nullValue());
+    }
+
+    @Test
+    public void putsEntriesLoadedWhileOtherKeysAreInvalidated() {
+        KeyValuesCache cache = new KeyValuesCache(10);
+        long generation = cache.getGeneration("key");
+        cache.invalidate("otherKey");
+
+        boolean put = cache.put("key", keyValues, 1, generation);
+
+        assertThat(put, is(true));
+        assertThat(cache.get("key"), notNullValue());
+    }
+
+    @Test
+    public void expiresMissingKeysAfterTheirLifetime() {
+        AtomicLong time = new AtomicLong();
+        KeyValuesCache cache = new KeyValuesCache(10, time::get);
+        cache.setNegativeEntryLifetime(5);
+        cache.put("missing", null, 1, cache.getGeneration("missing"));
+        cache.put("key", keyValues, 1, cache.getGeneration("key"));
+
+        time.set(4);
+        assertThat(cache.get("missing"), notNullValue());
+
+        time.set(5);
+        assertThat(cache.get("missing"), nullValue());
+        assertThat(cache.get("key"), notNullValue());
+        assertThat(cache.getWeight(), is(1L));
+    }
+
+    @Test
+    public void shrinkingMaximumWeightEvictsEntries() {
+        KeyValuesCache cache = new KeyValuesCache(10);
+        cache.put("protected", keyValues, 4, cache.getGeneration("protected"));
+        cache.get("protected");
+        cache.put("probation", keyValues, 4, cache.getGeneration("probation"));
+
+        cache.setMaximumWeight(4);
+
+        assertThat(cache.getWeight(), is(4L));
+        assertThat(cache.getEvictionCount(), is(1L));
+        assertThat(cache.put("heavy", keyValues, 5, cache.getGeneration("heavy")), is(false));
+    }
+
+    @Test
+    public void invalidateAllRemovesAllEntries() {
+        KeyValuesCache cache = new KeyValuesCache(10);
+        cache.put("key", keyValues, 1, cache.getGeneration("key"));
+        cache.put("otherKey", keyValues, 1, cache.getGeneration("otherKey"));
+        cache.get("key");
+
+        cache.invalidateAll();
+
+        assertThat(cache.get("key"), nullValue());
+        assertThat(cache.get("otherKey"), nullValue());
+        assertThat(cache.getWeight(), is(0L));
+    }
+
+    @Test
+    public void doesNotPutEntriesHeavierThanMaximumWeight() {
+        KeyValuesCache cache = new KeyValuesCache(10);
+
+        boolean put = cache.put("key", keyValues, 11, cache.getGeneration("key"));
+
+        assertThat(put, is(false));
+        assertThat(cache.getWeight(), is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failIfMaximumWeightIsNotPositive() {
+        new KeyValuesCache(0);
+    }
+
+}
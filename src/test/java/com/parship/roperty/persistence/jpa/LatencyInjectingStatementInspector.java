@@ -0,0 +1,25 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+public class LatencyInjectingStatementInspector implements StatementInspector {
+
+    private static volatile long latencyNanos;
+
+    static void setLatency(long latency, TimeUnit timeUnit) {
+        latencyNanos = timeUnit.toNanos(latency);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        long deadline = System.nanoTime() + latencyNanos;
+        while (latencyNanos > 0 && deadline - System.nanoTime() > 0) {
+            LockSupport.parkNanos(deadline - System.nanoTime());
+        }
+        return sql;
+    }
+
+}
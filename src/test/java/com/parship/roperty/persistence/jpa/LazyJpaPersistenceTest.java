@@ -1,5 +1,6 @@
 package com.parship.roperty.persistence.jpa;
 
+import com.parship.roperty.DomainSpecificValue;
 import com.parship.roperty.DomainSpecificValueFactory;
 import com.parship.roperty.KeyValues;
 import com.parship.roperty.KeyValuesFactory;
@@ -9,12 +10,26 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import javax.persistence.EntityManager;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class LazyJpaPersistenceTest {
@@ -33,6 +48,21 @@ public class LazyJpaPersistenceTest {
     @Mock
     private KeyValues keyValues;
 
+    @Mock
+    private RopertyKeyDAO ropertyKeyDAO;
+
+    @Mock
+    private RopertyValueDAO ropertyValueDAO;
+
+    @Mock
+    private TransactionManager transactionManager;
+
+    @Mock
+    private DomainSpecificValue domainSpecificValue;
+
+    @Mock
+    private EntityManager entityManager;
+
     @Test
     public void loadAllShouldReturnEmptyMap() {
         Map<String, KeyValues> result = lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
@@ -64,4 +94,223 @@ public class LazyJpaPersistenceTest {
         result.put(KEY, keyValues);
     }
 
+    @Test
+    public void loadAllShouldNotQueryKeysWithoutMissingKeyFilter() {
+        lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+        verifyZeroInteractions(ropertyKeyDAO);
+    }
+
+    @Test
+    public void missingKeyFilterShouldSkipDatabaseForUnknownKeys() {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(singletonList(KEY));
+        lazyJpaPersistence.setMissingKeyFilter(true);
+        lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        KeyValues result = lazyJpaPersistence.load("unknownKey", keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(result, nullValue());
+        verify(ropertyKeyDAO).loadRopertyKeyIds();
+        verifyNoMoreInteractions(ropertyKeyDAO);
+        verifyZeroInteractions(ropertyValueDAO);
+    }
+
+    @Test
+    public void missingKeyFilterShouldLoadKnownKeys() {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(singletonList(KEY));
+        lazyJpaPersistence.setMissingKeyFilter(true);
+        lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
+    }
+
+    @Test
+    public void missingKeyFilterShouldContainStoredKeys() {
+        when(transactionManager.getEntityManager()).thenReturn(entityManager);
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(Collections.emptyList());
+        when(keyValues.getDomainSpecificValues()).thenReturn(singleton(domainSpecificValue));
+        when(domainSpecificValue.getValue()).thenReturn("value");
+        when(domainSpecificValue.getPatternStr()).thenReturn("");
+        lazyJpaPersistence.setMissingKeyFilter(true);
+        lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        lazyJpaPersistence.store(KEY, keyValues, "");
+        lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(ropertyKeyDAO).loadRopertyKey(entityManager, KEY);
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
+    }
+
+    @Test
+    public void missingKeyFilterShouldContainKeysStoredWithStoreAll() {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(Collections.emptyList());
+        when(keyValues.getDomainSpecificValues()).thenReturn(singleton(domainSpecificValue));
+        when(domainSpecificValue.getPatternStr()).thenReturn("");
+        lazyJpaPersistence.setMissingKeyFilter(true);
+        lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        lazyJpaPersistence.storeAll(Collections.singletonMap(KEY, keyValues), "");
+        lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
+    }
+
+    @Test
+    public void reloadShouldRebuildMissingKeyFilter() {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(Collections.emptyList(), singletonList(KEY));
+        lazyJpaPersistence.setMissingKeyFilter(true);
+        lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        lazyJpaPersistence.reload(new HashMap<>(), keyValuesFactory, domainSpecificValueFactory);
+        lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(ropertyKeyDAO, times(2)).loadRopertyKeyIds();
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
+    }
+
+    @Test
+    public void staleMissingKeyFilterShouldBeRebuiltForUnknownKeys() {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(Collections.emptyList(), singletonList(KEY));
+        lazyJpaPersistence.setMissingKeyFilter(true);
+        lazyJpaPersistence.setMaximumKeyFilterAge(1, TimeUnit.NANOSECONDS);
+        lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(ropertyKeyDAO, times(2)).loadRopertyKeyIds();
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
+    }
+
+    @Test
+    public void freshMissingKeyFilterShouldNotBeRebuilt() {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(Collections.emptyList());
+        lazyJpaPersistence.setMissingKeyFilter(true);
+        lazyJpaPersistence.setMaximumKeyFilterAge(1, TimeUnit.HOURS);
+        lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        KeyValues result = lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(result, nullValue());
+        verify(ropertyKeyDAO).loadRopertyKeyIds();
+        verifyZeroInteractions(ropertyValueDAO);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failIfMaximumKeyFilterAgeIsNotPositive() {
+        lazyJpaPersistence.setMaximumKeyFilterAge(0, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void warmUpPublishesKeyValuesForLazyLoads() {
+        stubWarmUp();
+        lazyJpaPersistence.setWarmUpExecutor(Runnable::run);
+
+        Map<String, KeyValues> result = lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(result.isEmpty(), is(true));
+        assertThat(lazyJpaPersistence.isWarmedUp(), is(true));
+        assertThat(lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory), is(keyValues));
+        verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
+    }
+
+    @Test
+    public void warmedUpKeyValuesAreHandedOutOnce() {
+        stubWarmUp();
+        lazyJpaPersistence.setWarmUpExecutor(Runnable::run);
+        lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+        lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(ropertyValueDAO, times(2)).readRopertyValues(singletonList(KEY));
+    }
+
+    @Test
+    public void warmUpLeavesUnknownKeysToDatabase() {
+        stubWarmUp();
+        lazyJpaPersistence.setWarmUpExecutor(Runnable::run);
+        lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        KeyValues result = lazyJpaPersistence.load("unknownKey", keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(result, nullValue());
+        verify(ropertyValueDAO).readRopertyValues(singletonList("unknownKey"));
+    }
+
+    @Test
+    public void storeInvalidatesWarmedUpKeyValues() {
+        stubWarmUp();
+        when(keyValues.getDomainSpecificValues()).thenReturn(singleton(domainSpecificValue));
+        when(domainSpecificValue.getValue()).thenReturn("value");
+        when(domainSpecificValue.getPatternStr()).thenReturn("");
+        lazyJpaPersistence.setWarmUpExecutor(Runnable::run);
+        lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        lazyJpaPersistence.store(KEY, keyValues, "");
+        lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        verify(ropertyValueDAO, times(2)).readRopertyValues(singletonList(KEY));
+    }
+
+    @Test
+    public void lazyLoadWaitsForKeyValuesOfInFlightWarmUp() throws Exception {
+        CountDownLatch warmUpLoading = new CountDownLatch(1);
+        CountDownLatch databaseResponding = new CountDownLatch(1);
+        stubWarmUp();
+        when(ropertyValueDAO.readRopertyValues(singletonList(KEY))).thenAnswer(invocation -> {
+            warmUpLoading.countDown();
+            databaseResponding.await();
+            return singletonList(ropertyValue());
+        });
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            lazyJpaPersistence.setWarmUpExecutor(executorService);
+            lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+            assertThat(warmUpLoading.await(10, TimeUnit.SECONDS), is(true));
+
+            Future<KeyValues> result = executorService.submit(() -> lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory));
+            Thread.sleep(100L);
+            assertThat(result.isDone(), is(false));
+            databaseResponding.countDown();
+
+            assertThat(result.get(10, TimeUnit.SECONDS), is(keyValues));
+            verify(ropertyValueDAO).readRopertyValues(singletonList(KEY));
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void warmedUpLoadIsRecordedOnce() {
+        stubWarmUp();
+        lazyJpaPersistence.setWarmUpExecutor(Runnable::run);
+        lazyJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+        lazyJpaPersistence.load(KEY, keyValuesFactory, domainSpecificValueFactory);
+
+        PersistenceMetrics metrics = lazyJpaPersistence.getMetrics();
+        assertThat(metrics.getStatistics(PersistenceMetrics.Operation.LOAD_ALL).getCount(), is(1L));
+        assertThat(metrics.getStatistics(PersistenceMetrics.Operation.LOAD).getCount(), is(2L));
+        assertThat(metrics.getRowsRead(), is(2L));
+    }
+
+    private void stubWarmUp() {
+        when(ropertyKeyDAO.loadRopertyKeyIds()).thenReturn(singletonList(KEY));
+        when(ropertyValueDAO.readRopertyValues(singletonList(KEY))).thenReturn(singletonList(ropertyValue()));
+        when(keyValuesFactory.create(domainSpecificValueFactory)).thenReturn(keyValues);
+    }
+
+    private static RopertyValue ropertyValue() {
+        RopertyKey ropertyKey = new RopertyKey();
+        ropertyKey.setId(KEY);
+        RopertyValue ropertyValue = new RopertyValue();
+        ropertyValue.setKey(ropertyKey);
+        ropertyValue.setPattern("");
+        ropertyValue.setChangeSet("");
+        ropertyValue.setValue("value");
+        return ropertyValue;
+    }
+
 }
@@ -21,4 +21,16 @@ public class LikeCriterionTest {
         assertThat(likeCriterion.getExpression(), is(expression));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void escapesWildcardsOfPrefix() {
+        LikeCriterion likeCriterion = new LikeCriterion().withPrefix("100%_rate\\");
+        assertThat(likeCriterion.getExpression(), is("100\\%\\_rate\\\\%"));
+    }
+
+    @Test
+    public void escapesWildcardsOfSubstring() {
+        LikeCriterion likeCriterion = new LikeCriterion().withSubstring("100%_rate\\");
+        assertThat(likeCriterion.getExpression(), is("%100\\%\\_rate\\\\%"));
+    }
+
+}
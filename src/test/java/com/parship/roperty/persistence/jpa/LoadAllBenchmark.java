@@ -0,0 +1,96 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.DefaultDomainSpecificValueFactory;
+import com.parship.roperty.DefaultKeyValuesFactory;
+import com.parship.roperty.DomainSpecificValueFactory;
+import com.parship.roperty.KeyValues;
+import com.parship.roperty.KeyValuesFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LoadAllBenchmark {
+
+    private static final String[] PATTERNS = {"", "DE", "DE|mobile", "AT|web"};
+
+    @Param({"40000"})
+    private int numKeys;
+
+    private H2Fixture h2Fixture;
+
+    private ExecutorService executorService;
+
+    private JpaPersistence sequentialJpaPersistence;
+
+    private JpaPersistence parallelJpaPersistence;
+
+    private JpaPersistence snapshotJpaPersistence;
+
+    private Path snapshotPath;
+
+    private final KeyValuesFactory keyValuesFactory = new DefaultKeyValuesFactory();
+
+    private final DomainSpecificValueFactory domainSpecificValueFactory = new DefaultDomainSpecificValueFactory();
+
+    @Setup(Level.Trial)
+    public void createSyntheticDataset() throws IOException {
+        h2Fixture = new H2Fixture("roperty_benchmark;DB_CLOSE_DELAY=-1");
+        h2Fixture.persistKeys(numKeys, i -> String.format("benchmark.key.%06d", i), (i, pattern) -> "value " + i + ' ' + pattern, PATTERNS);
+
+        executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        sequentialJpaPersistence = h2Fixture.createJpaPersistence();
+        parallelJpaPersistence = h2Fixture.createJpaPersistence();
+        parallelJpaPersistence.setExecutorService(executorService);
+        snapshotJpaPersistence = h2Fixture.createJpaPersistence();
+        snapshotPath = Files.createTempFile("roperty", ".snapshot");
+        snapshotJpaPersistence.setSnapshotFile(snapshotPath);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeEntityManagerFactory() throws IOException {
+        executorService.shutdown();
+        Files.deleteIfExists(snapshotPath);
+        h2Fixture.close();
+    }
+
+    @Benchmark
+    public Map<String, KeyValues> loadAllSequentially() {
+        return sequentialJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+    }
+
+    @Benchmark
+    public Map<String, KeyValues> loadAllInParallel() {
+        return parallelJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+    }
+
+    @Benchmark
+    public Map<String, KeyValues> loadAllFromSnapshot() {
+        return snapshotJpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+    }
+
+}
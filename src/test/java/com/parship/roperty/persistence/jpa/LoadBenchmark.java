@@ -0,0 +1,96 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.DefaultDomainSpecificValueFactory;
+import com.parship.roperty.DefaultKeyValuesFactory;
+import com.parship.roperty.DomainSpecificValueFactory;
+import com.parship.roperty.KeyValues;
+import com.parship.roperty.KeyValuesFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LoadBenchmark {
+
+    private static final String[] PATTERNS = {"", "DE", "DE|mobile", "AT|web"};
+
+    @Param({"10000"})
+    private int numKeys;
+
+    @Param({"0", "500"})
+    private long latencyMicros;
+
+    private H2Fixture h2Fixture;
+
+    private RopertyKeyDAO ropertyKeyDAO;
+
+    private RopertyValueDAO ropertyValueDAO;
+
+    private LazyJpaPersistence lazyJpaPersistence;
+
+    private final KeyValuesFactory keyValuesFactory = new DefaultKeyValuesFactory();
+
+    private final DomainSpecificValueFactory domainSpecificValueFactory = new DefaultDomainSpecificValueFactory();
+
+    @Setup(Level.Trial)
+    public void createSyntheticDataset() {
+        h2Fixture = new H2Fixture("roperty_load_benchmark;DB_CLOSE_DELAY=-1",
+                Collections.singletonMap("hibernate.session_factory.statement_inspector", LatencyInjectingStatementInspector.class.getName()));
+        h2Fixture.persistKeys(numKeys, LoadBenchmark::key, (i, pattern) -> "value " + i + ' ' + pattern, PATTERNS);
+        LatencyInjectingStatementInspector.setLatency(latencyMicros, TimeUnit.MICROSECONDS);
+
+        ropertyKeyDAO = h2Fixture.getRopertyKeyDAO();
+        ropertyValueDAO = h2Fixture.getRopertyValueDAO();
+        lazyJpaPersistence = h2Fixture.wire(new LazyJpaPersistence());
+    }
+
+    @TearDown(Level.Trial)
+    public void closeEntityManagerFactory() {
+        LatencyInjectingStatementInspector.setLatency(0, TimeUnit.MICROSECONDS);
+        h2Fixture.close();
+    }
+
+    @Benchmark
+    public KeyValues loadWithSeparateKeyLookup() {
+        RopertyKey ropertyKey = ropertyKeyDAO.loadRopertyKey(randomKey());
+        List<RopertyValue> ropertyValues = ropertyValueDAO.loadRopertyValues(ropertyKey);
+        return new RopertyValueTransformer()
+                .withDomainSpecificValueFactory(domainSpecificValueFactory)
+                .withKeyValuesFactory(keyValuesFactory)
+                .transformValues(ropertyValues);
+    }
+
+    @Benchmark
+    public KeyValues loadInSingleQuery() {
+        return lazyJpaPersistence.load(randomKey(), keyValuesFactory, domainSpecificValueFactory);
+    }
+
+    private String randomKey() {
+        return key(ThreadLocalRandom.current().nextInt(numKeys));
+    }
+
+    private static String key(int i) {
+        return String.format("benchmark.key.%06d", i);
+    }
+
+}
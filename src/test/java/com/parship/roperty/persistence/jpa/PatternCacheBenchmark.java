@@ -0,0 +1,98 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.DefaultDomainSpecificValueFactory;
+import com.parship.roperty.DefaultKeyValuesFactory;
+import com.parship.roperty.DomainSpecificValueFactory;
+import com.parship.roperty.KeyValues;
+import com.parship.roperty.KeyValuesFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PatternCacheBenchmark {
+
+    private static final String[] PATTERNS = {"", "DE", "DE|mobile", "AT|web", "DE|mobile|premium"};
+
+    @Param({"40000"})
+    private int numKeys;
+
+    @Param({"0", "10000"})
+    private int maximumPatternCacheSize;
+
+    private List<RopertyValue> ropertyValues;
+
+    private PatternCache patternCache;
+
+    private final KeyValuesFactory keyValuesFactory = new DefaultKeyValuesFactory();
+
+    private final DomainSpecificValueFactory domainSpecificValueFactory = new DefaultDomainSpecificValueFactory();
+
+    @Setup(Level.Trial)
+    public void createSyntheticValues() {
+        ropertyValues = new ArrayList<>(numKeys * PATTERNS.length);
+        for (int i = 0; i < numKeys; i++) {
+            RopertyKey ropertyKey = new RopertyKey();
+            ropertyKey.setId(String.format("benchmark.key.%06d", i));
+            for (String pattern : PATTERNS) {
+                RopertyValue ropertyValue = new RopertyValue();
+                ropertyValue.setKey(ropertyKey);
+                ropertyValue.setPattern(new String(pattern));
+                ropertyValue.setChangeSet("");
+                ropertyValue.setValue(i);
+                ropertyValues.add(ropertyValue);
+            }
+        }
+        patternCache = new PatternCache(maximumPatternCacheSize);
+    }
+
+    @Benchmark
+    public Map<String, KeyValues> transformValuesByKey() {
+        return new RopertyValueTransformer()
+                .withDomainSpecificValueFactory(domainSpecificValueFactory)
+                .withKeyValuesFactory(keyValuesFactory)
+                .withPatternCache(patternCache)
+                .transformValuesByKey(ropertyValues);
+    }
+
+    @Benchmark
+    public int splitWithRegularExpression() {
+        int numDomainKeyParts = 0;
+        for (RopertyValue ropertyValue : ropertyValues) {
+            String pattern = ropertyValue.getPattern();
+            if (!pattern.isEmpty()) {
+                numDomainKeyParts += pattern.split("\\|").length;
+            }
+        }
+        return numDomainKeyParts;
+    }
+
+    @Benchmark
+    public int splitWithPatternCache() {
+        int numDomainKeyParts = 0;
+        for (RopertyValue ropertyValue : ropertyValues) {
+            numDomainKeyParts += patternCache.split(ropertyValue.getPattern()).length;
+        }
+        return numDomainKeyParts;
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class PatternCacheTest {
+
+    private final PatternCache patternCache = new PatternCache();
+
+    @Test(expected = NullPointerException.class)
+    public void splitFailsForNullPattern() {
+        patternCache.split(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maximumSizeMustNotBeNegative() {
+        new PatternCache(-1);
+    }
+
+    @Test
+    public void emptyPatternHasNoDomainKeyParts() {
+        assertThat(patternCache.split(""), emptyArray());
+        assertThat(patternCache.size(), is(0));
+    }
+
+    @Test
+    public void splitsPatternAtSeparator() {
+        assertThat(patternCache.split("DE"), arrayContaining("DE"));
+        assertThat(patternCache.split("DE|mobile"), arrayContaining("DE", "mobile"));
+        assertThat(patternCache.split("|mobile"), arrayContaining("", "mobile"));
+        assertThat(patternCache.split("DE||mobile"), arrayContaining("DE", "", "mobile"));
+    }
+
+    @Test
+    public void splitsLikeRegularExpression() {
+        for (String pattern : new String[]{"DE|", "DE||", "|", "||", "|DE|", "DE|mobile|"}) {
+            assertThat(pattern, patternCache.split(pattern), is(pattern.split("\\|")));
+        }
+    }
+
+    @Test
+    public void returnsSameDomainKeyPartsForSamePattern() {
+        String[] domainKeyParts = patternCache.split("DE|mobile");
+
+        assertThat(patternCache.split(new String("DE|mobile")), sameInstance(domainKeyParts));
+        assertThat(patternCache.size(), is(1));
+    }
+
+    @Test
+    public void sharesDomainKeyPartsBetweenPatterns() {
+        String[] mobileDomainKeyParts = patternCache.split("DE|mobile");
+        String[] webDomainKeyParts = patternCache.split("DE|web");
+
+        assertThat(webDomainKeyParts[0], sameInstance(mobileDomainKeyParts[0]));
+        assertThat(patternCache.split("DE")[0], sameInstance(mobileDomainKeyParts[0]));
+    }
+
+    @Test
+    public void splitsWithoutCachingWhenFull() {
+        PatternCache fullPatternCache = new PatternCache(1);
+        fullPatternCache.split("DE|mobile");
+
+        String[] domainKeyParts = fullPatternCache.split("AT|web");
+
+        assertThat(domainKeyParts, arrayContaining("AT", "web"));
+        assertThat(fullPatternCache.split("AT|web"), not(sameInstance(domainKeyParts)));
+        assertThat(fullPatternCache.size(), is(1));
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.persistence.jpa.PersistenceMetrics.Operation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PersistenceMetricsBenchmark {
+
+    private final PersistenceMetrics metrics = new PersistenceMetrics();
+
+    @Benchmark
+    public long recordSuccess() {
+        long startTime = metrics.start();
+        metrics.succeeded(Operation.LOAD, startTime);
+        return startTime;
+    }
+
+    @Benchmark
+    public long recordFailure() {
+        long startTime = metrics.start();
+        metrics.failed(Operation.STORE, startTime);
+        return startTime;
+    }
+
+    @Benchmark
+    public void recordRowsRead() {
+        metrics.rowsRead(4);
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.persistence.jpa.PersistenceMetrics.Operation;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PersistenceMetricsTest {
+
+    private final PersistenceMetrics metrics = new PersistenceMetrics();
+
+    @After
+    public void unregisterMetrics() {
+        metrics.unregister();
+    }
+
+    @Test
+    public void countsCallsAndErrorsPerOperation() {
+        metrics.succeeded(Operation.LOAD, metrics.start());
+        metrics.succeeded(Operation.LOAD, metrics.start());
+        metrics.failed(Operation.LOAD, metrics.start());
+        metrics.succeeded(Operation.STORE, metrics.start());
+
+        OperationStatistics load = metrics.getOperations().get("load");
+        assertThat(load.getCount(), is(3L));
+        assertThat(load.getErrors(), is(1L));
+        assertThat(metrics.getOperations().get("store").getCount(), is(1L));
+        assertThat(metrics.getOperations().get("findKeys").getCount(), is(0L));
+    }
+
+    @Test
+    public void reportsPercentilesFromPowerOfTwoBuckets() {
+        for (int i = 0; i < 98; i++) {
+            metrics.succeeded(Operation.FIND_KEYS, System.nanoTime() - 300_000L);
+        }
+        metrics.succeeded(Operation.FIND_KEYS, System.nanoTime() - 10_000_000L);
+        metrics.succeeded(Operation.FIND_KEYS, System.nanoTime() - 1_000_000_000L);
+
+        OperationStatistics findKeys = metrics.getStatistics(Operation.FIND_KEYS);
+        assertThat(findKeys.getP50Micros(), is(512L));
+        assertThat(findKeys.getP90Micros(), is(512L));
+        assertThat(findKeys.getP99Micros(), is(16384L));
+        assertThat(findKeys.getMaxMicros() >= 1_000_000L, is(true));
+        assertThat(findKeys.getP99Micros(), lessThanOrEqualTo(findKeys.getMaxMicros()));
+    }
+
+    @Test
+    public void percentilesDoNotExceedMaximum() {
+        metrics.succeeded(Operation.RELOAD, System.nanoTime() - 5_000L);
+
+        OperationStatistics reload = metrics.getStatistics(Operation.RELOAD);
+        assertThat(reload.getP50Micros(), is(reload.getMaxMicros()));
+    }
+
+    @Test
+    public void resetClearsAllCounters() {
+        metrics.failed(Operation.REMOVE, metrics.start());
+        metrics.rowsRead(10);
+        metrics.entityManagerOpened();
+
+        metrics.reset();
+
+        assertThat(metrics.getStatistics(Operation.REMOVE).getCount(), is(0L));
+        assertThat(metrics.getStatistics(Operation.REMOVE).getErrors(), is(0L));
+        assertThat(metrics.getRowsRead(), is(0L));
+        assertThat(metrics.getEntityManagersOpened(), is(0L));
+    }
+
+    @Test
+    public void registersAsMXBean() throws Exception {
+        metrics.succeeded(Operation.LOAD_ALL, metrics.start());
+        metrics.rowsRead(42);
+        metrics.register("main");
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("com.parship.roperty.persistence.jpa:type=PersistenceMetrics,name=\"main\"");
+        assertThat(mBeanServer.getAttribute(objectName, "RowsRead"), is((Object) 42L));
+        TabularData operations = (TabularData) mBeanServer.getAttribute(objectName, "Operations");
+        CompositeData loadAll = (CompositeData) operations.get(new Object[]{"loadAll"}).get("value");
+        assertThat(loadAll.get("count"), is((Object) 1L));
+
+        metrics.unregister();
+
+        assertThat(mBeanServer.isRegistered(objectName), is(false));
+        assertThat(metrics.getObjectName(), nullValue());
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failsToRegisterTwoMetricsUnderSameName() {
+        PersistenceMetrics otherMetrics = new PersistenceMetrics();
+        otherMetrics.register("duplicate");
+        try {
+            metrics.register("duplicate");
+        } finally {
+            otherMetrics.unregister();
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class PrefixSearchTest {
+
+    private static final String[] KEYS = {"payment.fee", "Payment.Limit", "payment_fee", "paymentfee", "search.ranking.boost", "search.size"};
+
+    private H2Fixture h2Fixture;
+
+    private JpaPersistence jpaPersistence;
+
+    @Before
+    public void initializeRelationPersistence() {
+        h2Fixture = new H2Fixture("roperty_prefix_search_test");
+        h2Fixture.persistKeys(KEYS);
+        jpaPersistence = h2Fixture.createJpaPersistence();
+    }
+
+    @After
+    public void closeEntityManagerFactory() {
+        h2Fixture.close();
+    }
+
+    @Test
+    public void findsKeysByPrefixIgnoringCase() {
+        assertThat(jpaPersistence.findKeysByPrefix("PAYMENT."), contains("Payment.Limit", "payment.fee"));
+        assertThat(jpaPersistence.findKeysByPrefix("search.ranking."), contains("search.ranking.boost"));
+        assertThat(jpaPersistence.findKeysByPrefix("ranking"), empty());
+    }
+
+    @Test
+    public void matchesWildcardsOfPrefixLiterally() {
+        assertThat(jpaPersistence.findKeysByPrefix("payment_"), contains("payment_fee"));
+        assertThat(jpaPersistence.findKeysByPrefix("%"), empty());
+    }
+
+    @Test
+    public void findsPagesOfKeysByPrefix() {
+        assertThat(jpaPersistence.findKeysByPrefix("payment", null, 2), contains("Payment.Limit", "payment.fee"));
+        assertThat(jpaPersistence.findKeysByPrefix("payment", "payment.fee", 2), contains("payment_fee", "paymentfee"));
+        assertThat(jpaPersistence.findKeysByPrefix("payment", "paymentfee", 2), empty());
+    }
+
+    @Test
+    public void prefixSearchUsesSearchIdIndex() {
+        EntityManager entityManager = h2Fixture.getEntityManagerFactory().createEntityManager();
+        Object plan = entityManager.createNativeQuery("explain select id from roperty_key where search_id like 'payment.%'").getSingleResult();
+        entityManager.close();
+
+        assertThat(String.valueOf(plan), not(containsString("tableScan")));
+        assertThat(String.valueOf(plan).toLowerCase().contains("search_id >= 'payment.'"), is(true));
+    }
+
+}
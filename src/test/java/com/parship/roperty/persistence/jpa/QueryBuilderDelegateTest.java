@@ -0,0 +1,60 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class QueryBuilderDelegateTest {
+
+    private final QueryBuilderDelegate<RopertyKey> queryBuilderDelegate = new QueryBuilderDelegate<>();
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private QueryBuilder<RopertyKey> queryBuilder;
+
+    @Before
+    public void prepareDelegate() {
+        when(entityManagerFactory.createEntityManager()).thenReturn(entityManager);
+        queryBuilderDelegate.setEntityManagerFactory(entityManagerFactory);
+        queryBuilderDelegate.setQueryBuilder(queryBuilder);
+    }
+
+    @Test
+    public void closingCreatedEntityManagerReleasesIt() {
+        EntityManager createdEntityManager = queryBuilderDelegate.createEntityManager();
+
+        createdEntityManager.close();
+
+        verify(queryBuilder).withEntityManager(createdEntityManager);
+        verify(entityManager).close();
+        verify(queryBuilder).withoutEntityManager(createdEntityManager);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failedCloseReleasesEntityManager() {
+        doThrow(new IllegalStateException()).when(entityManager).close();
+        EntityManager createdEntityManager = queryBuilderDelegate.createEntityManager();
+
+        try {
+            createdEntityManager.close();
+        } finally {
+            verify(queryBuilder).withoutEntityManager(createdEntityManager);
+        }
+    }
+
+}
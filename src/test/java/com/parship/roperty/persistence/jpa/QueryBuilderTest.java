@@ -8,9 +8,13 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
@@ -20,6 +24,10 @@ import javax.persistence.metamodel.SingularAttribute;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -29,6 +37,7 @@ public class QueryBuilderTest {
 
     private static final String ATTRIBUTE_NAME = "attributeName";
     public static final String EXPRESSION = "expression";
+    private static final String QUERY_NAME_PREFIX = Long.class.getName() + '.';
 
     @InjectMocks
     private QueryBuilder<Long> queryBuilder;
@@ -72,9 +81,36 @@ public class QueryBuilderTest {
     @Mock
     private TypedQuery<Long> typedQuery;
 
+    @Mock
+    private TypedQuery<Long> namedQuery;
+
     @Mock
     private Predicate predicate;
 
+    @Mock
+    private Order order;
+
+    @Mock
+    private CriteriaQuery<String> stringQuery;
+
+    @Mock
+    private TypedQuery<String> stringTypedQuery;
+
+    @Mock
+    private Expression<String> stringExpression;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private ParameterExpression parameter;
+
+    @Mock
+    private ParameterExpression<String> stringParameter;
+
+    @Mock
+    private ParameterExpression<Character> characterParameter;
+
     @Before
     public void prepareMocks() {
         when(entityManager.getMetamodel()).thenReturn(metamodel);
@@ -83,6 +119,7 @@ public class QueryBuilderTest {
         when(metamodel.entity(Long.class)).thenReturn(entityType);
         when(criteriaQuery.from(entityType)).thenReturn(root);
         when(entityManager.createQuery(criteriaQuery)).thenReturn(typedQuery);
+        when(entityManager.getEntityManagerFactory()).thenReturn(entityManagerFactory);
         queryBuilder.withEntityManager(entityManager);
     }
 
@@ -92,40 +129,101 @@ public class QueryBuilderTest {
         when(equalsCriterion.getAttributeName()).thenReturn(ATTRIBUTE_NAME);
         when(equalsCriterion.getComparison()).thenReturn(1L);
         when(entityType.getSingularAttribute(ATTRIBUTE_NAME)).thenReturn(singularAttribute);
-        when(criteriaBuilder.equal(path, 1L)).thenReturn(restriction);
+        when(singularAttribute.getJavaType()).thenReturn(Long.class);
+        when(criteriaBuilder.parameter(Long.class, "p0")).thenReturn(parameter);
+        when(criteriaBuilder.equal(path, parameter)).thenReturn(restriction);
         when(criteriaBuilder.and(restriction)).thenReturn(predicate);
         when(root.get(singularAttribute)).thenReturn(path);
 
         TypedQuery<Long> typedQuery = queryBuilder.equality(equalsCriterion);
 
-        verify(equalsCriterion, times(2)).getAttributeName();
+        verify(equalsCriterion).getAttributeName();
         verify(entityType).getSingularAttribute(ATTRIBUTE_NAME);
         verify(root).get(singularAttribute);
         verify(equalsCriterion, times(2)).getComparison();
-        verify(criteriaBuilder).equal(path, 1L);
+        verify(criteriaBuilder).equal(path, parameter);
         verify(criteriaQuery).where(predicate);
+        verify(typedQuery).setParameter("p0", 1L);
         verifyMocks();
         assertThat(typedQuery, is(this.typedQuery));
     }
 
+    @Test
+    public void repeatedEqualityShouldReuseNamedQuery() throws Exception {
+        queryBuilder.setResultClass(Long.class);
+        when(equalsCriterion.getAttributeName()).thenReturn(ATTRIBUTE_NAME);
+        when(equalsCriterion.getComparison()).thenReturn(1L, 1L, 2L, 2L);
+        when(entityType.getSingularAttribute(ATTRIBUTE_NAME)).thenReturn(singularAttribute);
+        when(entityManager.createNamedQuery(QUERY_NAME_PREFIX + "equality(attributeName)", Long.class)).thenReturn(namedQuery);
+
+        queryBuilder.equality(equalsCriterion);
+        TypedQuery<Long> typedQuery = queryBuilder.equality(equalsCriterion);
+
+        verifyMocks();
+        verify(typedQuery).setParameter("p0", 2L);
+        assertThat(typedQuery, is(namedQuery));
+    }
+
+    @Test
+    public void equalityShouldRegisterNamedQueryOnEveryEntityManagerFactory() throws Exception {
+        EntityManager otherEntityManager = mock(EntityManager.class);
+        EntityManagerFactory otherEntityManagerFactory = mock(EntityManagerFactory.class);
+        queryBuilder.setResultClass(Long.class);
+        when(equalsCriterion.getAttributeName()).thenReturn(ATTRIBUTE_NAME);
+        when(entityType.getSingularAttribute(ATTRIBUTE_NAME)).thenReturn(singularAttribute);
+        when(equalsCriterion.getComparison()).thenReturn(1L);
+        when(otherEntityManager.getMetamodel()).thenReturn(metamodel);
+        when(otherEntityManager.getCriteriaBuilder()).thenReturn(criteriaBuilder);
+        when(otherEntityManager.createQuery(criteriaQuery)).thenReturn(typedQuery);
+        when(otherEntityManager.getEntityManagerFactory()).thenReturn(otherEntityManagerFactory);
+
+        queryBuilder.equality(equalsCriterion);
+        queryBuilder.withEntityManager(otherEntityManager);
+        TypedQuery<Long> typedQuery = queryBuilder.equality(equalsCriterion);
+
+        verify(otherEntityManagerFactory).addNamedQuery(QUERY_NAME_PREFIX + "equality(attributeName)", this.typedQuery);
+        verify(otherEntityManager, never()).createNamedQuery(any(String.class), any(Class.class));
+        assertThat(typedQuery, is(this.typedQuery));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void failsIfEntityManagerWasReleased() {
+        queryBuilder.setResultClass(Long.class);
+        queryBuilder.withoutEntityManager(entityManager);
+
+        queryBuilder.all();
+    }
+
+    @Test
+    public void keepsEntityManagerIfAnotherOneIsReleased() throws Exception {
+        queryBuilder.setResultClass(Long.class);
+        queryBuilder.withoutEntityManager(mock(EntityManager.class));
+
+        queryBuilder.all();
+
+        verify(entityManager).createQuery(criteriaQuery);
+    }
+
     @Test
     public void returnsTypedQueryWhenFetchingEntityByAttribute() throws Exception {
         queryBuilder.setResultClass(Long.class);
         when(likeCriterion.getAttributeName()).thenReturn(ATTRIBUTE_NAME);
         when(likeCriterion.getExpression()).thenReturn(EXPRESSION);
         when(entityType.getSingularAttribute(ATTRIBUTE_NAME, String.class)).thenReturn(singularAttribute);
-        when(criteriaBuilder.like(stringPath, EXPRESSION)).thenReturn(restriction);
+        when(criteriaBuilder.parameter(String.class, "p0")).thenReturn(stringParameter);
+        when(criteriaBuilder.like(stringPath, stringParameter)).thenReturn(restriction);
         when(criteriaBuilder.and(restriction)).thenReturn(predicate);
         when(criteriaBuilder.lower(stringPath)).thenReturn(stringPath);
         when(root.get(singularAttribute)).thenReturn(stringPath);
 
         TypedQuery<Long> typedQuery = queryBuilder.likeliness(likeCriterion);
 
-        verify(likeCriterion, times(2)).getAttributeName();
+        verify(likeCriterion).getAttributeName();
         verify(likeCriterion, times(2)).getExpression();
         verify(entityType).getSingularAttribute(ATTRIBUTE_NAME, String.class);
         verify(root).get(singularAttribute);
-        verify(criteriaBuilder).like(stringPath, EXPRESSION);
+        verify(criteriaBuilder).like(stringPath, stringParameter);
+        verify(typedQuery).setParameter("p0", EXPRESSION);
         verify(criteriaBuilder).lower(stringPath);
         verify(criteriaBuilder).and(restriction);
         verify(criteriaQuery).where(predicate);
@@ -159,6 +257,137 @@ public class QueryBuilderTest {
         assertThat(typedQuery, is(this.typedQuery));
     }
 
+    @Test
+    public void fetchingAllEntitiesWithAssociationShouldReturnOrderedTypedQuery() throws Exception {
+        queryBuilder.setResultClass(Long.class);
+        when(entityType.getSingularAttribute(ATTRIBUTE_NAME)).thenReturn(singularAttribute);
+        when(root.get(singularAttribute)).thenReturn(path);
+        when(criteriaBuilder.asc(path)).thenReturn(order);
+
+        TypedQuery<Long> typedQuery = queryBuilder.allFetching(ATTRIBUTE_NAME);
+
+        verifyMocks();
+        verify(root).fetch(ATTRIBUTE_NAME);
+        verify(criteriaQuery).select(root);
+        verify(criteriaQuery).orderBy(order);
+        assertThat(typedQuery, is(this.typedQuery));
+    }
+
+    @Test
+    public void fetchingOrderedAttributesAfterLastValueShouldReturnTypedQuery() throws Exception {
+        queryBuilder.setResultClass(Long.class);
+        when(criteriaBuilder.createQuery(String.class)).thenReturn(stringQuery);
+        when(stringQuery.from(entityType)).thenReturn(root);
+        when(entityType.getSingularAttribute(ATTRIBUTE_NAME, String.class)).thenReturn(singularAttribute);
+        when(root.get(singularAttribute)).thenReturn(stringPath);
+        when(criteriaBuilder.parameter(String.class, "p0")).thenReturn(stringParameter);
+        when(criteriaBuilder.greaterThan(stringPath, stringParameter)).thenReturn(restriction);
+        when(criteriaBuilder.asc(stringPath)).thenReturn(order);
+        when(entityManager.createQuery(stringQuery)).thenReturn(stringTypedQuery);
+
+        TypedQuery<String> typedQuery = queryBuilder.orderedAttributes(ATTRIBUTE_NAME, String.class, EXPRESSION);
+
+        verify(stringQuery).select(stringPath);
+        verify(stringQuery).where(restriction);
+        verify(stringQuery).orderBy(order);
+        verify(stringTypedQuery).setParameter("p0", EXPRESSION);
+        verify(entityManagerFactory).addNamedQuery(QUERY_NAME_PREFIX + "orderedAttributesAfter(attributeName)", stringTypedQuery);
+        assertThat(typedQuery, is(stringTypedQuery));
+    }
+
+    @Test
+    public void fetchingOrderedAttributesLikeExpressionAfterLastValueShouldReturnTypedQuery() throws Exception {
+        queryBuilder.setResultClass(Long.class);
+        when(likeCriterion.getAttributeName()).thenReturn(ATTRIBUTE_NAME);
+        when(likeCriterion.getExpression()).thenReturn("%Expression%");
+        when(criteriaBuilder.createQuery(String.class)).thenReturn(stringQuery);
+        when(stringQuery.from(entityType)).thenReturn(root);
+        when(entityType.getSingularAttribute(ATTRIBUTE_NAME, String.class)).thenReturn(singularAttribute);
+        when(root.get(singularAttribute)).thenReturn(stringPath);
+        when(criteriaBuilder.lower(stringPath)).thenReturn(stringExpression);
+        when(criteriaBuilder.parameter(String.class, "p0")).thenReturn(stringParameter);
+        when(criteriaBuilder.parameter(Character.class, "p1")).thenReturn(characterParameter);
+        when(criteriaBuilder.parameter(String.class, "p2")).thenReturn(stringParameter);
+        when(criteriaBuilder.like(stringExpression, stringParameter, characterParameter)).thenReturn(predicate);
+        when(criteriaBuilder.greaterThan(stringPath, stringParameter)).thenReturn(restriction);
+        when(criteriaBuilder.asc(stringPath)).thenReturn(order);
+        when(entityManager.createQuery(stringQuery)).thenReturn(stringTypedQuery);
+
+        TypedQuery<String> typedQuery = queryBuilder.orderedAttributesLike(ATTRIBUTE_NAME, likeCriterion, EXPRESSION);
+
+        verify(stringQuery).select(stringPath);
+        verify(stringQuery).where(predicate, restriction);
+        verify(stringQuery).orderBy(order);
+        verify(stringTypedQuery).setParameter("p0", "%expression%");
+        verify(stringTypedQuery).setParameter("p1", '\\');
+        verify(stringTypedQuery).setParameter("p2", EXPRESSION);
+        verify(entityManagerFactory).addNamedQuery(QUERY_NAME_PREFIX + "orderedAttributesLikeAfter(attributeName,attributeName)", stringTypedQuery);
+        assertThat(typedQuery, is(stringTypedQuery));
+    }
+
+    @Test
+    public void fetchingOrderedAttributesWithPrefixShouldReturnTypedQuery() throws Exception {
+        queryBuilder.setResultClass(Long.class);
+        when(likeCriterion.getAttributeName()).thenReturn(ATTRIBUTE_NAME);
+        when(likeCriterion.getExpression()).thenReturn("Prefix%");
+        when(criteriaBuilder.createQuery(String.class)).thenReturn(stringQuery);
+        when(stringQuery.from(entityType)).thenReturn(root);
+        when(entityType.getSingularAttribute(ATTRIBUTE_NAME, String.class)).thenReturn(singularAttribute);
+        when(root.get(singularAttribute)).thenReturn(stringPath);
+        when(criteriaBuilder.parameter(String.class, "p0")).thenReturn(stringParameter);
+        when(criteriaBuilder.parameter(Character.class, "p1")).thenReturn(characterParameter);
+        when(criteriaBuilder.like(stringPath, stringParameter, characterParameter)).thenReturn(predicate);
+        when(criteriaBuilder.asc(stringPath)).thenReturn(order);
+        when(entityManager.createQuery(stringQuery)).thenReturn(stringTypedQuery);
+
+        TypedQuery<String> typedQuery = queryBuilder.orderedAttributesWithPrefix(ATTRIBUTE_NAME, likeCriterion, null);
+
+        verify(stringQuery).select(stringPath);
+        verify(stringQuery).where(predicate);
+        verify(stringQuery).orderBy(order);
+        verify(stringTypedQuery).setParameter("p0", "Prefix%");
+        verify(stringTypedQuery).setParameter("p1", '\\');
+        verify(entityManagerFactory).addNamedQuery(QUERY_NAME_PREFIX + "orderedAttributesWithPrefix(attributeName,attributeName)", stringTypedQuery);
+        assertThat(typedQuery, is(stringTypedQuery));
+    }
+
+    @Test
+    public void fetchingAttributesFromLowerBoundShouldReturnTypedQuery() throws Exception {
+        queryBuilder.setResultClass(Long.class);
+        when(criteriaBuilder.createQuery(String.class)).thenReturn(stringQuery);
+        when(stringQuery.from(entityType)).thenReturn(root);
+        when(entityType.getSingularAttribute(ATTRIBUTE_NAME, String.class)).thenReturn(singularAttribute);
+        when(root.get(singularAttribute)).thenReturn(stringPath);
+        doReturn(stringPath).when(root).get("comparedAttributeName");
+        doReturn(String.class).when(stringPath).getJavaType();
+        when(criteriaBuilder.parameter(String.class, "p0")).thenReturn(stringParameter);
+        when(criteriaBuilder.greaterThanOrEqualTo(stringPath, stringParameter)).thenReturn(restriction);
+        when(entityManager.createQuery(stringQuery)).thenReturn(stringTypedQuery);
+
+        TypedQuery<String> typedQuery = queryBuilder.attributesFrom(ATTRIBUTE_NAME, String.class, "comparedAttributeName", EXPRESSION);
+
+        verify(stringQuery).select(stringPath);
+        verify(stringQuery).where(restriction);
+        verify(stringTypedQuery).setParameter("p0", EXPRESSION);
+        assertThat(typedQuery, is(stringTypedQuery));
+    }
+
+    @Test
+    public void fetchingGreatestAttributeShouldReturnTypedQuery() throws Exception {
+        queryBuilder.setResultClass(Long.class);
+        when(criteriaBuilder.createQuery(String.class)).thenReturn(stringQuery);
+        when(stringQuery.from(entityType)).thenReturn(root);
+        when(entityType.getSingularAttribute(ATTRIBUTE_NAME, String.class)).thenReturn(singularAttribute);
+        when(root.get(singularAttribute)).thenReturn(stringPath);
+        when(criteriaBuilder.greatest(stringPath)).thenReturn(stringExpression);
+        when(entityManager.createQuery(stringQuery)).thenReturn(stringTypedQuery);
+
+        TypedQuery<String> typedQuery = queryBuilder.greatest(ATTRIBUTE_NAME, String.class);
+
+        verify(stringQuery).select(stringExpression);
+        assertThat(typedQuery, is(stringTypedQuery));
+    }
+
     private void verifyMocks() {
         verify(entityManager).getMetamodel();
         verify(entityManager).getCriteriaBuilder();
@@ -166,6 +395,7 @@ public class QueryBuilderTest {
         verify(metamodel).entity(Long.class);
         verify(criteriaQuery).from(entityType);
         verify(entityManager).createQuery(criteriaQuery);
+        verify(entityManagerFactory).addNamedQuery(any(String.class), any(TypedQuery.class));
     }
 
 }
@@ -0,0 +1,114 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.DomainSpecificValueFactory;
+import com.parship.roperty.KeyValues;
+import com.parship.roperty.KeyValuesFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.parship.roperty.persistence.jpa.H2Fixture.domainSpecificValue;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReloadQueryCountTest {
+
+    private static final int NUM_KEYS = 1200;
+    private static final int CHUNK_SIZE = 500;
+
+    private H2Fixture h2Fixture;
+
+    private JpaPersistence jpaPersistence;
+
+    private KeyValuesFactory keyValuesFactory;
+
+    private DomainSpecificValueFactory domainSpecificValueFactory;
+
+    @Before
+    public void initializeRelationPersistence() {
+        h2Fixture = new H2Fixture("roperty_reload_test");
+        h2Fixture.persistKeys(NUM_KEYS, i -> "key" + i, (i, pattern) -> i, "", "DE|mobile");
+
+        jpaPersistence = h2Fixture.createJpaPersistence();
+        jpaPersistence.setChunkSize(CHUNK_SIZE);
+
+        keyValuesFactory = mock(KeyValuesFactory.class);
+        domainSpecificValueFactory = mock(DomainSpecificValueFactory.class);
+        when(keyValuesFactory.create(any())).thenAnswer(invocation -> mock(KeyValues.class));
+    }
+
+    @After
+    public void closeEntityManagerFactory() {
+        h2Fixture.close();
+    }
+
+    @Test
+    public void reloadNeedsOneQueryPerChunkOfKeys() {
+        Map<String, KeyValues> keyValuesMap = new HashMap<>();
+        for (int i = 0; i < NUM_KEYS; i++) {
+            keyValuesMap.put("key" + i, mock(KeyValues.class));
+        }
+        keyValuesMap.put("removedKey", mock(KeyValues.class));
+        Statistics statistics = h2Fixture.clearedStatistics();
+
+        Map<String, KeyValues> result = jpaPersistence.reload(keyValuesMap, keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(result.size(), is(NUM_KEYS));
+        assertThat(statistics.getPrepareStatementCount(), is((long) (NUM_KEYS + 1 + CHUNK_SIZE - 1) / CHUNK_SIZE));
+    }
+
+    @Test
+    public void loadAllNeedsASingleQuery() {
+        Statistics statistics = h2Fixture.clearedStatistics();
+
+        Map<String, KeyValues> result = jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(result.size(), is(NUM_KEYS));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+    }
+
+    @Test
+    public void loadAllInParallelNeedsOneQueryPerChunkOfKeys() {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        jpaPersistence.setExecutorService(executorService);
+        Statistics statistics = h2Fixture.clearedStatistics();
+
+        Map<String, KeyValues> result;
+        try {
+            result = jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+        } finally {
+            executorService.shutdown();
+        }
+
+        assertThat(result.size(), is(NUM_KEYS));
+        assertThat(statistics.getPrepareStatementCount(), is((long) 1 + (NUM_KEYS + CHUNK_SIZE - 1) / CHUNK_SIZE));
+    }
+
+    @Test
+    public void incrementalReloadOnlyLoadsModifiedKeys() {
+        jpaPersistence.setIncrementalReload(true);
+        Map<String, KeyValues> keyValuesMap = jpaPersistence.loadAll(keyValuesFactory, domainSpecificValueFactory);
+        jpaPersistence.remove("key5", domainSpecificValue("DE|mobile", 5), "");
+        KeyValues unmodifiedKeyValues = keyValuesMap.get("key6");
+        Statistics statistics = h2Fixture.clearedStatistics();
+
+        Map<String, KeyValues> result = jpaPersistence.reload(keyValuesMap, keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(result.size(), is(NUM_KEYS));
+        assertThat(result.get("key5"), not(sameInstance(keyValuesMap.get("key5"))));
+        assertThat(result.get("key6"), sameInstance(unmodifiedKeyValues));
+        assertThat(statistics.getPrepareStatementCount(), is(4L));
+    }
+
+}
@@ -9,7 +9,10 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
+import java.util.Date;
 import java.util.List;
 
 import static java.util.Collections.singletonList;
@@ -19,6 +22,9 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -41,9 +47,18 @@ public class RopertyKeyDAOTest {
     @Mock
     private TypedQuery<RopertyKey> typedQuery;
 
+    @Mock
+    private TypedQuery<String> idQuery;
+
+    @Mock
+    private TypedQuery<Date> dateQuery;
+
     @Mock
     private RopertyKey ropertyKey;
 
+    @Mock
+    private Query updateQuery;
+
     @Captor
     private ArgumentCaptor<LikeCriterion> likeCriterionArgumentCaptor;
 
@@ -136,4 +151,226 @@ public class RopertyKeyDAOTest {
         assertThat(keys, contains(KEY));
     }
 
+    @Test
+    public void findsPageOfKeyIdsAfterLastKey() {
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.orderedAttributesLike(eq("id"), any(LikeCriterion.class), eq(KEY))).thenReturn(idQuery);
+        when(idQuery.setMaxResults(2)).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(singletonList("nextKey"));
+
+        List<String> keys = ropertyKeyDAO.findKeys(SUBSTRING, KEY, 2);
+
+        verify(queryBuilderDelegate).createEntityManager();
+        verify(queryBuilderDelegate).orderedAttributesLike(eq("id"), likeCriterionArgumentCaptor.capture(), eq(KEY));
+        verify(idQuery).setMaxResults(2);
+        verify(entityManager).close();
+
+        LikeCriterion likeCriterion = likeCriterionArgumentCaptor.getValue();
+        assertThat(likeCriterion.getAttributeName(), is("id"));
+        assertThat(likeCriterion.getExpression(), is('%' + SUBSTRING + '%'));
+        assertThat(keys, contains("nextKey"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void failIfMaximumNumberOfFoundKeysIsNotPositive() {
+        ropertyKeyDAO.findKeys(SUBSTRING, null, 0);
+    }
+
+    @Test
+    public void findsKeyIdsByLowerCasedPrefix() {
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.orderedAttributesWithPrefix(eq("id"), any(LikeCriterion.class), isNull())).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(singletonList("payment_fee"));
+
+        List<String> keys = ropertyKeyDAO.findKeysByPrefix("Payment_");
+
+        verify(queryBuilderDelegate).orderedAttributesWithPrefix(eq("id"), likeCriterionArgumentCaptor.capture(), isNull());
+        verify(entityManager).close();
+
+        LikeCriterion likeCriterion = likeCriterionArgumentCaptor.getValue();
+        assertThat(likeCriterion.getAttributeName(), is("searchId"));
+        assertThat(likeCriterion.getExpression(), is("payment\\_%"));
+        assertThat(keys, contains("payment_fee"));
+    }
+
+    @Test
+    public void findsPageOfKeyIdsByPrefixAfterLastKey() {
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.orderedAttributesWithPrefix(eq("id"), any(LikeCriterion.class), eq(KEY))).thenReturn(idQuery);
+        when(idQuery.setMaxResults(2)).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(singletonList("keyNext"));
+
+        List<String> keys = ropertyKeyDAO.findKeysByPrefix("key", KEY, 2);
+
+        verify(idQuery).setMaxResults(2);
+        verify(entityManager).close();
+        assertThat(keys, contains("keyNext"));
+    }
+
+    @Test
+    public void loadsOrderedKeyIdsAfterLastKey() {
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.orderedAttributes("id", String.class, KEY)).thenReturn(idQuery);
+        when(idQuery.setMaxResults(2)).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(singletonList("nextKey"));
+
+        List<String> keys = ropertyKeyDAO.loadRopertyKeyIds(KEY, 2);
+
+        verify(queryBuilderDelegate).createEntityManager();
+        verify(queryBuilderDelegate).orderedAttributes("id", String.class, KEY);
+        verify(idQuery).setMaxResults(2);
+        verify(idQuery).getResultList();
+        verify(entityManager).close();
+        assertThat(keys, contains("nextKey"));
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failIfTypedQueryIsNullOnLoadingKeyIds() {
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+
+        ropertyKeyDAO.loadRopertyKeyIds(null, 1);
+    }
+
+    @Test
+    public void loadsAllKeyIds() {
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.orderedAttributes("id", String.class, null)).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(singletonList(KEY));
+
+        List<String> keys = ropertyKeyDAO.loadRopertyKeyIds();
+
+        verify(queryBuilderDelegate).createEntityManager();
+        verify(queryBuilderDelegate).orderedAttributes("id", String.class, null);
+        verify(idQuery).getResultList();
+        verify(entityManager).close();
+        assertThat(keys, contains(KEY));
+    }
+
+    @Test
+    public void loadsKeyIdsModifiedSinceDate() {
+        Date since = new Date();
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.attributesFrom("id", String.class, "lastModified", since)).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(singletonList(KEY));
+
+        List<String> keys = ropertyKeyDAO.loadRopertyKeyIdsModifiedSince(since);
+
+        verify(queryBuilderDelegate).createEntityManager();
+        verify(queryBuilderDelegate).attributesFrom("id", String.class, "lastModified", since);
+        verify(idQuery).getResultList();
+        verify(entityManager).close();
+        assertThat(keys, contains(KEY));
+    }
+
+    @Test
+    public void loadsLastModification() {
+        Date lastModification = new Date();
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.greatest("lastModified", Date.class)).thenReturn(dateQuery);
+        when(dateQuery.getSingleResult()).thenReturn(lastModification);
+
+        Date result = ropertyKeyDAO.loadLastModification();
+
+        verify(queryBuilderDelegate).createEntityManager();
+        verify(queryBuilderDelegate).greatest("lastModified", Date.class);
+        verify(dateQuery).getSingleResult();
+        verify(entityManager).close();
+        assertThat(result, is(lastModification));
+    }
+
+    @Test
+    public void loadRevisionSummarizesKeys() {
+        TypedQuery<Tuple> summaryQuery = mock(TypedQuery.class);
+        Tuple summary = mock(Tuple.class);
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.summary("version", "lastModified", Date.class)).thenReturn(summaryQuery);
+        when(summaryQuery.getSingleResult()).thenReturn(summary);
+        when(summary.get(0, Long.class)).thenReturn(3L);
+        when(summary.get(1, Long.class)).thenReturn(7L);
+        when(summary.get(2, Date.class)).thenReturn(new Date(1000L));
+
+        Revision revision = ropertyKeyDAO.loadRevision();
+
+        verify(entityManager).close();
+        assertThat(revision, is(new Revision(3L, 7L, 1000L)));
+    }
+
+    @Test
+    public void loadRevisionOfNoKeys() {
+        TypedQuery<Tuple> summaryQuery = mock(TypedQuery.class);
+        Tuple summary = mock(Tuple.class);
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.summary("version", "lastModified", Date.class)).thenReturn(summaryQuery);
+        when(summaryQuery.getSingleResult()).thenReturn(summary);
+        when(summary.get(0, Long.class)).thenReturn(0L);
+
+        assertThat(ropertyKeyDAO.loadRevision(), is(new Revision(0L, 0L, 0L)));
+    }
+
+    @Test
+    public void loadsRopertyKeysByIdsInGivenEntityManager() {
+        when(queryBuilderDelegate.inclusion(any(InCriterion.class))).thenReturn(typedQuery);
+        when(typedQuery.getResultList()).thenReturn(singletonList(ropertyKey));
+
+        List<RopertyKey> ropertyKeys = ropertyKeyDAO.loadRopertyKeys(entityManager, singletonList(KEY));
+
+        ArgumentCaptor<InCriterion> inCriterionCaptor = ArgumentCaptor.forClass(InCriterion.class);
+        verify(queryBuilderDelegate).withEntityManager(entityManager);
+        verify(queryBuilderDelegate).inclusion(inCriterionCaptor.capture());
+        assertThat(inCriterionCaptor.getValue().getAttributeName(), is("id"));
+        assertThat(inCriterionCaptor.getValue().getValues().contains(KEY), is(true));
+        verify(queryBuilderDelegate).withoutEntityManager(entityManager);
+        verifyNoMoreInteractions(queryBuilderDelegate, entityManager);
+        assertThat(ropertyKeys, contains(ropertyKey));
+    }
+
+    @Test
+    public void removesRopertyKeyInGivenEntityManager() {
+        when(queryBuilderDelegate.deletion(any(EqualsCriterion.class), isNull())).thenReturn(updateQuery);
+        when(updateQuery.executeUpdate()).thenReturn(1);
+
+        int result = ropertyKeyDAO.removeRopertyKey(entityManager, KEY);
+
+        ArgumentCaptor<EqualsCriterion> equalsCriterionCaptor = ArgumentCaptor.forClass(EqualsCriterion.class);
+        verify(queryBuilderDelegate).withEntityManager(entityManager);
+        verify(queryBuilderDelegate).deletion(equalsCriterionCaptor.capture(), isNull());
+        assertThat(equalsCriterionCaptor.getValue().getAttributeName(), is("id"));
+        assertThat(equalsCriterionCaptor.getValue().getComparison(), is(KEY));
+        verify(updateQuery).executeUpdate();
+        verify(queryBuilderDelegate).withoutEntityManager(entityManager);
+        verifyNoMoreInteractions(queryBuilderDelegate, entityManager);
+        assertThat(result, is(1));
+    }
+
+    @Test
+    public void touchesRopertyKeyInGivenEntityManager() {
+        Date lastModified = new Date();
+        when(queryBuilderDelegate.assignment(eq("lastModified"), eq(Date.class), eq(lastModified), any(EqualsCriterion.class))).thenReturn(updateQuery);
+
+        ropertyKeyDAO.touchRopertyKey(entityManager, KEY, lastModified);
+
+        verify(queryBuilderDelegate).withEntityManager(entityManager);
+        verify(updateQuery).executeUpdate();
+        verifyNoMoreInteractions(entityManager);
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failIfQueryIsNullOnRemovingKey() {
+        ropertyKeyDAO.removeRopertyKey(entityManager, KEY);
+    }
+
+    @Test
+    public void touchesRopertyKeyOnlyForExpectedVersion() {
+        Date lastModified = new Date();
+        when(queryBuilderDelegate.assignment(eq("lastModified"), eq(Date.class), eq(lastModified), any(EqualsCriterion.class), any(EqualsCriterion.class))).thenReturn(updateQuery);
+
+        ropertyKeyDAO.touchRopertyKey(entityManager, KEY, 3L, lastModified);
+
+        ArgumentCaptor<EqualsCriterion> equalsCriterionCaptor = ArgumentCaptor.forClass(EqualsCriterion.class);
+        verify(queryBuilderDelegate).assignment(eq("lastModified"), eq(Date.class), eq(lastModified), equalsCriterionCaptor.capture(), equalsCriterionCaptor.capture());
+        assertThat(equalsCriterionCaptor.getAllValues().get(1).getAttributeName(), is("version"));
+        assertThat(equalsCriterionCaptor.getAllValues().get(1).getComparison(), is(3L));
+        verify(updateQuery).executeUpdate();
+    }
+
 }
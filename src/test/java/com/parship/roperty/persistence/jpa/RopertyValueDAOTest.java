@@ -2,22 +2,31 @@ package com.parship.roperty.persistence.jpa;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -169,4 +178,177 @@ public class RopertyValueDAOTest {
     }
 
 
+    @Test(expected = RopertyPersistenceException.class)
+    public void failIfTypedQueryIsNullOnLoadingAllRopertyValues() {
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+
+        ropertyValueDAO.loadAllRopertyValues();
+    }
+
+    @Test
+    public void loadAllRopertyValuesFetchingTheirKeys() {
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.allFetching("key")).thenReturn(typedQuery);
+        when(typedQuery.getResultList()).thenReturn(Arrays.asList(ropertyValue));
+
+        List<RopertyValue> ropertyValues = ropertyValueDAO.loadAllRopertyValues();
+
+        verify(queryBuilderDelegate).createEntityManager();
+        verify(queryBuilderDelegate).allFetching("key");
+        verify(typedQuery).getResultList();
+        verify(entityManager).close();
+        assertThat(ropertyValues, contains(ropertyValue));
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failIfTypedQueryIsNullOnReadingAllRopertyValues() {
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+
+        ropertyValueDAO.readAllRopertyValues();
+    }
+
+    @Test
+    public void readAllRopertyValuesHandsOverValuesOfEachKey() {
+        TypedQuery<Tuple> projection = mock(TypedQuery.class);
+        Tuple defaultTuple = tuple("key", "", ValueType.STRING, "value", null);
+        Tuple mobileTuple = tuple("key", "DE|mobile", ValueType.LONG, null, 1L);
+        Tuple otherTuple = tuple("otherKey", "", ValueType.LONG, null, 2L);
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.projection(eq("key.id"), isNull(), any())).thenReturn(projection);
+        when(projection.getResultList()).thenReturn(Arrays.asList(defaultTuple, mobileTuple, otherTuple));
+        List<List<RopertyValue>> ropertyValuesOfKeys = new ArrayList<>();
+
+        ropertyValueDAO.readAllRopertyValues(ropertyValuesOfKeys::add);
+
+        verify(entityManager).close();
+        assertThat(ropertyValuesOfKeys.size(), is(2));
+        assertThat(ropertyValuesOfKeys.get(0).size(), is(2));
+        assertThat(ropertyValuesOfKeys.get(0).get(1).getPattern(), is("DE|mobile"));
+        assertThat(ropertyValuesOfKeys.get(1).size(), is(1));
+        assertThat(ropertyValuesOfKeys.get(1).get(0).getKey().getId(), is("otherKey"));
+    }
+
+    @Test
+    public void readRopertyValuesProjectsRowsSharingTheirKeys() {
+        TypedQuery<Tuple> projection = mock(TypedQuery.class);
+        Tuple defaultTuple = tuple("key", "", ValueType.STRING, "value", null);
+        Tuple mobileTuple = tuple("key", "DE|mobile", ValueType.LONG, null, 1L);
+        Tuple otherTuple = tuple("otherKey", "", ValueType.LONG, null, 2L);
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.projection(eq("key.id"), any(InCriterion.class), any())).thenReturn(projection);
+        when(projection.getResultList()).thenReturn(Arrays.asList(defaultTuple, mobileTuple, otherTuple));
+
+        List<RopertyValue> ropertyValues = ropertyValueDAO.readRopertyValues(Arrays.asList("key", "otherKey"));
+
+        verify(entityManager).close();
+        assertThat(ropertyValues.size(), is(3));
+        assertThat(ropertyValues.get(0).getKey().getId(), is("key"));
+        assertThat(ropertyValues.get(0).getKey().getDescription(), is("key description"));
+        assertThat(ropertyValues.get(0).getValue(), is("value"));
+        assertThat(ropertyValues.get(1).getKey(), sameInstance(ropertyValues.get(0).getKey()));
+        assertThat(ropertyValues.get(1).getPattern(), is("DE|mobile"));
+        assertThat(ropertyValues.get(1).getValue(), is(1L));
+        assertThat(ropertyValues.get(2).getKey().getId(), is("otherKey"));
+        assertThat(ropertyValues.get(2).getValue(), is(2L));
+    }
+
+    @Test
+    public void readRopertyValuesProjectsRowsOfKeyRange() {
+        TypedQuery<Tuple> projection = mock(TypedQuery.class);
+        Tuple defaultTuple = tuple("key", "", ValueType.STRING, "value", null);
+        Tuple otherTuple = tuple("otherKey", "", ValueType.LONG, null, 2L);
+        when(queryBuilderDelegate.createEntityManager()).thenReturn(entityManager);
+        when(queryBuilderDelegate.rangeProjection(eq("key.id"), any(BetweenCriterion.class), any())).thenReturn(projection);
+        when(projection.getResultList()).thenReturn(Arrays.asList(defaultTuple, otherTuple));
+
+        List<RopertyValue> ropertyValues = ropertyValueDAO.readRopertyValues("key", "otherKey");
+
+        ArgumentCaptor<BetweenCriterion> betweenCriterion = ArgumentCaptor.forClass(BetweenCriterion.class);
+        verify(queryBuilderDelegate).rangeProjection(eq("key.id"), betweenCriterion.capture(), any());
+        verify(entityManager).close();
+        assertThat(betweenCriterion.getValue().getAttributeName(), is("key.id"));
+        assertThat(betweenCriterion.getValue().getLowerBound(), is("key"));
+        assertThat(betweenCriterion.getValue().getUpperBound(), is("otherKey"));
+        assertThat(ropertyValues.size(), is(2));
+        assertThat(ropertyValues.get(1).getKey().getId(), is("otherKey"));
+        assertThat(ropertyValues.get(1).getValue(), is(2L));
+    }
+
+    @Test
+    public void removeRopertyValuesOfPatternsInGivenEntityManager() {
+        Query deletion = mock(Query.class);
+        when(queryBuilderDelegate.deletion(any(EqualsCriterion.class), any(InCriterion.class))).thenReturn(deletion);
+        when(deletion.executeUpdate()).thenReturn(2);
+
+        int result = ropertyValueDAO.removeRopertyValues(entityManager, "key", Collections.singleton(PATTERN), null);
+
+        verify(queryBuilderDelegate).withEntityManager(entityManager);
+        verify(deletion).executeUpdate();
+        verify(queryBuilderDelegate, never()).createEntityManager();
+        verify(entityManager, never()).close();
+        assertThat(result, is(2));
+    }
+
+    @Test
+    public void removeAllRopertyValuesOfKey() {
+        Query deletion = mock(Query.class);
+        when(queryBuilderDelegate.deletion(any(EqualsCriterion.class), isNull())).thenReturn(deletion);
+
+        ropertyValueDAO.removeRopertyValues(entityManager, "key", null, null);
+
+        verify(deletion).executeUpdate();
+    }
+
+    @Test
+    public void removeRopertyValuesOfPatternsInChangeSet() {
+        Query deletion = mock(Query.class);
+        when(queryBuilderDelegate.deletion(any(InCriterion.class), any(EqualsCriterion.class), any(EqualsCriterion.class))).thenReturn(deletion);
+
+        ropertyValueDAO.removeRopertyValues(entityManager, "key", Collections.singleton(PATTERN), "changeSet");
+
+        ArgumentCaptor<EqualsCriterion> equalsCriteria = ArgumentCaptor.forClass(EqualsCriterion.class);
+        verify(queryBuilderDelegate).deletion(any(InCriterion.class), equalsCriteria.capture(), equalsCriteria.capture());
+        assertThat(equalsCriteria.getAllValues().get(1).getAttributeName(), is("changeSet"));
+        assertThat(equalsCriteria.getAllValues().get(1).getComparison(), is("changeSet"));
+        verify(deletion).executeUpdate();
+    }
+
+    @Test
+    public void countValuesOfKeyInGivenEntityManager() {
+        TypedQuery<Long> countQuery = mock(TypedQuery.class);
+        when(entityManager.getReference(RopertyKey.class, "key")).thenReturn(ropertyKey);
+        when(queryBuilderDelegate.count(ropertyKey)).thenReturn(countQuery);
+        when(countQuery.getSingleResult()).thenReturn(3L);
+
+        long result = ropertyValueDAO.getNumberOfValues(entityManager, "key");
+
+        verify(queryBuilderDelegate).withEntityManager(entityManager);
+        verify(entityManager, never()).close();
+        assertThat(result, is(3L));
+    }
+
+    @Test
+    public void loadRopertyValuesOfKeyInGivenEntityManager() {
+        when(queryBuilderDelegate.inclusionFetching(any(String.class), any(InCriterion.class))).thenReturn(typedQuery);
+        when(typedQuery.getResultList()).thenReturn(Arrays.asList(ropertyValue));
+
+        List<RopertyValue> ropertyValues = ropertyValueDAO.loadRopertyValues(entityManager, "key");
+
+        verify(queryBuilderDelegate).withEntityManager(entityManager);
+        verify(entityManager, never()).close();
+        assertThat(ropertyValues, contains(ropertyValue));
+    }
+
+    private static Tuple tuple(String key, String pattern, ValueType valueType, String stringValue, Long longValue) {
+        Tuple tuple = mock(Tuple.class);
+        when(tuple.get(0, String.class)).thenReturn(key);
+        when(tuple.get(1, String.class)).thenReturn(key + " description");
+        when(tuple.get(2, String.class)).thenReturn(pattern);
+        when(tuple.get(3, String.class)).thenReturn("");
+        when(tuple.get(4, ValueType.class)).thenReturn(valueType);
+        when(tuple.get(5, String.class)).thenReturn(stringValue);
+        when(tuple.get(6, Long.class)).thenReturn(longValue);
+        return tuple;
+    }
+
 }
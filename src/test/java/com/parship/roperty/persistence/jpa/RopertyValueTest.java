@@ -0,0 +1,121 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class RopertyValueTest {
+
+    @Test
+    public void storesStringInTypedColumn() {
+        assertRoundTrip("text", ValueType.STRING);
+    }
+
+    @Test
+    public void storesIntegerInTypedColumn() {
+        assertRoundTrip(4711, ValueType.INTEGER);
+        assertThat(roundTrip(4711), instanceOf(Integer.class));
+    }
+
+    @Test
+    public void storesLongInTypedColumn() {
+        assertRoundTrip(4711L, ValueType.LONG);
+        assertThat(roundTrip(4711L), instanceOf(Long.class));
+    }
+
+    @Test
+    public void storesBooleanInTypedColumn() {
+        assertRoundTrip(true, ValueType.BOOLEAN);
+    }
+
+    @Test
+    public void storesDoubleInTypedColumn() {
+        assertRoundTrip(47.11, ValueType.DOUBLE);
+    }
+
+    @Test
+    public void serializesOtherValues() {
+        assertRoundTrip(new BigDecimal("47.11"), ValueType.SERIALIZED);
+    }
+
+    @Test
+    public void serializesTooLongStrings() {
+        assertRoundTrip(StringUtils.repeat('x', ValueType.MAX_STRING_LENGTH + 1), ValueType.SERIALIZED);
+    }
+
+    @Test
+    public void encodesStringsAboveCompressionThresholdWithCompressingCodec() {
+        CompressingValueCodec valueCodec = new CompressingValueCodec();
+        valueCodec.setThreshold(100);
+        String string = StringUtils.repeat("roperty ", 100);
+        RopertyValue ropertyValue = new RopertyValue();
+        ropertyValue.setValue(string, valueCodec);
+
+        assertThat(ropertyValue.getValueType(), is(ValueType.SERIALIZED));
+        assertThat(ropertyValue.getValue(), is((Object) string));
+        assertThat(valueCodec.getCompressedValueCount(), is(1L));
+    }
+
+    @Test
+    public void keepsStringsBelowCompressionThresholdInTypedColumn() {
+        CompressingValueCodec valueCodec = new CompressingValueCodec();
+        valueCodec.setThreshold(100);
+        RopertyValue ropertyValue = new RopertyValue();
+        ropertyValue.setValue(StringUtils.repeat('x', 99), valueCodec);
+
+        assertThat(ropertyValue.getValueType(), is(ValueType.STRING));
+        assertThat(valueCodec.getCompressedValueCount(), is(0L));
+    }
+
+    @Test
+    public void nullValueHasNoType() {
+        RopertyValue ropertyValue = new RopertyValue();
+        ropertyValue.setValue("text");
+        ropertyValue.setValue(null);
+
+        assertThat(ropertyValue.getValueType(), nullValue());
+        assertThat(ropertyValue.getValue(), nullValue());
+    }
+
+    @Test
+    public void changingTypeClearsPreviousColumn() {
+        RopertyValue ropertyValue = new RopertyValue();
+        ropertyValue.setValue(new BigDecimal("47.11"));
+        ropertyValue.setValue(4711);
+
+        assertThat(ropertyValue.getValue(), is(4711));
+        assertThat(ropertyValue.getValueType(), is(ValueType.INTEGER));
+    }
+
+    @Test
+    public void encodesOtherValuesWithGivenCodec() {
+        RopertyValue ropertyValue = new RopertyValue();
+        ropertyValue.setValue(Arrays.asList("a", 1), new TaggedValueCodec());
+
+        assertThat(ropertyValue.getValueType(), is(ValueType.SERIALIZED));
+        assertThat(ropertyValue.getValue(), is((Object) Arrays.asList("a", 1)));
+    }
+
+    private static void assertRoundTrip(Serializable value, ValueType valueType) {
+        RopertyValue ropertyValue = new RopertyValue();
+        ropertyValue.setValue(value);
+
+        assertThat(ropertyValue.getValueType(), is(valueType));
+        assertThat(ropertyValue.getValue(), is(value));
+    }
+
+    private static Object roundTrip(Serializable value) {
+        RopertyValue ropertyValue = new RopertyValue();
+        ropertyValue.setValue(value);
+        return ropertyValue.getValue();
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SerializationValueCodecTest {
+
+    private final SerializationValueCodec valueCodec = new SerializationValueCodec();
+
+    @Test
+    public void roundTripsSerializableValues() {
+        BigDecimal value = new BigDecimal("47.11");
+
+        assertThat(valueCodec.decode(valueCodec.encode(value)), is((Object) value));
+    }
+
+    @Test
+    public void decodesTaggedValues() {
+        assertThat(valueCodec.decode(new TaggedValueCodec().encode(Arrays.asList("a", 1))), is((Object) Arrays.asList("a", 1)));
+    }
+
+    @Test
+    public void canOnlyEncodeSerializableValues() {
+        assertThat(valueCodec.canEncode("text"), is(true));
+        assertThat(valueCodec.canEncode(new Object()), is(false));
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failOnNonSerializableValue() {
+        valueCodec.encode(new Object());
+    }
+
+}
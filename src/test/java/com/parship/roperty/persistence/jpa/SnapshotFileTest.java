@@ -0,0 +1,131 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class SnapshotFileTest {
+
+    private static final Revision REVISION = new Revision(2L, 5L, 1000L);
+
+    private static final List<Serializable> VALUES = Arrays.asList("text", 4711, 4711L, true, 47.11, (short) 47, null);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path path;
+
+    private SnapshotFile snapshotFile;
+
+    @Before
+    public void createSnapshotFile() {
+        path = temporaryFolder.getRoot().toPath().resolve("snapshots").resolve("roperty.snapshot");
+        snapshotFile = new SnapshotFile(path);
+    }
+
+    @Test
+    public void readReturnsNullWithoutSnapshot() {
+        assertThat(snapshotFile.read(REVISION), nullValue());
+    }
+
+    @Test
+    public void valuesSurviveRoundTrip() {
+        List<RopertyValue> ropertyValues = ropertyValues();
+
+        snapshotFile.write(REVISION, ropertyValues);
+        List<RopertyValue> result = snapshotFile.read(REVISION);
+
+        assertThat(result.size(), is(ropertyValues.size()));
+        for (int i = 0; i < ropertyValues.size(); i++) {
+            RopertyValue expected = ropertyValues.get(i);
+            RopertyValue actual = result.get(i);
+            assertThat(actual.getKey().getId(), is(expected.getKey().getId()));
+            assertThat(actual.getKey().getDescription(), is(expected.getKey().getDescription()));
+            assertThat(actual.getPattern(), is(expected.getPattern()));
+            assertThat(actual.getChangeSet(), is(expected.getChangeSet()));
+            assertThat(actual.getValueType(), is(expected.getValueType()));
+            assertThat(actual.getValue(), is(expected.getValue()));
+        }
+    }
+
+    @Test
+    public void valuesOfOneKeyShareTheirKey() {
+        snapshotFile.write(REVISION, ropertyValues());
+
+        List<RopertyValue> result = snapshotFile.read(REVISION);
+
+        assertThat(result.get(1).getKey(), sameInstance(result.get(0).getKey()));
+    }
+
+    @Test
+    public void readReturnsNullForOtherRevision() {
+        snapshotFile.write(REVISION, ropertyValues());
+
+        assertThat(snapshotFile.read(new Revision(2L, 6L, 1000L)), nullValue());
+        assertThat(snapshotFile.read(REVISION), notNullValue());
+    }
+
+    @Test
+    public void readReturnsNullForForeignFile() throws Exception {
+        Files.createDirectories(path.getParent());
+        Files.write(path, new byte[64]);
+
+        assertThat(snapshotFile.read(REVISION), nullValue());
+    }
+
+    @Test
+    public void readReturnsNullForCorruptedSnapshot() throws Exception {
+        snapshotFile.write(REVISION, ropertyValues());
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(file.length() / 2);
+            int corruptedByte = file.read() ^ 0xFF;
+            file.seek(file.length() / 2);
+            file.write(corruptedByte);
+        }
+
+        assertThat(snapshotFile.read(REVISION), nullValue());
+    }
+
+    @Test
+    public void writeReplacesSnapshotWithoutLeavingTemporaryFiles() throws Exception {
+        snapshotFile.write(REVISION, ropertyValues());
+        Revision nextRevision = new Revision(3L, 6L, 2000L);
+
+        snapshotFile.write(nextRevision, ropertyValues().subList(0, 1));
+
+        assertThat(snapshotFile.read(nextRevision).size(), is(1));
+        assertThat(Files.list(path.getParent()).count(), is(1L));
+    }
+
+    private static List<RopertyValue> ropertyValues() {
+        List<RopertyValue> ropertyValues = new ArrayList<>();
+        for (int i = 0; i < VALUES.size(); i++) {
+            RopertyKey ropertyKey = new RopertyKey();
+            ropertyKey.setId("key" + i / 2);
+            ropertyKey.setDescription(i / 2 % 2 == 0 ? null : "description" + i / 2);
+            RopertyValue ropertyValue = new RopertyValue();
+            ropertyValue.setKey(ropertyKey);
+            ropertyValue.setPattern(i % 2 == 0 ? "" : "DE|mobile");
+            ropertyValue.setChangeSet(i == 3 ? "changeSet" : "");
+            ropertyValue.setValue(VALUES.get(i));
+            ropertyValues.add(ropertyValue);
+        }
+        return ropertyValues;
+    }
+
+}
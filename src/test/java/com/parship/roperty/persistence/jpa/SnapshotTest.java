@@ -0,0 +1,118 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.DomainSpecificValueFactory;
+import com.parship.roperty.KeyValues;
+import com.parship.roperty.KeyValuesFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.persistence.EntityManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SnapshotTest {
+
+    private static final int NUM_KEYS = 100;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private H2Fixture h2Fixture;
+
+    private Path snapshotPath;
+
+    private KeyValuesFactory keyValuesFactory;
+
+    private DomainSpecificValueFactory domainSpecificValueFactory;
+
+    @Before
+    public void initializeRelationPersistence() {
+        h2Fixture = new H2Fixture("roperty_snapshot_test");
+        h2Fixture.persistKeys(NUM_KEYS, i -> "key" + i, (i, pattern) -> i, "", "DE|mobile");
+
+        snapshotPath = temporaryFolder.getRoot().toPath().resolve("roperty.snapshot");
+
+        keyValuesFactory = mock(KeyValuesFactory.class);
+        domainSpecificValueFactory = mock(DomainSpecificValueFactory.class);
+        when(keyValuesFactory.create(any())).thenAnswer(invocation -> mock(KeyValues.class));
+    }
+
+    @After
+    public void closeEntityManagerFactory() {
+        h2Fixture.close();
+    }
+
+    @Test
+    public void loadAllWritesSnapshot() {
+        Map<String, KeyValues> result = startJpaPersistence().loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(result.size(), is(NUM_KEYS));
+        assertThat(Files.isRegularFile(snapshotPath), is(true));
+    }
+
+    @Test
+    public void restartServesCurrentSnapshotWithOnlyTheRevisionQuery() {
+        startJpaPersistence().loadAll(keyValuesFactory, domainSpecificValueFactory);
+        Statistics statistics = h2Fixture.clearedStatistics();
+
+        Map<String, KeyValues> result = startJpaPersistence().loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(result.size(), is(NUM_KEYS));
+        assertThat(statistics.getQueryExecutionCount(), is(1L));
+        verify(result.get("key7")).put(7, "DE", "mobile");
+    }
+
+    @Test
+    public void restartLoadsFromDatabaseWhenSnapshotIsOutdated() {
+        startJpaPersistence().loadAll(keyValuesFactory, domainSpecificValueFactory);
+        EntityManager entityManager = h2Fixture.getEntityManagerFactory().createEntityManager();
+        entityManager.getTransaction().begin();
+        entityManager.find(RopertyKey.class, "key7").setDescription("changed");
+        entityManager.getTransaction().commit();
+        entityManager.close();
+        Statistics statistics = h2Fixture.clearedStatistics();
+
+        Map<String, KeyValues> result = startJpaPersistence().loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(statistics.getQueryExecutionCount(), is(2L));
+        verify(result.get("key7"), atLeastOnce()).setDescription("changed");
+        statistics.clear();
+        startJpaPersistence().loadAll(keyValuesFactory, domainSpecificValueFactory);
+        assertThat(statistics.getQueryExecutionCount(), is(1L));
+    }
+
+    @Test
+    public void loadAllReturnsDatabaseValuesWhenSnapshotCannotBeWritten() throws Exception {
+        Files.createDirectories(snapshotPath.resolve("blocked"));
+
+        Map<String, KeyValues> result = startJpaPersistence().loadAll(keyValuesFactory, domainSpecificValueFactory);
+
+        assertThat(result.size(), is(NUM_KEYS));
+        try (Stream<Path> files = Files.list(temporaryFolder.getRoot().toPath())) {
+            assertThat(files.collect(Collectors.toList()), contains(snapshotPath));
+        }
+    }
+
+    private JpaPersistence startJpaPersistence() {
+        JpaPersistence jpaPersistence = h2Fixture.createJpaPersistence();
+        jpaPersistence.setSnapshotFile(snapshotPath);
+        return jpaPersistence;
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.KeyValues;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static com.parship.roperty.persistence.jpa.H2Fixture.domainSpecificValue;
+import static com.parship.roperty.persistence.jpa.H2Fixture.keyValues;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class StoreAllTest {
+
+    private static final int NUM_KEYS = 1200;
+    private static final int CHUNK_SIZE = 500;
+    private static final int NUM_CHUNKS = (NUM_KEYS + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+    private H2Fixture h2Fixture;
+
+    private JpaPersistence jpaPersistence;
+
+    private RopertyValueDAO ropertyValueDAO;
+
+    @Before
+    public void initializeRelationPersistence() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("hibernate.jdbc.batch_size", "50");
+        properties.put("hibernate.order_inserts", "true");
+        properties.put("hibernate.order_updates", "true");
+        h2Fixture = new H2Fixture("roperty_store_all_test", properties);
+        ropertyValueDAO = h2Fixture.getRopertyValueDAO();
+
+        jpaPersistence = h2Fixture.createJpaPersistence();
+        jpaPersistence.setChunkSize(CHUNK_SIZE);
+    }
+
+    @After
+    public void closeEntityManagerFactory() {
+        h2Fixture.close();
+    }
+
+    @Test
+    public void storeAllNeedsOneKeyQueryPerChunkForNewKeys() {
+        Statistics statistics = h2Fixture.clearedStatistics();
+
+        jpaPersistence.storeAll(keyValuesMap("value"), "");
+
+        assertThat(statistics.getQueryExecutionCount(), is((long) NUM_CHUNKS));
+        assertThat(statistics.getEntityInsertCount(), is(3L * NUM_KEYS));
+        assertThat(ropertyValueDAO.loadAllRopertyValues().size(), is(2 * NUM_KEYS));
+    }
+
+    @Test
+    public void storeAllOnlyUpdatesChangedValues() {
+        jpaPersistence.storeAll(keyValuesMap("value"), "");
+        Statistics statistics = h2Fixture.clearedStatistics();
+
+        jpaPersistence.storeAll(keyValuesMap("changedValue"), "");
+
+        assertThat(statistics.getQueryExecutionCount(), is(2L * NUM_CHUNKS));
+        assertThat(statistics.getPrepareStatementCount(), is(4L * NUM_CHUNKS));
+        assertThat(statistics.getEntityLoadCount(), is(3L * NUM_KEYS));
+        assertThat(statistics.getEntityInsertCount(), is(0L));
+        assertThat(statistics.getEntityUpdateCount(), is(2L * NUM_KEYS));
+        for (RopertyValue ropertyValue : ropertyValueDAO.loadAllRopertyValues()) {
+            if (ropertyValue.getPattern().isEmpty()) {
+                assertThat(ropertyValue.getValue(), is(ropertyValue.getKey().getId()));
+            } else {
+                assertThat(ropertyValue.getValue(), is("changedValue"));
+            }
+        }
+    }
+
+    private static Map<String, KeyValues> keyValuesMap(String mobileValue) {
+        Map<String, KeyValues> keyValuesMap = new LinkedHashMap<>();
+        for (int i = 0; i < NUM_KEYS; i++) {
+            String key = "key" + i;
+            keyValuesMap.put(key, keyValues(domainSpecificValue("", key), domainSpecificValue("DE|mobile", mobileValue)));
+        }
+        return keyValuesMap;
+    }
+
+}
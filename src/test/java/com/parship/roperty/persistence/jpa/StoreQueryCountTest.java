@@ -0,0 +1,62 @@
+package com.parship.roperty.persistence.jpa;
+
+import com.parship.roperty.DomainSpecificValue;
+import com.parship.roperty.KeyValues;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.parship.roperty.persistence.jpa.H2Fixture.domainSpecificValue;
+import static com.parship.roperty.persistence.jpa.H2Fixture.keyValues;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class StoreQueryCountTest {
+
+    private static final String KEY = "key";
+    private static final int NUM_PATTERNS = 200;
+
+    private H2Fixture h2Fixture;
+
+    private JpaPersistence jpaPersistence;
+
+    @Before
+    public void initializeRelationPersistence() {
+        h2Fixture = new H2Fixture("roperty_store_query_count_test");
+        jpaPersistence = h2Fixture.createJpaPersistence();
+        jpaPersistence.store(KEY, keyValuesWithPatterns("value"), "");
+    }
+
+    @After
+    public void closeEntityManagerFactory() {
+        h2Fixture.close();
+    }
+
+    @Test
+    public void storeSelectsKeyAndValuesOnceAndOnlyUpdatesRows() {
+        Statistics statistics = h2Fixture.clearedStatistics();
+
+        jpaPersistence.store(KEY, keyValuesWithPatterns("changedValue"), "");
+
+        assertThat(statistics.getPrepareStatementCount(), is(2L + 1L + NUM_PATTERNS));
+        assertThat(statistics.getEntityLoadCount(), is(1L + NUM_PATTERNS));
+        assertThat(statistics.getEntityUpdateCount(), is(1L + NUM_PATTERNS));
+        for (RopertyValue ropertyValue : h2Fixture.getRopertyValueDAO().readRopertyValues(singletonList(KEY))) {
+            assertThat(ropertyValue.getValue(), is("changedValue"));
+        }
+    }
+
+    private static KeyValues keyValuesWithPatterns(String value) {
+        Set<DomainSpecificValue> domainSpecificValues = new HashSet<>();
+        for (int i = 0; i < NUM_PATTERNS; i++) {
+            domainSpecificValues.add(domainSpecificValue("pattern" + i, value));
+        }
+        return keyValues(domainSpecificValues);
+    }
+
+}
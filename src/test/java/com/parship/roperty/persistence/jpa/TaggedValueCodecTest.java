@@ -0,0 +1,130 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TaggedValueCodecTest {
+
+    private final TaggedValueCodec valueCodec = new TaggedValueCodec();
+
+    @Test
+    public void roundTripsScalars() {
+        List<Object> values = Arrays.asList("text", "Grüße", "", 0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MIN_VALUE, 4711L,
+                true, false, 47.11, Double.NaN, 4.7f, (short) -47, (byte) 47, 'x');
+        for (Object value : values) {
+            Object decoded = valueCodec.decode(valueCodec.encode(value));
+            assertThat(decoded, is(value));
+            assertThat(decoded.getClass(), is((Object) value.getClass()));
+        }
+    }
+
+    @Test
+    public void roundTripsNull() {
+        assertThat(valueCodec.decode(valueCodec.encode(null)), nullValue());
+    }
+
+    @Test
+    public void roundTripsNestedCollections() {
+        Map<Object, Object> map = new LinkedHashMap<>();
+        map.put("list", Arrays.asList(1, 2L, null, "three"));
+        map.put(4, new LinkedHashSet<>(Arrays.asList("a", "b")));
+        map.put(null, Collections.singletonMap("nested", true));
+
+        assertThat(valueCodec.decode(valueCodec.encode(map)), is((Object) map));
+    }
+
+    @Test
+    public void keepsClassOfTaggedCollections() {
+        List<Object> values = Arrays.asList(new ArrayList<>(Arrays.asList(1, 2)), new HashSet<>(Arrays.asList(1, 2)), new LinkedHashSet<>(Arrays.asList(2, 1)),
+                new HashMap<>(Collections.singletonMap("a", 1)), new LinkedHashMap<>(Collections.singletonMap("a", 1)));
+        for (Object value : values) {
+            Object decoded = valueCodec.decode(valueCodec.encode(value));
+            assertThat(decoded, is(value));
+            assertThat(decoded.getClass(), is((Object) value.getClass()));
+        }
+    }
+
+    @Test
+    public void roundTripsTreeMapWithItsComparator() {
+        TreeMap<String, Integer> map = new TreeMap<>(Collections.reverseOrder());
+        map.put("a", 1);
+        map.put("b", 2);
+
+        Object decoded = valueCodec.decode(valueCodec.encode(map));
+
+        assertThat(decoded, instanceOf(TreeMap.class));
+        assertThat(decoded, is((Object) map));
+        assertThat(((TreeMap<?, ?>) decoded).firstKey(), is((Object) "b"));
+    }
+
+    @Test
+    public void serializesOtherValues() {
+        BigDecimal value = new BigDecimal("47.11");
+
+        assertThat(valueCodec.decode(valueCodec.encode(value)), is((Object) value));
+        assertThat(valueCodec.decode(valueCodec.encode(Collections.singletonList(value))), is((Object) Collections.singletonList(value)));
+    }
+
+    @Test
+    public void decodesJavaSerializedValues() {
+        Set<String> value = Collections.singleton("legacy");
+
+        assertThat(valueCodec.decode(new SerializationValueCodec().encode(value)), is((Object) value));
+    }
+
+    @Test
+    public void encodesCommonValuesMoreCompactlyThanJavaSerialization() {
+        SerializationValueCodec serializationValueCodec = new SerializationValueCodec();
+        ArrayList<String> list = new ArrayList<>(Arrays.asList("DE", "AT", "CH", "FR", "IT"));
+        LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put("timeout", 3000);
+        map.put("enabled", true);
+        map.put("endpoint", "https://www.example.com");
+        for (Serializable value : Arrays.<Serializable>asList("text", 4711, true, 47.11, list, map)) {
+            assertThat(valueCodec.encode(value).length, lessThan(serializationValueCodec.encode(value).length));
+        }
+    }
+
+    @Test
+    public void canEncodeCollectionsOfEncodableValuesOnly() {
+        assertThat(valueCodec.canEncode(Arrays.asList("a", 1)), is(true));
+        assertThat(valueCodec.canEncode(Collections.singletonList(new Object())), is(false));
+        assertThat(valueCodec.canEncode(new Object()), is(false));
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failOnUnknownTag() {
+        valueCodec.decode(new byte[]{0x7F});
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failOnTruncatedValue() {
+        byte[] bytes = valueCodec.encode("text");
+        valueCodec.decode(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test(expected = RopertyPersistenceException.class)
+    public void failOnNonEncodableValue() {
+        valueCodec.encode(new Object());
+    }
+
+}
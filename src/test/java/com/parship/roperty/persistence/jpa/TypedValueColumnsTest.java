@@ -0,0 +1,123 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TypedValueColumnsTest {
+
+    private static final List<Serializable> VALUES = Arrays.asList("text", 4711, 4711L, true, 47.11, (short) 47);
+
+    private H2Fixture h2Fixture;
+
+    @Before
+    public void initializeRelationPersistence() {
+        h2Fixture = new H2Fixture("roperty_typed_value_columns_test");
+
+        EntityManager entityManager = h2Fixture.getEntityManagerFactory().createEntityManager();
+        entityManager.getTransaction().begin();
+        RopertyKey ropertyKey = new RopertyKey();
+        ropertyKey.setId("key");
+        ropertyKey.setDescription("description");
+        ropertyKey.setLastModified(new Date());
+        entityManager.persist(ropertyKey);
+        for (int i = 0; i < VALUES.size(); i++) {
+            RopertyValue ropertyValue = new RopertyValue();
+            ropertyValue.setKey(ropertyKey);
+            ropertyValue.setPattern("pattern" + i);
+            ropertyValue.setChangeSet("");
+            ropertyValue.setValue(VALUES.get(i));
+            entityManager.persist(ropertyValue);
+        }
+        entityManager.getTransaction().commit();
+        entityManager.close();
+    }
+
+    @After
+    public void closeEntityManagerFactory() {
+        h2Fixture.close();
+    }
+
+    @Test
+    public void valuesSurviveRoundTrip() {
+        EntityManager entityManager = h2Fixture.getEntityManagerFactory().createEntityManager();
+        for (int i = 0; i < VALUES.size(); i++) {
+            RopertyValue ropertyValue = entityManager.createQuery("select v from RopertyValue v where v.pattern = :pattern", RopertyValue.class)
+                    .setParameter("pattern", "pattern" + i)
+                    .getSingleResult();
+            assertThat(ropertyValue.getValue(), is(VALUES.get(i)));
+            assertThat(ropertyValue.getValue().getClass(), is((Object) VALUES.get(i).getClass()));
+        }
+        entityManager.close();
+    }
+
+    @Test
+    public void projectedValuesSurviveRoundTrip() {
+        RopertyValueDAO ropertyValueDAO = h2Fixture.getRopertyValueDAO();
+
+        List<RopertyValue> ropertyValues = ropertyValueDAO.readRopertyValues(Collections.singletonList("key"));
+
+        assertThat(ropertyValues, hasSize(VALUES.size()));
+        for (RopertyValue ropertyValue : ropertyValues) {
+            int i = Integer.parseInt(ropertyValue.getPattern().substring("pattern".length()));
+            assertThat(ropertyValue.getValue(), is(VALUES.get(i)));
+            assertThat(ropertyValue.getValue().getClass(), is((Object) VALUES.get(i).getClass()));
+            assertThat(ropertyValue.getChangeSet(), is(""));
+            assertThat(ropertyValue.getKey().getId(), is("key"));
+            assertThat(ropertyValue.getKey().getDescription(), is("description"));
+        }
+        assertThat(ropertyValueDAO.readAllRopertyValues(), hasSize(VALUES.size()));
+    }
+
+    @Test
+    public void onlyOtherTypesAreSerialized() {
+        EntityManager entityManager = h2Fixture.getEntityManagerFactory().createEntityManager();
+        for (int i = 0; i < VALUES.size(); i++) {
+            Object serializedValue = entityManager.createNativeQuery("select value from roperty_value where pattern = ?")
+                    .setParameter(1, "pattern" + i)
+                    .getSingleResult();
+            if (VALUES.get(i) instanceof Short) {
+                assertThat(serializedValue, notNullValue());
+            } else {
+                assertThat(serializedValue, nullValue());
+            }
+        }
+        entityManager.close();
+    }
+
+    @Test
+    public void rowsWithoutValueTypeAreReadFromSerializedColumn() {
+        EntityManager entityManager = h2Fixture.getEntityManagerFactory().createEntityManager();
+        entityManager.getTransaction().begin();
+        RopertyValue ropertyValue = new RopertyValue();
+        ropertyValue.setKey(entityManager.getReference(RopertyKey.class, "key"));
+        ropertyValue.setPattern("legacy");
+        ropertyValue.setChangeSet("");
+        ropertyValue.setValue((short) 1);
+        entityManager.persist(ropertyValue);
+        entityManager.flush();
+        entityManager.createNativeQuery("update roperty_value set value_type = null where pattern = 'legacy'").executeUpdate();
+        entityManager.getTransaction().commit();
+        entityManager.close();
+
+        entityManager = h2Fixture.getEntityManagerFactory().createEntityManager();
+        RopertyValue legacyValue = entityManager.createQuery("select v from RopertyValue v where v.pattern = 'legacy'", RopertyValue.class).getSingleResult();
+        assertThat(legacyValue.getValueType(), nullValue());
+        assertThat(legacyValue.getValue(), is((Object) (short) 1));
+        entityManager.close();
+    }
+
+}
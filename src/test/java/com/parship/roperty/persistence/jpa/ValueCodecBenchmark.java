@@ -0,0 +1,75 @@
+package com.parship.roperty.persistence.jpa;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ValueCodecBenchmark {
+
+    @Param({"serialization", "tagged"})
+    private String codec;
+
+    @Param({"string", "integer", "list", "map"})
+    private String valueKind;
+
+    private ValueCodec valueCodec;
+
+    private Object value;
+
+    private byte[] encodedValue;
+
+    @Setup(Level.Trial)
+    public void createValue() {
+        valueCodec = "tagged".equals(codec) ? new TaggedValueCodec() : new SerializationValueCodec();
+        switch (valueKind) {
+            case "string":
+                value = "https://www.example.com/some/configured/path";
+                break;
+            case "integer":
+                value = 4711;
+                break;
+            case "list":
+                value = new ArrayList<>(Arrays.asList("DE", "AT", "CH", "FR", "IT"));
+                break;
+            default:
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("timeout", 3000);
+                map.put("enabled", true);
+                map.put("endpoint", "https://www.example.com");
+                value = map;
+        }
+        encodedValue = valueCodec.encode(value);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return valueCodec.encode(value);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return valueCodec.decode(encodedValue);
+    }
+
+}